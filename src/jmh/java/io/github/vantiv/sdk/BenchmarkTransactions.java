@@ -0,0 +1,122 @@
+package io.github.vantiv.sdk;
+
+import java.nio.charset.StandardCharsets;
+
+import io.github.vantiv.sdk.generate.Authentication;
+import io.github.vantiv.sdk.generate.Authorization;
+import io.github.vantiv.sdk.generate.Capture;
+import io.github.vantiv.sdk.generate.CardType;
+import io.github.vantiv.sdk.generate.CnpOnlineRequest;
+import io.github.vantiv.sdk.generate.Contact;
+import io.github.vantiv.sdk.generate.CountryTypeEnum;
+import io.github.vantiv.sdk.generate.MethodOfPaymentTypeEnum;
+import io.github.vantiv.sdk.generate.ObjectFactory;
+import io.github.vantiv.sdk.generate.OrderSourceType;
+import io.github.vantiv.sdk.generate.Sale;
+
+/**
+ * Representative requests and responses shared by the benchmarks.
+ */
+final class BenchmarkTransactions {
+
+    private static final ObjectFactory OBJECT_FACTORY = new ObjectFactory();
+
+    private BenchmarkTransactions() {
+    }
+
+    static Authorization authorization() {
+        Authorization authorization = new Authorization();
+        authorization.setId("id12345");
+        authorization.setReportGroup("Planets");
+        authorization.setOrderId("12344-order");
+        authorization.setAmount(106L);
+        authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+        authorization.setBillToAddress(billToAddress());
+        authorization.setCard(card());
+        return authorization;
+    }
+
+    static Sale sale() {
+        Sale sale = new Sale();
+        sale.setId("id12345");
+        sale.setReportGroup("Planets");
+        sale.setOrderId("12344-order");
+        sale.setAmount(106L);
+        sale.setOrderSource(OrderSourceType.ECOMMERCE);
+        sale.setBillToAddress(billToAddress());
+        sale.setCard(card());
+        return sale;
+    }
+
+    static Capture capture() {
+        Capture capture = new Capture();
+        capture.setId("id12345");
+        capture.setReportGroup("Planets");
+        capture.setCnpTxnId(84568456L);
+        capture.setAmount(106L);
+        return capture;
+    }
+
+    /**
+     * @param transactionType authorization, sale or capture
+     * @return request holding the transaction, filled in as CnpOnline would
+     */
+    static CnpOnlineRequest request(String transactionType) {
+        CnpOnlineRequest request = new CnpOnlineRequest();
+        request.setMerchantId("101");
+        request.setMerchantSdk("Java;" + Versions.XML_VERSION);
+        request.setVersion(Versions.XML_VERSION);
+        Authentication authentication = new Authentication();
+        authentication.setUser("benchmarkUser");
+        authentication.setPassword("benchmarkPassword");
+        request.setAuthentication(authentication);
+        if ("authorization".equals(transactionType)) {
+            request.setTransaction(OBJECT_FACTORY.createAuthorization(authorization()));
+        }
+        else if ("sale".equals(transactionType)) {
+            request.setTransaction(OBJECT_FACTORY.createSale(sale()));
+        }
+        else if ("capture".equals(transactionType)) {
+            request.setTransaction(OBJECT_FACTORY.createCapture(capture()));
+        }
+        else {
+            throw new IllegalArgumentException(transactionType);
+        }
+        return request;
+    }
+
+    /**
+     * @param transactionType authorization, sale or capture
+     * @return approved response to the transaction, as the gateway sends it
+     */
+    static byte[] response(String transactionType) {
+        String body = "<cnpTxnId>84568456</cnpTxnId><orderId>12344-order</orderId><response>000</response>"
+                + "<responseTime>2024-05-14T12:37:26</responseTime><message>Approved</message>";
+        if (!"capture".equals(transactionType)) {
+            body = body + "<authCode>123457</authCode><fraudResult><avsResult>01</avsResult></fraudResult>";
+        }
+        return ("<cnpOnlineResponse version='" + Versions.XML_VERSION + "' response='0' message='Valid Format'"
+                + " xmlns='http://www.vantivcnp.com/schema'><" + transactionType + "Response id='id12345' reportGroup='Planets'>"
+                + body + "</" + transactionType + "Response></cnpOnlineResponse>").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static CardType card() {
+        CardType card = new CardType();
+        card.setType(MethodOfPaymentTypeEnum.VI);
+        card.setNumber("4100000000000000");
+        card.setExpDate("1210");
+        card.setCardValidationNum("349");
+        return card;
+    }
+
+    private static Contact billToAddress() {
+        Contact contact = new Contact();
+        contact.setName("John Smith");
+        contact.setAddressLine1("1 Main St.");
+        contact.setCity("Burlington");
+        contact.setState("MA");
+        contact.setZip("01803-3747");
+        contact.setCountry(CountryTypeEnum.US);
+        return contact;
+    }
+}
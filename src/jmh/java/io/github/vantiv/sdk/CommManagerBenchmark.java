@@ -0,0 +1,61 @@
+package io.github.vantiv.sdk;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Picking a site and reporting the result, as every online request does, from as many threads as there are
+ * cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class CommManagerBenchmark {
+
+    @Param({"failover", "fastest", "p2c"})
+    public String routing;
+
+    private CommManager commManager;
+
+    @Setup
+    public void setUp() {
+        Properties config = new Properties();
+        config.setProperty("url", "https://site1.example.com/vap/communicator/online");
+        config.setProperty("multiSite", "true");
+        config.setProperty("multiSiteUrl1", "https://site1.example.com/vap/communicator/online");
+        config.setProperty("multiSiteUrl2", "https://site2.example.com/vap/communicator/online");
+        config.setProperty("multiSiteUrl3", "https://site3.example.com/vap/communicator/online");
+        config.setProperty("multiSiteRouting", routing);
+        commManager = CommManager.instance(config);
+    }
+
+    @TearDown
+    public void tearDown() {
+        CommManager.reset();
+    }
+
+    @Benchmark
+    public RequestTarget findUrl() {
+        RequestTarget target = commManager.findUrl();
+        commManager.reportResult(target, CommManager.REQUEST_RESULT_RESPONSE_RECEIVED, 200);
+        return target;
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.vantiv.sdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+
+import io.github.vantiv.sdk.generate.CnpOnlineResponse;
+
+/**
+ * Marshalling requests the way Communication sends them and unmarshalling the responses the way it reads them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MarshalBenchmark {
+
+    @Param({"authorization", "sale", "capture"})
+    public String transactionType;
+
+    private CnpRequestEntity requestEntity;
+    private byte[] response;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+
+    @Setup
+    public void setUp() {
+        requestEntity = new CnpRequestEntity(BenchmarkTransactions.request(transactionType), true);
+        response = BenchmarkTransactions.response(transactionType);
+    }
+
+    @Benchmark
+    public int marshal() throws IOException {
+        out.reset();
+        requestEntity.writeTo(out);
+        return out.size();
+    }
+
+    @Benchmark
+    public CnpOnlineResponse unmarshal() throws IOException {
+        return Communication.unmarshalResponse(new InputSource(new ByteArrayInputStream(response)));
+    }
+}
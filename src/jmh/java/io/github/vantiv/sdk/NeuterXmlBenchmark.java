@@ -0,0 +1,54 @@
+package io.github.vantiv.sdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Masking the xml printed with printxml and neuterXml on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NeuterXmlBenchmark {
+
+    private final Communication communication = new Communication(InMemoryTransport.fixedResponse(""));
+    private String xml;
+    private byte[] xmlBytes;
+    private final ByteArrayOutputStream masked = new ByteArrayOutputStream(4096);
+
+    @Setup
+    public void setUp() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CnpRequestEntity(BenchmarkTransactions.request("authorization"), true).writeTo(out);
+        xmlBytes = out.toByteArray();
+        xml = new String(xmlBytes, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String neuterXml() {
+        return communication.neuterXml(xml);
+    }
+
+    @Benchmark
+    public int maskBytes() {
+        masked.reset();
+        XmlMasker.DEFAULT.mask(xmlBytes, 0, xmlBytes.length, masked);
+        return masked.size();
+    }
+}
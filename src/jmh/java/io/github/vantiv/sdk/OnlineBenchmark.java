@@ -0,0 +1,53 @@
+package io.github.vantiv.sdk;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.vantiv.sdk.generate.AuthorizationResponse;
+
+/**
+ * CnpOnline.authorize end to end, from filling in the request to checking the response, against an in-memory
+ * transport, so that only the SDK is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OnlineBenchmark {
+
+    @Param({"false", "true"})
+    public String metrics;
+
+    private CnpOnline cnpOnline;
+
+    @Setup
+    public void setUp() {
+        Properties config = new Properties();
+        config.setProperty("url", "https://in-memory.example.com/vap/communicator/online");
+        config.setProperty("merchantId", "101");
+        config.setProperty("username", "benchmarkUser");
+        config.setProperty("password", "benchmarkPassword");
+        config.setProperty("metrics", metrics);
+        byte[] response = BenchmarkTransactions.response("authorization");
+        cnpOnline = new CnpOnline(config, new InMemoryTransport((url, request) -> response));
+    }
+
+    @Benchmark
+    public AuthorizationResponse authorize() {
+        return cnpOnline.authorize(BenchmarkTransactions.authorization());
+    }
+}
@@ -0,0 +1,484 @@
+package io.github.vantiv.sdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * The default transport, on Apache httpclient5. The http client is pooled and shared with every other transport
+ * created for the same endpoint. The pool is sized with the maxConnections and maxConnectionsPerRoute
+ * properties, and idle connections are evicted after idleConnectionTimeout milliseconds. When
+ * keepWarmConnections is set, a background task keeps that many fresh connections open to each site.
+ */
+public class ApacheHttpTransport implements CnpTransport {
+
+    private static final int DEFAULT_MAX_CONNECTIONS = 20;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    // clients are shared by every transport that points at the same endpoint with the same pool settings
+    private static final ConcurrentMap<String, CloseableHttpClient> sharedHttpClients = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, CloseableHttpAsyncClient> sharedHttpAsyncClients = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, PoolingHttpClientConnectionManager> sharedConnectionManagers = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, ScheduledFuture<?>> keepWarmTasks = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService keepWarmExecutor;
+    private static final int KEEP_ALIVE_DURATION = 8000;
+    // keep-warm replaces connections once they have been idle this long, well before they reach KEEP_ALIVE_DURATION
+    private static final int KEEP_WARM_PERIOD = KEEP_ALIVE_DURATION / 2;
+    private static final int WARM_UP_TIMEOUT = 10000;
+    private static final int DEFAULT_RETRY_INTERVAL = 5000;
+    /* Buffers that grew larger than this are not kept for the next request of their thread */
+    private static final int MAX_RETAINED_REQUEST_BUFFER = 1024 * 1024;
+
+    /* Each thread marshals its requests into one buffer, so they go out with a Content-Length rather than chunked */
+    private static final ThreadLocal<RequestBuffer> requestBuffers = ThreadLocal.withInitial(RequestBuffer::new);
+
+    final CloseableHttpClient httpClient;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final String poolKey;
+    private final Properties configuration;
+    private volatile CloseableHttpAsyncClient httpAsyncClient;
+
+    /**
+     * @param configuration configuration Properties to use for processing
+     */
+    public ApacheHttpTransport(Properties configuration) {
+        this.configuration = configuration;
+        poolKey = poolKey(configuration);
+        httpClient = sharedHttpClients.computeIfAbsent(poolKey, key -> createHttpClient(key, configuration));
+        connectionManager = sharedConnectionManagers.get(poolKey);
+        int keepWarmConnections = Integer.parseInt(configuration.getProperty("keepWarmConnections", "0"));
+        if (keepWarmConnections > 0 && connectionManager != null) {
+            startKeepWarm(poolKey, configuration, keepWarmConnections);
+        }
+    }
+
+    private static CloseableHttpClient createHttpClient(String poolKey, Properties configuration) {
+        PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager(
+                TransportFactory.forConfiguration(configuration).getSocketFactoryRegistry()) {
+            // the pool is where waiting for a connection and opening one happen, so time them here for CnpMetrics
+            public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+                LeaseRequest leaseRequest = super.lease(id, route, requestTimeout, state);
+                return new LeaseRequest() {
+                    public ConnectionEndpoint get(Timeout timeout) throws InterruptedException, ExecutionException, TimeoutException {
+                        long start = System.nanoTime();
+                        try {
+                            return leaseRequest.get(timeout);
+                        }
+                        finally {
+                            RequestTimings.recordCurrent(CnpMetrics.Phase.CONNECTION_LEASE, System.nanoTime() - start);
+                        }
+                    }
+
+                    public boolean cancel() {
+                        return leaseRequest.cancel();
+                    }
+                };
+            }
+
+            public void connect(ConnectionEndpoint endpoint, TimeValue timeout, HttpContext context) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    super.connect(endpoint, timeout, context);
+                }
+                finally {
+                    RequestTimings.recordCurrent(CnpMetrics.Phase.CONNECT, System.nanoTime() - start);
+                }
+            }
+        };
+        connManager.setMaxTotal(Integer.valueOf(configuration.getProperty("maxConnections", String.valueOf(DEFAULT_MAX_CONNECTIONS))));
+        connManager.setDefaultMaxPerRoute(Integer.valueOf(configuration.getProperty("maxConnectionsPerRoute", String.valueOf(DEFAULT_MAX_CONNECTIONS_PER_ROUTE))));
+        int idleTimeout = Integer.valueOf(configuration.getProperty("idleConnectionTimeout", String.valueOf(KEEP_ALIVE_DURATION)));
+        sharedConnectionManagers.put(poolKey, connManager);
+
+        HttpRequestRetryStrategy requestRetryStrategy = new DefaultHttpRequestRetryStrategy(0, TimeValue.ofMilliseconds(DEFAULT_RETRY_INTERVAL));
+        // Vantiv will a close an idle connection, so we define our Keep-alive strategy to be below that threshold
+        ConnectionKeepAliveStrategy keepAliveStrategy = new ConnectionKeepAliveStrategy() {
+            public TimeValue getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                return TimeValue.ofMilliseconds(KEEP_ALIVE_DURATION);
+            }
+        };
+        return HttpClients.custom().setConnectionManager(connManager)
+                .setRetryStrategy(requestRetryStrategy)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout))
+                .build();
+    }
+
+    /**
+     * Connections are opened until connectionsPerSite are idle in the pool for each site, capped at
+     * maxConnectionsPerRoute. Connections through a proxy are not pre-opened.
+     */
+    public int warmUp(List<String> urls, int connectionsPerSite) throws IOException {
+        if (connectionManager == null || usesProxy(configuration)) {
+            return 0;
+        }
+        int opened = 0;
+        IOException failure = null;
+        for (String url : urls) {
+            try {
+                HttpRoute route = route(url);
+                opened += openConnections(connectionManager, url, route,
+                        Math.min(connectionsPerSite, connectionManager.getMaxPerRoute(route)), KEEP_ALIVE_DURATION);
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return opened;
+    }
+
+    /*
+     * Runs every KEEP_WARM_PERIOD: connections idle for a full period are closed before they can expire, and fresh
+     * ones are opened in their place. Connections that were in use recently are handed back with only what is
+     * left of their keep-alive, so none of them stays in the pool idle for longer than KEEP_ALIVE_DURATION.
+     *
+     * Only the connections missing from connectionsPerSite are opened, and never so many that live requests would
+     * find the route's pool full while the task holds its endpoints.
+     */
+    private static void startKeepWarm(String poolKey, Properties configuration, int connectionsPerSite) {
+        if (keepWarmTasks.containsKey(poolKey) || usesProxy(configuration)) {
+            return;
+        }
+        PoolingHttpClientConnectionManager connManager = sharedConnectionManagers.get(poolKey);
+        List<String> urls = Communication.siteUrls(configuration);
+        keepWarmTasks.computeIfAbsent(poolKey, key -> getKeepWarmExecutor().scheduleWithFixedDelay(() -> {
+            connManager.closeExpired();
+            connManager.closeIdle(TimeValue.ofMilliseconds(KEEP_WARM_PERIOD));
+            for (String url : urls) {
+                try {
+                    HttpRoute route = route(url);
+                    int count = keepWarmCount(connManager.getStats(route), connectionsPerSite);
+                    if (count > 0) {
+                        openConnections(connManager, url, route, count, KEEP_ALIVE_DURATION - KEEP_WARM_PERIOD);
+                    }
+                }
+                catch (IOException | RuntimeException e) {
+                    // the site is unreachable right now, requests will find that out and fail over on their own
+                }
+            }
+        }, 0, KEEP_WARM_PERIOD, TimeUnit.MILLISECONDS));
+    }
+
+    private static synchronized ScheduledExecutorService getKeepWarmExecutor() {
+        if (keepWarmExecutor == null) {
+            keepWarmExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cnp-keep-warm");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return keepWarmExecutor;
+    }
+
+    private static HttpRoute route(String url) {
+        URI uri = URI.create(url);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() != -1 ? uri.getPort() : (secure ? 443 : 80);
+        return new HttpRoute(new HttpHost(uri.getScheme(), uri.getHost(), port), null, secure);
+    }
+
+    /*
+     * Endpoints the keep-warm task leases for a route: the idle connections, which the pool hands out before it
+     * opens new ones, plus the missing ones, 0 when none is missing. At least one slot of the route is always left
+     * to live requests.
+     */
+    static int keepWarmCount(PoolStats stats, int connectionsPerSite) {
+        int missing = connectionsPerSite - stats.getAvailable() - stats.getLeased();
+        int free = stats.getMax() - stats.getLeased() - stats.getPending() - 1;
+        int opened = Math.min(missing, free - stats.getAvailable());
+        return opened > 0 ? stats.getAvailable() + opened : 0;
+    }
+
+    /*
+     * Leases count endpoints for the site at once, so that each one is a separate connection, hands back the ones
+     * that were already open with reusedKeepAlive instead of a full keep-alive, then connects the others and hands
+     * them back too.
+     */
+    private static int openConnections(PoolingHttpClientConnectionManager connManager, String url, HttpRoute route,
+                                       int count, int reusedKeepAlive) throws IOException {
+
+        List<ConnectionEndpoint> endpoints = new ArrayList<>(count);
+        List<ConnectionEndpoint> reused = new ArrayList<>(count);
+        int opened = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                endpoints.add(connManager.lease("warm-up", route, Timeout.ofMilliseconds(WARM_UP_TIMEOUT), null)
+                        .get(Timeout.ofMilliseconds(WARM_UP_TIMEOUT)));
+            }
+            // the open ones go back right away, so requests are not kept waiting for them during the handshakes
+            for (ConnectionEndpoint endpoint : endpoints) {
+                if (endpoint.isConnected()) {
+                    reused.add(endpoint);
+                    connManager.release(endpoint, null, TimeValue.ofMilliseconds(reusedKeepAlive));
+                }
+            }
+            endpoints.removeAll(reused);
+            for (ConnectionEndpoint endpoint : endpoints) {
+                connManager.connect(endpoint, TimeValue.ofMilliseconds(WARM_UP_TIMEOUT), HttpClientContext.create());
+                opened++;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while warming up connections");
+        }
+        catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Unable to lease a connection to " + url, e);
+        }
+        finally {
+            for (ConnectionEndpoint endpoint : endpoints) {
+                // a fresh connection gets the full keep-alive, an endpoint that failed to connect is discarded
+                connManager.release(endpoint, null, TimeValue.ofMilliseconds(KEEP_ALIVE_DURATION));
+            }
+        }
+        return opened;
+    }
+
+    /* The async client starts its own I/O reactor threads, so it is only created once an async request is made */
+    private CloseableHttpAsyncClient getHttpAsyncClient() {
+        if (httpAsyncClient == null) {
+            httpAsyncClient = sharedHttpAsyncClients.computeIfAbsent(poolKey, key -> createHttpAsyncClient(configuration));
+        }
+        return httpAsyncClient;
+    }
+
+    private static CloseableHttpAsyncClient createHttpAsyncClient(Properties configuration) {
+        PoolingAsyncClientConnectionManager connManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setTlsStrategy(TransportFactory.forConfiguration(configuration).getTlsStrategy())
+                .setDefaultTlsConfig(TlsConfig.custom().setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_1).build())
+                .setMaxConnTotal(Integer.valueOf(configuration.getProperty("maxConnections", String.valueOf(DEFAULT_MAX_CONNECTIONS))))
+                .setMaxConnPerRoute(Integer.valueOf(configuration.getProperty("maxConnectionsPerRoute", String.valueOf(DEFAULT_MAX_CONNECTIONS_PER_ROUTE))))
+                .build();
+        int idleTimeout = Integer.valueOf(configuration.getProperty("idleConnectionTimeout", String.valueOf(KEEP_ALIVE_DURATION)));
+
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom().setConnectionManager(connManager)
+                .setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+                    public TimeValue getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                        return TimeValue.ofMilliseconds(KEEP_ALIVE_DURATION);
+                    }
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout))
+                .build();
+        client.start();
+        return client;
+    }
+
+    /* Builds the key identifying the endpoint and pool settings a shared http client is created for */
+    static String poolKey(Properties configuration) {
+        StringBuilder key = new StringBuilder()
+                .append(configuration.getProperty("url")).append('|')
+                .append(configuration.getProperty("proxyHost")).append(':')
+                .append(configuration.getProperty("proxyPort")).append('|')
+                .append(configuration.getProperty("maxConnections")).append('|')
+                .append(configuration.getProperty("maxConnectionsPerRoute")).append('|')
+                .append(configuration.getProperty("idleConnectionTimeout")).append('|')
+                .append(configuration.getProperty("sslSessionCacheSize")).append('|')
+                .append(configuration.getProperty("sslSessionTimeout"));
+        if (Boolean.valueOf(configuration.getProperty("multiSite", "false"))) {
+            for (int x = 1; configuration.getProperty("multiSiteUrl" + x) != null; x++) {
+                key.append('|').append(configuration.getProperty("multiSiteUrl" + x));
+            }
+        }
+        return key.toString();
+    }
+
+    /* Setup writes an empty proxyHost and proxyPort when there is no proxy, so empty ones do not count */
+    static boolean usesProxy(Properties configuration) {
+        String proxyHost = configuration.getProperty("proxyHost");
+        String proxyPort = configuration.getProperty("proxyPort");
+        return proxyHost != null && proxyHost.length() > 0 && proxyPort != null && proxyPort.length() > 0;
+    }
+
+    private static RequestConfig createRequestConfig(Properties configuration) {
+        String proxyHost = configuration.getProperty("proxyHost");
+        String proxyPort = configuration.getProperty("proxyPort");
+        //Default timeout=120 seconds as per cnp endpoint
+        int httpTimeout = Integer.valueOf(configuration.getProperty("timeout", "120000"));
+        //Time to wait for a pooled connection, defaults to the http timeout
+        int connectionRequestTimeout = Integer.valueOf(configuration.getProperty("connectionRequestTimeout", String.valueOf(httpTimeout)));
+        HttpHost proxy;
+        RequestConfig requestConfig;
+        if (usesProxy(configuration)) {
+            proxy = new HttpHost(proxyHost, Integer.valueOf(proxyPort));
+            requestConfig = RequestConfig.copy(RequestConfig.DEFAULT)
+                    .setProxy(proxy)
+                    .setResponseTimeout(Timeout.ofMilliseconds(httpTimeout))
+                    .setConnectTimeout(Timeout.ofMilliseconds(httpTimeout))
+                    .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeout))
+                    .build();
+        }
+        else {
+            requestConfig = RequestConfig.copy(RequestConfig.DEFAULT)
+                    .setResponseTimeout(Timeout.ofMilliseconds(httpTimeout))
+                    .setConnectTimeout(Timeout.ofMilliseconds(httpTimeout))
+                    .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeout))
+                    .build();
+        }
+        return requestConfig;
+    }
+
+    public Response send(String url, RequestBody body, String contentType, Properties configuration) throws IOException {
+        HttpPost post = new HttpPost(url);
+        post.setHeader("Content-Type", contentType);
+        post.setConfig(createRequestConfig(configuration));
+        RequestBuffer buffer = requestBuffers.get();
+        buffer.reset();
+        try {
+            body.writeTo(buffer);
+            post.setEntity(buffer.toEntity(ContentType.parse(contentType)));
+            // the body has been sent once execute returns, so the buffer can be reused even while the response is read
+            return new PooledResponse(post, httpClient.execute(post));
+        }
+        catch (IOException | RuntimeException e) {
+            post.abort();
+            throw e;
+        }
+        finally {
+            if (buffer.capacity() > MAX_RETAINED_REQUEST_BUFFER) {
+                requestBuffers.remove();
+            }
+        }
+    }
+
+    /**
+     * A ByteArrayOutputStream whose bytes are sent without copying them.
+     */
+    private static final class RequestBuffer extends ByteArrayOutputStream {
+
+        RequestBuffer() {
+            super(8192);
+        }
+
+        HttpEntity toEntity(ContentType contentType) {
+            return new ByteArrayEntity(buf, 0, count, contentType);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    public CompletableFuture<Response> sendAsync(String url, byte[] body, String contentType, Properties configuration) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        SimpleHttpRequest post = SimpleRequestBuilder.post(url)
+                .setBody(body, ContentType.parse(contentType))
+                .setRequestConfig(createRequestConfig(configuration))
+                .build();
+        Future<SimpleHttpResponse> exchange = getHttpAsyncClient().execute(post, new FutureCallback<SimpleHttpResponse>() {
+            public void completed(SimpleHttpResponse response) {
+                ContentType responseType = response.getContentType();
+                future.complete(new BufferedTransportResponse(response.getCode(), response.getReasonPhrase(),
+                        responseType != null ? responseType.toString() : null, response.getBodyBytes()));
+            }
+
+            public void failed(Exception e) {
+                future.completeExceptionally(e);
+            }
+
+            public void cancelled() {
+                future.cancel(false);
+            }
+        });
+        future.whenComplete((response, failure) -> {
+            if (future.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /* Reads the body straight from the pooled connection, which goes back to the pool once the response is closed */
+    private static class PooledResponse implements Response {
+
+        private final HttpPost post;
+        private final ClassicHttpResponse response;
+
+        PooledResponse(HttpPost post, ClassicHttpResponse response) {
+            this.post = post;
+            this.response = response;
+        }
+
+        public int getStatusCode() {
+            return response.getCode();
+        }
+
+        public String getReasonPhrase() {
+            return response.getReasonPhrase();
+        }
+
+        public String getContentType() {
+            Header header = response.getFirstHeader("Content-Type");
+            return header != null ? header.getValue() : null;
+        }
+
+        public InputStream getBody() throws IOException {
+            HttpEntity entity = response.getEntity();
+            return entity != null ? entity.getContent() : EMPTY;
+        }
+
+        public void close() {
+            EntityUtils.consumeQuietly(response.getEntity());
+            post.abort();
+        }
+
+        private static final InputStream EMPTY = new InputStream() {
+            public int read() {
+                return -1;
+            }
+        };
+    }
+}
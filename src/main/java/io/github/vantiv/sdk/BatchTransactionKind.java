@@ -0,0 +1,259 @@
+package io.github.vantiv.sdk;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import javax.xml.bind.JAXBElement;
+
+import io.github.vantiv.sdk.generate.*;
+
+/**
+ * The transactions a batch can hold, keyed by class. Each kind knows how to wrap a transaction for marshalling and
+ * which count and amount attributes of the batchRequest header it adds to. The running totals themselves live in
+ * {@link CnpBatchRequest} as longs indexed by {@link #index}, and are only turned into BigIntegers when the header
+ * is written.
+ */
+final class BatchTransactionKind<T> {
+
+    private static final List<BatchTransactionKind<?>> KINDS = new ArrayList<BatchTransactionKind<?>>();
+    private static final Map<Class<?>, BatchTransactionKind<?>> BY_CLASS = new HashMap<Class<?>, BatchTransactionKind<?>>();
+
+    static {
+        register(Sale.class, ObjectFactory::createSale,
+                BatchRequest::getNumSales, BatchRequest::setNumSales,
+                Sale::getAmount, BatchRequest::getSaleAmount, BatchRequest::setSaleAmount);
+        register(Authorization.class, ObjectFactory::createAuthorization,
+                BatchRequest::getNumAuths, BatchRequest::setNumAuths,
+                Authorization::getAmount, BatchRequest::getAuthAmount, BatchRequest::setAuthAmount);
+        register(Credit.class, ObjectFactory::createCredit,
+                BatchRequest::getNumCredits, BatchRequest::setNumCredits,
+                Credit::getAmount, BatchRequest::getCreditAmount, BatchRequest::setCreditAmount);
+        register(RegisterTokenRequestType.class, ObjectFactory::createRegisterTokenRequest,
+                BatchRequest::getNumTokenRegistrations, BatchRequest::setNumTokenRegistrations);
+        register(CaptureGivenAuth.class, ObjectFactory::createCaptureGivenAuth,
+                BatchRequest::getNumCaptureGivenAuths, BatchRequest::setNumCaptureGivenAuths,
+                CaptureGivenAuth::getAmount, BatchRequest::getCaptureGivenAuthAmount, BatchRequest::setCaptureGivenAuthAmount);
+        register(ForceCapture.class, ObjectFactory::createForceCapture,
+                BatchRequest::getNumForceCaptures, BatchRequest::setNumForceCaptures,
+                ForceCapture::getAmount, BatchRequest::getForceCaptureAmount, BatchRequest::setForceCaptureAmount);
+        register(AuthReversal.class, ObjectFactory::createAuthReversal,
+                BatchRequest::getNumAuthReversals, BatchRequest::setNumAuthReversals,
+                AuthReversal::getAmount, BatchRequest::getAuthReversalAmount, BatchRequest::setAuthReversalAmount);
+        register(DepositTransactionReversal.class, ObjectFactory::createDepositTransactionReversal,
+                BatchRequest::getNumDepositTransactionReversals, BatchRequest::setNumDepositTransactionReversals,
+                DepositTransactionReversal::getAmount, BatchRequest::getDepositTransactionReversalAmount, BatchRequest::setDepositTransactionReversalAmount);
+        register(RefundTransactionReversal.class, ObjectFactory::createRefundTransactionReversal,
+                BatchRequest::getNumRefundTransactionReversals, BatchRequest::setNumRefundTransactionReversals,
+                RefundTransactionReversal::getAmount, BatchRequest::getRefundTransactionReversalAmount, BatchRequest::setRefundTransactionReversalAmount);
+        register(Capture.class, ObjectFactory::createCapture,
+                BatchRequest::getNumCaptures, BatchRequest::setNumCaptures,
+                Capture::getAmount, BatchRequest::getCaptureAmount, BatchRequest::setCaptureAmount);
+        register(EcheckVerification.class, ObjectFactory::createEcheckVerification,
+                BatchRequest::getNumEcheckVerification, BatchRequest::setNumEcheckVerification,
+                EcheckVerification::getAmount, BatchRequest::getEcheckVerificationAmount, BatchRequest::setEcheckVerificationAmount);
+        register(EcheckCredit.class, ObjectFactory::createEcheckCredit,
+                BatchRequest::getNumEcheckCredit, BatchRequest::setNumEcheckCredit,
+                EcheckCredit::getAmount, BatchRequest::getEcheckCreditAmount, BatchRequest::setEcheckCreditAmount);
+        register(EcheckRedeposit.class, ObjectFactory::createEcheckRedeposit,
+                BatchRequest::getNumEcheckRedeposit, BatchRequest::setNumEcheckRedeposit);
+        register(EcheckSale.class, ObjectFactory::createEcheckSale,
+                BatchRequest::getNumEcheckSales, BatchRequest::setNumEcheckSales,
+                EcheckSale::getAmount, BatchRequest::getEcheckSalesAmount, BatchRequest::setEcheckSalesAmount);
+        register(UpdateCardValidationNumOnToken.class, ObjectFactory::createUpdateCardValidationNumOnToken,
+                BatchRequest::getNumUpdateCardValidationNumOnTokens, BatchRequest::setNumUpdateCardValidationNumOnTokens);
+        register(UpdateSubscription.class, ObjectFactory::createUpdateSubscription,
+                BatchRequest::getNumUpdateSubscriptions, BatchRequest::setNumUpdateSubscriptions);
+        register(CancelSubscription.class, ObjectFactory::createCancelSubscription,
+                BatchRequest::getNumCancelSubscriptions, BatchRequest::setNumCancelSubscriptions);
+        register(CreatePlan.class, ObjectFactory::createCreatePlan,
+                BatchRequest::getNumCreatePlans, BatchRequest::setNumCreatePlans);
+        register(UpdatePlan.class, ObjectFactory::createUpdatePlan,
+                BatchRequest::getNumUpdatePlans, BatchRequest::setNumUpdatePlans);
+        register(Activate.class, ObjectFactory::createActivate,
+                BatchRequest::getNumActivates, BatchRequest::setNumActivates,
+                Activate::getAmount, BatchRequest::getActivateAmount, BatchRequest::setActivateAmount);
+        register(Deactivate.class, ObjectFactory::createDeactivate,
+                BatchRequest::getNumDeactivates, BatchRequest::setNumDeactivates);
+        register(Load.class, ObjectFactory::createLoad,
+                BatchRequest::getNumLoads, BatchRequest::setNumLoads,
+                Load::getAmount, BatchRequest::getLoadAmount, BatchRequest::setLoadAmount);
+        register(Unload.class, ObjectFactory::createUnload,
+                BatchRequest::getNumUnloads, BatchRequest::setNumUnloads,
+                Unload::getAmount, BatchRequest::getUnloadAmount, BatchRequest::setUnloadAmount);
+        register(BalanceInquiry.class, ObjectFactory::createBalanceInquiry,
+                BatchRequest::getNumBalanceInquirys, BatchRequest::setNumBalanceInquirys);
+        register(EcheckPreNoteSale.class, ObjectFactory::createEcheckPreNoteSale,
+                BatchRequest::getNumEcheckPreNoteSale, BatchRequest::setNumEcheckPreNoteSale);
+        register(EcheckPreNoteCredit.class, ObjectFactory::createEcheckPreNoteCredit,
+                BatchRequest::getNumEcheckPreNoteCredit, BatchRequest::setNumEcheckPreNoteCredit);
+        register(PayFacCredit.class, ObjectFactory::createPayFacCredit,
+                BatchRequest::getNumPayFacCredit, BatchRequest::setNumPayFacCredit,
+                PayFacCredit::getAmount, BatchRequest::getPayFacCreditAmount, BatchRequest::setPayFacCreditAmount);
+        register(SubmerchantCredit.class, ObjectFactory::createSubmerchantCredit,
+                BatchRequest::getNumSubmerchantCredit, BatchRequest::setNumSubmerchantCredit,
+                SubmerchantCredit::getAmount, BatchRequest::getSubmerchantCreditAmount, BatchRequest::setSubmerchantCreditAmount);
+        register(VendorCredit.class, ObjectFactory::createVendorCredit,
+                BatchRequest::getNumVendorCredit, BatchRequest::setNumVendorCredit,
+                VendorCredit::getAmount, BatchRequest::getVendorCreditAmount, BatchRequest::setVendorCreditAmount);
+        register(ReserveCredit.class, ObjectFactory::createReserveCredit,
+                BatchRequest::getNumReserveCredit, BatchRequest::setNumReserveCredit,
+                ReserveCredit::getAmount, BatchRequest::getReserveCreditAmount, BatchRequest::setReserveCreditAmount);
+        register(PhysicalCheckCredit.class, ObjectFactory::createPhysicalCheckCredit,
+                BatchRequest::getNumPhysicalCheckCredit, BatchRequest::setNumPhysicalCheckCredit,
+                PhysicalCheckCredit::getAmount, BatchRequest::getPhysicalCheckCreditAmount, BatchRequest::setPhysicalCheckCreditAmount);
+        register(PayFacDebit.class, ObjectFactory::createPayFacDebit,
+                BatchRequest::getNumPayFacDebit, BatchRequest::setNumPayFacDebit,
+                PayFacDebit::getAmount, BatchRequest::getPayFacDebitAmount, BatchRequest::setPayFacDebitAmount);
+        register(SubmerchantDebit.class, ObjectFactory::createSubmerchantDebit,
+                BatchRequest::getNumSubmerchantDebit, BatchRequest::setNumSubmerchantDebit,
+                SubmerchantDebit::getAmount, BatchRequest::getSubmerchantDebitAmount, BatchRequest::setSubmerchantDebitAmount);
+        register(VendorDebit.class, ObjectFactory::createVendorDebit,
+                BatchRequest::getNumVendorDebit, BatchRequest::setNumVendorDebit,
+                VendorDebit::getAmount, BatchRequest::getVendorDebitAmount, BatchRequest::setVendorDebitAmount);
+        register(ReserveDebit.class, ObjectFactory::createReserveDebit,
+                BatchRequest::getNumReserveDebit, BatchRequest::setNumReserveDebit,
+                ReserveDebit::getAmount, BatchRequest::getReserveDebitAmount, BatchRequest::setReserveDebitAmount);
+        register(PhysicalCheckDebit.class, ObjectFactory::createPhysicalCheckDebit,
+                BatchRequest::getNumPhysicalCheckDebit, BatchRequest::setNumPhysicalCheckDebit,
+                PhysicalCheckDebit::getAmount, BatchRequest::getPhysicalCheckDebitAmount, BatchRequest::setPhysicalCheckDebitAmount);
+        register(AccountUpdate.class, ObjectFactory::createAccountUpdate,
+                BatchRequest::getNumAccountUpdates, BatchRequest::setNumAccountUpdates);
+        register(FundingInstructionVoid.class, ObjectFactory::createFundingInstructionVoid,
+                BatchRequest::getNumFundingInstructionVoid, BatchRequest::setNumFundingInstructionVoid);
+        register(GiftCardAuthReversal.class, ObjectFactory::createGiftCardAuthReversal,
+                BatchRequest::getNumGiftCardAuthReversals, BatchRequest::setNumGiftCardAuthReversals,
+                GiftCardAuthReversal::getOriginalAmount, BatchRequest::getGiftCardAuthReversalOriginalAmount, BatchRequest::setGiftCardAuthReversalOriginalAmount);
+        register(GiftCardCapture.class, ObjectFactory::createGiftCardCapture,
+                BatchRequest::getNumGiftCardCaptures, BatchRequest::setNumGiftCardCaptures,
+                GiftCardCapture::getCaptureAmount, BatchRequest::getGiftCardCaptureAmount, BatchRequest::setGiftCardCaptureAmount);
+        register(GiftCardCredit.class, ObjectFactory::createGiftCardCredit,
+                BatchRequest::getNumGiftCardCredits, BatchRequest::setNumGiftCardCredits,
+                GiftCardCredit::getCreditAmount, BatchRequest::getGiftCardCreditAmount, BatchRequest::setGiftCardCreditAmount);
+        register(FastAccessFunding.class, ObjectFactory::createFastAccessFunding,
+                BatchRequest::getNumFastAccessFunding, BatchRequest::setNumFastAccessFunding,
+                FastAccessFunding::getAmount, BatchRequest::getFastAccessFundingAmount, BatchRequest::setFastAccessFundingAmount);
+        register(TranslateToLowValueTokenRequestType.class, ObjectFactory::createTranslateToLowValueTokenRequest,
+                BatchRequest::getNumTranslateToLowValueTokenRequests, BatchRequest::setNumTranslateToLowValueTokenRequests);
+        register(CustomerCredit.class, ObjectFactory::createCustomerCredit,
+                BatchRequest::getNumCustomerCredit, BatchRequest::setNumCustomerCredit,
+                CustomerCredit::getAmount, BatchRequest::getCustomerCreditAmount, BatchRequest::setCustomerCreditAmount);
+        register(CustomerDebit.class, ObjectFactory::createCustomerDebit,
+                BatchRequest::getNumCustomerDebit, BatchRequest::setNumCustomerDebit,
+                CustomerDebit::getAmount, BatchRequest::getCustomerDebitAmount, BatchRequest::setCustomerDebitAmount);
+        register(PayoutOrgCredit.class, ObjectFactory::createPayoutOrgCredit,
+                BatchRequest::getNumPayoutOrgCredit, BatchRequest::setNumPayoutOrgCredit,
+                PayoutOrgCredit::getAmount, BatchRequest::getPayoutOrgCreditAmount, BatchRequest::setPayoutOrgCreditAmount);
+        register(PayoutOrgDebit.class, ObjectFactory::createPayoutOrgDebit,
+                BatchRequest::getNumPayoutOrgDebit, BatchRequest::setNumPayoutOrgDebit,
+                PayoutOrgDebit::getAmount, BatchRequest::getPayoutOrgDebitAmount, BatchRequest::setPayoutOrgDebitAmount);
+    }
+
+    /* Also finds the kind of subclasses of the generated classes */
+    private static final ClassValue<BatchTransactionKind<?>> LOOKUP = new ClassValue<BatchTransactionKind<?>>() {
+        @Override
+        protected BatchTransactionKind<?> computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                BatchTransactionKind<?> kind = BY_CLASS.get(c);
+                if (kind != null) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+    };
+
+    static final BatchTransactionKind<?> ACCOUNT_UPDATE = BY_CLASS.get(AccountUpdate.class);
+
+    final int index;
+    private final Class<T> type;
+    private final BiFunction<ObjectFactory, T, JAXBElement<?>> element;
+    private final Function<BatchRequest, BigInteger> getCount;
+    private final BiConsumer<BatchRequest, BigInteger> setCount;
+    private final ToLongFunction<T> amount;
+    private final Function<BatchRequest, BigInteger> getAmount;
+    private final BiConsumer<BatchRequest, BigInteger> setAmount;
+
+    private BatchTransactionKind(int index, Class<T> type, BiFunction<ObjectFactory, T, JAXBElement<?>> element,
+            Function<BatchRequest, BigInteger> getCount, BiConsumer<BatchRequest, BigInteger> setCount,
+            ToLongFunction<T> amount, Function<BatchRequest, BigInteger> getAmount, BiConsumer<BatchRequest, BigInteger> setAmount) {
+        this.index = index;
+        this.type = type;
+        this.element = element;
+        this.getCount = getCount;
+        this.setCount = setCount;
+        this.amount = amount;
+        this.getAmount = getAmount;
+        this.setAmount = setAmount;
+    }
+
+    private static <T> void register(Class<T> type, BiFunction<ObjectFactory, T, JAXBElement<?>> element,
+            Function<BatchRequest, BigInteger> getCount, BiConsumer<BatchRequest, BigInteger> setCount) {
+        register(type, element, getCount, setCount, null, null, null);
+    }
+
+    private static <T> void register(Class<T> type, BiFunction<ObjectFactory, T, JAXBElement<?>> element,
+            Function<BatchRequest, BigInteger> getCount, BiConsumer<BatchRequest, BigInteger> setCount,
+            ToLongFunction<T> amount, Function<BatchRequest, BigInteger> getAmount, BiConsumer<BatchRequest, BigInteger> setAmount) {
+        BatchTransactionKind<T> kind = new BatchTransactionKind<T>(KINDS.size(), type, element, getCount, setCount, amount, getAmount, setAmount);
+        KINDS.add(kind);
+        BY_CLASS.put(type, kind);
+    }
+
+    /**
+     * @return the kind of the transaction, or null when it cannot be added to a batch
+     */
+    static BatchTransactionKind<?> of(Object transaction) {
+        return LOOKUP.get(transaction.getClass());
+    }
+
+    /**
+     * @return number of kinds, the size of the arrays holding running totals
+     */
+    static int count() {
+        return KINDS.size();
+    }
+
+    JAXBElement<?> element(ObjectFactory objectFactory, Object transaction) {
+        return element.apply(objectFactory, type.cast(transaction));
+    }
+
+    /**
+     * @return amount the transaction adds to the header, 0 for kinds without an amount attribute
+     */
+    long amount(Object transaction) {
+        return amount == null ? 0 : amount.applyAsLong(type.cast(transaction));
+    }
+
+    /**
+     * Writes the running totals of the kinds that were added into the header.
+     */
+    static void writeTotals(BatchRequest batchRequest, long[] counts, long[] amounts) {
+        for (BatchTransactionKind<?> kind : KINDS) {
+            if (counts[kind.index] != 0) {
+                kind.setCount.accept(batchRequest, BigInteger.valueOf(counts[kind.index]));
+                if (kind.setAmount != null) {
+                    kind.setAmount.accept(batchRequest, BigInteger.valueOf(amounts[kind.index]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the running totals back from the header, which may have been changed since they were written.
+     */
+    static void readTotals(BatchRequest batchRequest, long[] counts, long[] amounts) {
+        for (BatchTransactionKind<?> kind : KINDS) {
+            counts[kind.index] = kind.getCount.apply(batchRequest).longValue();
+            if (kind.getAmount != null) {
+                amounts[kind.index] = kind.getAmount.apply(batchRequest).longValue();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.vantiv.sdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * A transport response whose body has already been read into memory, as the async transports deliver them.
+ */
+class BufferedTransportResponse implements CnpTransport.Response {
+
+    private final int statusCode;
+    private final String reasonPhrase;
+    private final String contentType;
+    private final byte[] body;
+
+    BufferedTransportResponse(int statusCode, String reasonPhrase, String contentType, byte[] body) {
+        this.statusCode = statusCode;
+        this.reasonPhrase = reasonPhrase;
+        this.contentType = contentType;
+        this.body = body != null ? body : new byte[0];
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getReasonPhrase() {
+        return reasonPhrase;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public InputStream getBody() {
+        return new ByteArrayInputStream(body);
+    }
+
+    public void close() {
+    }
+}
@@ -2,9 +2,14 @@ package io.github.vantiv.sdk;
 
 import java.io.*;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -21,10 +26,11 @@ public class CnpBatchFileRequest{
 	private Properties properties;
 	private Communication communication;
 	private List<CnpBatchRequest> cnpBatchRequestList;
+	/* Running total of the transactions in all batches, kept up to date by the batches */
+	private final AtomicInteger numberOfTransactionsInFile = new AtomicInteger();
 	private String requestFileName;
 	private File requestFile;
 	private File responseFile;
-	private File tempBatchRequestFile;
 	private String requestId;
 	private Marshaller marshaller;
 	private Configuration config = null;
@@ -65,6 +71,8 @@ public class CnpBatchFileRequest{
 	 * proxyHost
 	 * proxyPort
 	 * printxml (possible values "true" and "false" defaults to false)
+	 * batchCompactOutput (possible values "true" and "false" defaults to false, writes the batch xml without indentation)
+	 * batchWriteBufferSize (in bytes, defaults to 65536)
 	 *
 	 * @param requestFileName name of request file
 	 * @param properties configuration properties
@@ -89,19 +97,13 @@ public class CnpBatchFileRequest{
 
 	public void initializeMembers(String requestFileName, Properties in_properties) throws CnpBatchException{
 		try {
-			this.jc = JAXBContext.newInstance("io.github.vantiv.sdk.generate");
+			this.jc = CnpContext.getJAXBContext();
 			if(config == null){
 				config = new Configuration();
 			}
 			this.communication = new Communication();
 			this.cnpBatchRequestList = new ArrayList<CnpBatchRequest>();
 			this.requestFileName = requestFileName;
-			marshaller = jc.createMarshaller();
-			// JAXB_FRAGMENT property required to prevent unnecessary XML info from being printed in the file during marshal.
-			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
-			// Proper formatting of XML purely for aesthetic purposes.
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-
             if (in_properties == null || in_properties.isEmpty()) {
                 this.properties = new Properties();
                 this.properties.load(new FileInputStream(config.location()));
@@ -110,6 +112,12 @@ public class CnpBatchFileRequest{
                 this.properties = in_properties;
             }
 
+			marshaller = jc.createMarshaller();
+			// JAXB_FRAGMENT property required to prevent unnecessary XML info from being printed in the file during marshal.
+			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+			// Proper formatting of XML purely for aesthetic purposes, unless compact output was asked for.
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, !isCompactOutput());
+
 			this.maxAllowedTransactionsPerFile = Integer.parseInt(properties.getProperty("maxAllowedTransactionsPerFile", "1000"));
 			if (maxAllowedTransactionsPerFile > CNP_LIMIT_MAX_ALLOWED_TNXS_PER_FILE) {
 				throw new CnpBatchException("maxAllowedTransactionsPerFile property value cannot exceed "
@@ -145,6 +153,20 @@ public class CnpBatchFileRequest{
         return this.properties;
     }
 
+    /**
+     * @return whether batch xml is written without indentation, as set by batchCompactOutput
+     */
+    boolean isCompactOutput() {
+        return "true".equalsIgnoreCase(properties.getProperty("batchCompactOutput"));
+    }
+
+    /**
+     * @return size in bytes of the buffers used to write the batch and request files, as set by batchWriteBufferSize
+     */
+    int getWriteBufferSize() {
+        return Integer.parseInt(properties.getProperty("batchWriteBufferSize", "65536"));
+    }
+
 	/**
 	 * Returns a CnpBatchRequest object, the container for transactions.
 	 * @param merchantId merchant ID for this batch
@@ -161,44 +183,37 @@ public class CnpBatchFileRequest{
 	 * This method generates the request file alone. To generate the response
 	 * object call sendToCnp method.
 	 *
+	 * The file is written in a single pass: the cnpRequest and batchRequest headers are written as they are built,
+	 * and the transactions of each batch are transferred from its temporary file without passing through the heap.
+	 *
 	 * @throws CnpBatchException Vantiv batch exception
 	 */
 	public void generateRequestFile() throws CnpBatchException {
-		OutputStream cnpReqWriter = null;
-		try {
-			CnpRequest cnpRequest = buildCnpRequest();
-
-			// Code to write to the file directly
-			StringWriter sw = new StringWriter();
-			Marshaller marshaller;
-
-			try {
-				marshaller = jc.createMarshaller();
-				marshaller.marshal(cnpRequest, sw);
-			} catch (JAXBException e) {
-				throw new CnpBatchException("Unable to load jaxb dependencies.  Perhaps a classpath issue?");
-			}
-
-			String xmlRequest = sw.toString();
-
+		try (FileChannel cnpReqWriter = FileChannel.open(requestFile.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			String xmlRequest = buildCnpRequestXml();
 			xmlRequest = xmlRequest.replace("</cnpRequest>", " ");
-
-			cnpReqWriter = new FileOutputStream(requestFile);
-			FileInputStream fis = new FileInputStream(tempBatchRequestFile);
-			byte[] readData = new byte[1024];
-			cnpReqWriter.write(xmlRequest.getBytes());
-			int i = fis.read(readData);
-
-			while (i != -1) {
-				cnpReqWriter.write(readData, 0, i);
-				i = fis.read(readData);
+			write(cnpReqWriter, xmlRequest);
+
+			for (CnpBatchRequest batchReq : cnpBatchRequestList) {
+				batchReq.closeFile();
+				String batchRequestXml = buildBatchRequestXml(batchReq);
+				batchRequestXml = batchRequestXml.replaceFirst("/>", ">");
+				write(cnpReqWriter, batchRequestXml);
+				for (File segment : batchReq.getSegmentFiles()) {
+					try (FileChannel transactions = FileChannel.open(segment.toPath(), StandardOpenOption.READ)) {
+						long position = 0;
+						long size = transactions.size();
+						while (position < size) {
+							position += transactions.transferTo(position, size - position, cnpReqWriter);
+						}
+					}
+					segment.delete();
+				}
+				write(cnpReqWriter, "</batchRequest>\n");
 			}
 
-			cnpReqWriter.write(("</cnpRequest>\n").getBytes());
-			//marshaller.marshal(cnpRequest, os);
-			fis.close();
-			tempBatchRequestFile.delete();
-			cnpReqWriter.close();
+			write(cnpReqWriter, "</cnpRequest>\n");
 		} catch (IOException e) {
 			throw new CnpBatchException("Error while creating a batch request file. " +
 					"Check to see if the current user has permission to read and write to " +
@@ -225,7 +240,8 @@ public class CnpBatchFileRequest{
                     "batchTcpTimeout", "batchUseSSL",
                     "maxAllowedTransactionsPerFile", "maxTransactionsPerBatch",
                     "batchRequestFolder", "batchResponseFolder", "sftpUsername", "sftpPassword", "sftpTimeout",
-                    "merchantId", "printxml", "useEncryption", "VantivPublicKeyPath", "PrivateKeyPath", "PublicKeyPath", "gpgPassphrase", "deleteBatchFiles"};
+                    "merchantId", "printxml", "useEncryption", "VantivPublicKeyPath", "PrivateKeyPath", "PublicKeyPath", "gpgPassphrase", "deleteBatchFiles",
+                    "batchCompactOutput", "batchWriteBufferSize"};
 
             for (String prop : allProperties) {
                 // if the value of a property is not set,
@@ -259,14 +275,31 @@ public class CnpBatchFileRequest{
 	}
 
 	public int getNumberOfTransactionInFile() {
-		int i;
-		int totalNumberOfTransactions = 0;
-		for (i = 0; i < getNumberOfBatches(); i++) {
-			CnpBatchRequest lbr = cnpBatchRequestList.get(i);
-			totalNumberOfTransactions += lbr.getNumberOfTransactions();
-		}
+		return numberOfTransactionsInFile.get();
+	}
 
-		return totalNumberOfTransactions;
+	/**
+	 * Called by the batches of this file whenever their number of transactions changes.
+	 * @param delta change in the number of transactions of a batch
+	 */
+	void transactionsAdded(int delta) {
+		numberOfTransactionsInFile.addAndGet(delta);
+	}
+
+	/**
+	 * Counts one more transaction in the file, unless that would go over maxAllowedTransactionsPerFile.
+	 * @return whether the transaction was counted
+	 */
+	boolean reserveTransaction() {
+		while (true) {
+			int current = numberOfTransactionsInFile.get();
+			if (current >= maxAllowedTransactionsPerFile) {
+				return false;
+			}
+			if (numberOfTransactionsInFile.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
 	}
 
 	/**
@@ -403,49 +436,21 @@ public class CnpBatchFileRequest{
             prepareForEncryptedDelivery();
         }
         else {
-            try {
-                String writeFolderPath = this.properties.getProperty("batchRequestFolder");
-
-                tempBatchRequestFile = new File(writeFolderPath + "/tmp/tempBatchFileTesting");
-                OutputStream batchReqWriter = new FileOutputStream(tempBatchRequestFile.getAbsoluteFile());
-                // close the all the batch files
-                byte[] readData = new byte[1024];
-                for (CnpBatchRequest batchReq : cnpBatchRequestList) {
-                    batchReq.closeFile();
-                    String batchRequestXml = buildBatchRequestXml(batchReq);
-                    batchRequestXml = batchRequestXml.replaceFirst("/>", ">");
-
-                    FileInputStream fis = new FileInputStream(batchReq.getFile());
-
-                    batchReqWriter.write(batchRequestXml.getBytes());
-                    int i = fis.read(readData);
-
-                    while (i != -1) {
-                        batchReqWriter.write(readData, 0, i);
-                        i = fis.read(readData);
-                    }
-
-                    batchReqWriter.write(("</batchRequest>\n").getBytes());
-                    fis.close();
-                    batchReq.getFile().delete();
-                }
-                // close the file
-                batchReqWriter.close();
-                generateRequestFile();
-                File tmpFile = new File(writeFolderPath + "/tmp");
-                if (tmpFile.exists()) {
-                    tmpFile.delete();
-                }
-            }
-            catch (IOException ioe) {
-                throw new CnpBatchException(
-                        "There was an exception while creating the Cnp Request file. " +
-                                "Check to see if the current user has permission to read and write to " +
-                                this.properties.getProperty("batchRequestFolder"), ioe);
+            generateRequestFile();
+            File tmpFile = new File(this.properties.getProperty("batchRequestFolder") + "/tmp");
+            if (tmpFile.exists()) {
+                tmpFile.delete();
             }
         }
     }
 
+    private static void write(FileChannel channel, String xml) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(xml.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
 
     /**
      * Prepare final encrypted batch request file to be submitted in batch request folder.
@@ -458,7 +463,8 @@ public class CnpBatchFileRequest{
         String cnpRequestXml = buildCnpRequestXml();
         try {
             cnpRequestXml = cnpRequestXml.replace("</cnpRequest>", " ");
-            OutputStream encryptedCnpRequestWriter = PgpHelper.encryptionStream(requestFile.getAbsolutePath(), vantivPubKeyPath);
+            OutputStream encryptedCnpRequestWriter = new BufferedOutputStream(
+                    PgpHelper.encryptionStream(requestFile.getAbsolutePath(), vantivPubKeyPath), getWriteBufferSize());
             encryptedCnpRequestWriter.write(cnpRequestXml.getBytes());
 
             byte[] clearData = new byte[2097152];
@@ -467,16 +473,18 @@ public class CnpBatchFileRequest{
                 String batchRequestXml = buildBatchRequestXml(batchReq);
                 batchRequestXml = batchRequestXml.replaceFirst("/>", ">");
                 encryptedCnpRequestWriter.write(batchRequestXml.getBytes());
-                InputStream decryptionStream = PgpHelper.decryptionStream(batchReq.getFile().getAbsolutePath(),
-                        privateKeyPath,
-                        gpgPassphrase);
-                int len;
-                while ((len = decryptionStream.read(clearData)) > 0) {
-                    encryptedCnpRequestWriter.write(clearData, 0, len);
+                for (File segment : batchReq.getSegmentFiles()) {
+                    InputStream decryptionStream = PgpHelper.decryptionStream(segment.getAbsolutePath(),
+                            privateKeyPath,
+                            gpgPassphrase);
+                    int len;
+                    while ((len = decryptionStream.read(clearData)) > 0) {
+                        encryptedCnpRequestWriter.write(clearData, 0, len);
+                    }
+                    decryptionStream.close();
+                    segment.delete();
                 }
-                decryptionStream.close();
                 encryptedCnpRequestWriter.write("</batchRequest>\n".getBytes());
-                batchReq.getFile().delete();
             }
             encryptedCnpRequestWriter.write(("</cnpRequest>\n").getBytes());
             encryptedCnpRequestWriter.close();
@@ -529,12 +537,15 @@ public class CnpBatchFileRequest{
 
         // Code to write to the file directly
         StringWriter sw = new StringWriter();
-        Marshaller marshaller;
+        JAXBObjectPool<Marshaller> marshallerPool = CnpContext.getMarshallerPool();
+        Marshaller marshaller = null;
         try {
-            marshaller = jc.createMarshaller();
+            marshaller = marshallerPool.borrow();
             marshaller.marshal(cnpRequest, sw);
         } catch (JAXBException e) {
             throw new CnpBatchException("Unable to load jaxb dependencies.  Perhaps a classpath issue?");
+        } finally {
+            marshallerPool.release(marshaller);
         }
         return sw.toString();
     }
@@ -584,7 +595,7 @@ public class CnpBatchFileRequest{
     }
 
     public boolean isEmpty() {
-        return (getNumberOfTransactionInFile() == 0) ? true : false;
+        return getNumberOfTransactionInFile() == 0;
     }
 
     public boolean isFull() {
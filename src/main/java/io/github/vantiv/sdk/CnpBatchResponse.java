@@ -40,7 +40,7 @@ public class CnpBatchResponse {
 		try {
 			batchResponseXML = responseFileParser.getNextTag("batchResponse");
 			//batchResponseXML = "<batchResponse cnpBatchId=\"1431\" merchantId=\"101\" xmlns=\"http://www.vantivcnp.com/schema\"></batchResponse>";
-			jc = JAXBContext.newInstance("io.github.vantiv.sdk.generate");
+			jc = CnpContext.getJAXBContext();
 			unmarshaller = jc.createUnmarshaller();
 			batchResponse = (BatchResponse) unmarshaller.unmarshal(new StringReader(batchResponseXML));
 		} catch (JAXBException e) {
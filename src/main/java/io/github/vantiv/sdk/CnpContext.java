@@ -2,20 +2,44 @@ package io.github.vantiv.sdk;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
 
 import io.github.vantiv.sdk.generate.ObjectFactory;
 
 /**
- * A factory that encapsulates singleton instances of a Cnp JAXB Context and ObjectFactory.
+ * A factory that encapsulates singleton instances of a Cnp JAXB Context and ObjectFactory, along with pools of
+ * the Marshallers and Unmarshallers created from that context.
  * @author stephenhall
  *
  */
 public class CnpContext {
 
-	private static final JAXBContext jaxbContext = initJAXBContext();
-	
 	private static final ObjectFactory objectFactory = initObjectFactory();
+
+	private static final int MAX_IDLE_POOLED = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+	private static final JAXBObjectPool<Marshaller> marshallerPool = new JAXBObjectPool<Marshaller>(
+			new JAXBObjectPool.Factory<Marshaller>() {
+				public Marshaller create() throws JAXBException {
+					Marshaller marshaller = getJAXBContext().createMarshaller();
+					marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+					return marshaller;
+				}
+			}, MAX_IDLE_POOLED);
+
+	private static final JAXBObjectPool<Unmarshaller> unmarshallerPool = new JAXBObjectPool<Unmarshaller>(
+			new JAXBObjectPool.Factory<Unmarshaller>() {
+				public Unmarshaller create() throws JAXBException {
+					return getJAXBContext().createUnmarshaller();
+				}
+			}, MAX_IDLE_POOLED);
 	
+	/* Holds the context so it is built, once, by whichever thread first asks for it */
+	private static class JAXBContextHolder {
+		private static final JAXBContext jaxbContext = initJAXBContext();
+	}
+
 	private static JAXBContext initJAXBContext() {
 		try {
 			return JAXBContext.newInstance("io.github.vantiv.sdk.generate");
@@ -28,12 +52,33 @@ public class CnpContext {
 		return new ObjectFactory();
 	}
 
+	/**
+	 * The context covers the whole generated package and is expensive to build, so it is only built on first use
+	 * and then shared by the online, batch and RFR classes.
+	 * @return the shared JAXBContext
+	 */
 	public static JAXBContext getJAXBContext() {
-		return jaxbContext;
+		return JAXBContextHolder.jaxbContext;
 	}
 	
 	public static ObjectFactory getObjectFactory() {
 		return objectFactory;
 	}
+
+	/**
+	 * Marshallers for the online path, borrow one per request and release it once the request is written.
+	 * @return the shared marshaller pool
+	 */
+	public static JAXBObjectPool<Marshaller> getMarshallerPool() {
+		return marshallerPool;
+	}
+
+	/**
+	 * Unmarshallers for the online path, borrow one per response and release it once the response is read.
+	 * @return the shared unmarshaller pool
+	 */
+	public static JAXBObjectPool<Unmarshaller> getUnmarshallerPool() {
+		return unmarshallerPool;
+	}
 	
 }
@@ -0,0 +1,225 @@
+package io.github.vantiv.sdk;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, size and outcome of every online request, per transaction type, for configurations with
+ * metrics=true. Each request is split into phases, so a slow authorization can be told apart as slow marshalling,
+ * a long wait for a pooled connection, a slow TCP and TLS handshake, a slow gateway or slow unmarshalling.
+ *
+ * Metrics can be read with {@link #getTransactionMetrics()}, or every request can be handed to an
+ * {@link Exporter} as it completes, to feed Micrometer, JMX or any other metrics library.
+ */
+public final class CnpMetrics {
+
+    /**
+     * The parts an online request is split into. Phases the transport cannot tell apart are left at 0: only the
+     * Apache transport's blocking requests report CONNECTION_LEASE and CONNECT, otherwise they are part of SERVER.
+     */
+    public enum Phase {
+        /** Marshalling the request, and writing it to the connection when it is streamed */
+        MARSHAL,
+        /** Waiting for a connection from the pool */
+        CONNECTION_LEASE,
+        /** Opening a new connection, TCP and TLS handshakes included */
+        CONNECT,
+        /** From the request being sent until the response headers arrive */
+        SERVER,
+        /** Reading the response body and unmarshalling it */
+        UNMARSHAL,
+        /** The whole request */
+        TOTAL
+    }
+
+    /**
+     * Receives every online request as it completes, on the thread that completed it.
+     */
+    public interface Exporter {
+        void export(Sample sample);
+    }
+
+    /**
+     * One completed online request.
+     */
+    public static final class Sample {
+
+        private final String transactionType;
+        private final long[] phaseNanos;
+        private final long requestBytes;
+        private final long responseBytes;
+        private final String responseCode;
+        private final Throwable failure;
+
+        Sample(String transactionType, long[] phaseNanos, long requestBytes, long responseBytes, String responseCode, Throwable failure) {
+            this.transactionType = transactionType;
+            this.phaseNanos = phaseNanos;
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+            this.responseCode = responseCode;
+            this.failure = failure;
+        }
+
+        /**
+         * @return element name of the transaction, such as authorization
+         */
+        public String getTransactionType() {
+            return transactionType;
+        }
+
+        public long getPhaseNanos(Phase phase) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        public long getRequestBytes() {
+            return requestBytes;
+        }
+
+        public long getResponseBytes() {
+            return responseBytes;
+        }
+
+        /**
+         * @return response attribute of the cnpOnlineResponse, "HTTP " and the status for any status other than
+         * 200, or null when no response was received
+         */
+        public String getResponseCode() {
+            return responseCode;
+        }
+
+        /**
+         * @return what the request failed with, null if it did not
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+    }
+
+    private static final ConcurrentMap<String, TransactionMetrics> transactions = new ConcurrentHashMap<String, TransactionMetrics>();
+    private static final CopyOnWriteArrayList<Exporter> exporters = new CopyOnWriteArrayList<Exporter>();
+
+    private CnpMetrics() {
+    }
+
+    public static void addExporter(Exporter exporter) {
+        exporters.addIfAbsent(exporter);
+    }
+
+    public static void removeExporter(Exporter exporter) {
+        exporters.remove(exporter);
+    }
+
+    /**
+     * @return metrics of every transaction type sent so far, by the element name of the transaction
+     */
+    public static Map<String, TransactionMetrics> getTransactionMetrics() {
+        return Collections.unmodifiableMap(transactions);
+    }
+
+    /**
+     * Forgets everything recorded so far, exporters stay registered.
+     */
+    public static void reset() {
+        transactions.clear();
+    }
+
+    static void record(Sample sample) {
+        transactions.computeIfAbsent(sample.getTransactionType(), TransactionMetrics::new).record(sample);
+        for (Exporter exporter : exporters) {
+            try {
+                exporter.export(sample);
+            }
+            catch (RuntimeException ignored) {
+                // a broken exporter must not fail the transaction
+            }
+        }
+    }
+
+    /**
+     * Metrics of one transaction type. Latencies are in microseconds and sizes in bytes.
+     */
+    public static final class TransactionMetrics {
+
+        private final String transactionType;
+        private final MetricsHistogram[] phases = new MetricsHistogram[Phase.values().length];
+        private final MetricsHistogram requestBytes = new MetricsHistogram();
+        private final MetricsHistogram responseBytes = new MetricsHistogram();
+        private final ConcurrentMap<String, LongAdder> responseCodes = new ConcurrentHashMap<String, LongAdder>();
+        private final ConcurrentMap<String, LongAdder> exceptions = new ConcurrentHashMap<String, LongAdder>();
+
+        TransactionMetrics(String transactionType) {
+            this.transactionType = transactionType;
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new MetricsHistogram();
+            }
+        }
+
+        void record(Sample sample) {
+            for (Phase phase : Phase.values()) {
+                long nanos = sample.getPhaseNanos(phase);
+                if (nanos > 0 || phase == Phase.TOTAL) {
+                    phases[phase.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(nanos));
+                }
+            }
+            requestBytes.record(sample.getRequestBytes());
+            if (sample.getResponseCode() != null) {
+                responseBytes.record(sample.getResponseBytes());
+                responseCodes.computeIfAbsent(sample.getResponseCode(), code -> new LongAdder()).increment();
+            }
+            if (sample.getFailure() != null) {
+                Throwable failure = sample.getFailure();
+                // the SDK wraps what went wrong in a CnpOnlineException, the cause tells more
+                Throwable cause = failure instanceof CnpOnlineException && failure.getCause() != null ? failure.getCause() : failure;
+                exceptions.computeIfAbsent(cause.getClass().getName(), name -> new LongAdder()).increment();
+            }
+        }
+
+        public String getTransactionType() {
+            return transactionType;
+        }
+
+        /**
+         * @return latencies of the phase in microseconds, requests in which the transport did not report the
+         * phase are not counted
+         */
+        public MetricsHistogram.Snapshot getLatency(Phase phase) {
+            return phases[phase.ordinal()].snapshot();
+        }
+
+        public MetricsHistogram.Snapshot getRequestBytes() {
+            return requestBytes.snapshot();
+        }
+
+        public MetricsHistogram.Snapshot getResponseBytes() {
+            return responseBytes.snapshot();
+        }
+
+        /**
+         * @return number of responses by response code, see {@link Sample#getResponseCode()}
+         */
+        public Map<String, Long> getResponseCodeCounts() {
+            return counts(responseCodes);
+        }
+
+        /**
+         * @return number of failed requests by the class name of what they failed with
+         */
+        public Map<String, Long> getExceptionCounts() {
+            return counts(exceptions);
+        }
+
+        private static Map<String, Long> counts(ConcurrentMap<String, LongAdder> adders) {
+            Map<String, Long> counts = new TreeMap<String, Long>();
+            for (Map.Entry<String, LongAdder> entry : adders.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().sum());
+            }
+            return counts;
+        }
+    }
+}
@@ -3,12 +3,18 @@ package io.github.vantiv.sdk;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.net.SocketTimeoutException;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 import javax.xml.bind.JAXBElement;
-import javax.xml.bind.JAXBException;
+
+import org.apache.hc.core5.http.NoHttpResponseException;
 
 import io.github.vantiv.sdk.generate.*;
 import io.github.vantiv.sdk.generate.Void;
@@ -24,7 +30,6 @@ public class CnpOnline {
 	 */
 	public CnpOnline() {
 
-		communication = new Communication();
 		FileInputStream fileInputStream = null;
 
 		try {
@@ -47,19 +52,29 @@ public class CnpOnline {
                 }
 		    }
 		}
+		communication = new Communication(config);
 	}
 
 	public CnpOnline(Properties config) {
 		this.config = config;
-		communication = new Communication();
+		communication = new Communication(config);
 	}
 
     public CnpOnline(Properties config, Boolean removeStubs) {
         this.config = config;
         this.removeStubs = removeStubs;
-        communication = new Communication();
+        communication = new Communication(config);
     }
 
+	/**
+	 * Construct a CnpOnline that sends every request through the given transport instead of the one named by
+	 * the transport property, such as an {@link InMemoryTransport}
+	 */
+	public CnpOnline(Properties config, CnpTransport transport) {
+		this.config = config;
+		communication = new Communication(transport);
+	}
+
 	protected void setCommunication(Communication communication) {
 		this.communication = communication;
 	}
@@ -565,7 +580,7 @@ public class CnpOnline {
         fillInReportGroup(queryTransaction);
 
         request.setTransaction(CnpContext.getObjectFactory().createQueryTransaction(queryTransaction));
-        CnpOnlineResponse response = sendQueryTxnToCnp(request,true);
+        CnpOnlineResponse response = sendQueryTxnToCnp(request);
         JAXBElement<? extends TransactionTypeWithReportGroup> txnTypeWithReportGroup = response.getTransactionResponse();
         return txnTypeWithReportGroup.getValue();
     }
@@ -978,7 +993,7 @@ public class CnpOnline {
         JAXBElement<? extends TransactionTypeWithReportGroup> newresponse = response.getTransactionResponse();
         return (BNPLInquiryResponse)newresponse.getValue();
     }
-	private CnpOnlineRequest createCnpOnlineRequest() {
+	CnpOnlineRequest createCnpOnlineRequest() {
 		CnpOnlineRequest request = new CnpOnlineRequest();
 		request.setMerchantId(config.getProperty("merchantId"));
 		request.setVersion(config.getProperty("version"));
@@ -990,7 +1005,7 @@ public class CnpOnline {
 		return request;
 	}
 
-	private CnpOnlineRequest fillInMissingFieldsFromConfig(CnpOnlineRequest request) {
+	CnpOnlineRequest fillInMissingFieldsFromConfig(CnpOnlineRequest request) {
 		CnpOnlineRequest retVal = new CnpOnlineRequest();
 		retVal.setAuthentication(new Authentication());
 
@@ -1036,141 +1051,159 @@ public class CnpOnline {
 		return retVal;
 	}
 
+	/**
+	 * Opens connections to the configured site(s) and loads the xml binding ahead of the first transaction, so
+	 * that it runs as fast as the ones after it.
+	 * @param connectionsPerSite number of connections to have open to each site
+	 * @return number of new connections opened
+	 */
+	public int warmUp(int connectionsPerSite) {
+		return communication.warmUp(config, connectionsPerSite);
+	}
+
 	private CnpOnlineResponse sendToCnp(CnpOnlineRequest request) throws CnpOnlineException {
+		JfrEvents.OnlineTransaction event = JfrEvents.beginOnlineTransaction();
+		if (event == null) {
+			return sendWithinLimit(request);
+		}
+		CnpOnlineResponse response = null;
+		RuntimeException failure = null;
 		try {
-			StringWriter sw = new StringWriter();
-			CnpContext.getJAXBContext().createMarshaller().marshal(request, sw);
-			String xmlRequest = sw.toString();
+			response = sendWithinLimit(request);
+			return response;
+		} catch (RuntimeException e) {
+			failure = e;
+			throw e;
+		} finally {
+			event.finish(Communication.transactionType(request), response != null ? response.getResponse() : null, failure);
+		}
+	}
 
-			if(this.removeStubs){
-			    xmlRequest = xmlRequest.replaceAll("<[A-Za-z]+\\s*/>", "");
+	private CnpOnlineResponse sendWithinLimit(CnpOnlineRequest request) throws CnpOnlineException {
+		return withinLimit(() -> checkResponse(communication.requestToServer(new CnpRequestEntity(request, removeStubs), config)));
+	}
+
+	private CnpOnlineResponse withinLimit(Supplier<CnpOnlineResponse> send) throws CnpOnlineException {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.instance(config);
+		if (limiter == null) {
+			return send.get();
+		}
+		long start = limiter.acquire();
+		int outcome = ConcurrencyLimiter.IGNORED;
+		try {
+			CnpOnlineResponse response = send.get();
+			outcome = limiterOutcome(response);
+			return response;
+		} catch (CnpOnlineException e) {
+			outcome = limiterOutcome(e);
+			throw e;
+		} finally {
+			limiter.release(start, outcome);
+		}
+	}
+
+	CompletableFuture<CnpOnlineResponse> sendToCnpAsync(CnpOnlineRequest request) {
+		return withinLimitAsync(() -> communication.requestToServerAsync(new CnpRequestEntity(request, removeStubs), config)
+				.thenApply(this::checkResponse));
+	}
+
+	/*
+	 * Async callers are never blocked waiting for the concurrency limit, a request over the limit fails right away
+	 */
+	private CompletableFuture<CnpOnlineResponse> withinLimitAsync(Supplier<CompletableFuture<CnpOnlineResponse>> send) {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.instance(config);
+		try {
+			if (limiter == null) {
+				return send.get();
 			}
-		//	System.out.println("config-------------"+config+"\n\n\n");
-			String xmlResponse = communication.requestToServer(xmlRequest, config);
-			/**
-			 * This was added to accommodate an issue with OpenAccess and possibly VAP where the XML namespace returned
-			 * contains the extra "/online".
-			 * This issue will be fixed for OpenAccess in Jan 2018
-			 */
-			if(xmlResponse.contains("http://www.vantivcnp.com/schema/online")){
-			    xmlResponse = xmlResponse.replace("http://www.vantivcnp.com/schema/online", "http://www.vantivcnp.com/schema");
+			long start = limiter.tryAcquire();
+			CompletableFuture<CnpOnlineResponse> future;
+			try {
+				future = send.get();
+			} catch (CnpOnlineException e) {
+				limiter.release(start, ConcurrencyLimiter.IGNORED);
+				throw e;
 			}
+			return future.whenComplete((response, failure) -> {
+				Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+				limiter.release(start, cause == null ? limiterOutcome(response)
+						: cause instanceof CnpOnlineException ? limiterOutcome((CnpOnlineException) cause) : ConcurrencyLimiter.IGNORED);
+			});
+		} catch (CnpOnlineException e) {
+			CompletableFuture<CnpOnlineResponse> failed = new CompletableFuture<CnpOnlineResponse>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+	}
+
+	/* A response that has not been checked yet can still be a refusal, a query site's for one */
+	private static int limiterOutcome(CnpOnlineResponse response) {
+		return "4".equals(response.getResponse()) ? ConcurrencyLimiter.DROPPED : ConcurrencyLimiter.SUCCESS;
+	}
+
+	/* Refusals and timeouts tell the gateway is overloaded, other failures say nothing about its load */
+	private static int limiterOutcome(CnpOnlineException e) {
+		if (e instanceof CnpConnectionLimitExceededException || e.getCause() instanceof NoHttpResponseException
+				|| e.getCause() instanceof SocketTimeoutException) {
+			return ConcurrencyLimiter.DROPPED;
+		}
+		return ConcurrencyLimiter.IGNORED;
+	}
 
-			CnpOnlineResponse response = (CnpOnlineResponse)CnpContext.getJAXBContext().createUnmarshaller().unmarshal(new StringReader(xmlResponse));
-			// non-zero responses indicate a problem
-			if(!"0".equals(response.getResponse())) {
-				if ("2".equals(response.getResponse()) || "3".equals(response.getResponse())) {
-					throw new CnpInvalidCredentialException(response.getMessage());
-				} else if ("4".equals(response.getResponse())) {
-					throw new CnpConnectionLimitExceededException(response.getMessage());
-				} else if ("5".equals(response.getResponse())) {
-					throw new CnpObjectionableContentException(response.getMessage());
-				} else {
-					throw new CnpOnlineException(response.getMessage());
-				}
+	CnpOnlineResponse checkResponse(CnpOnlineResponse response) throws CnpOnlineException {
+		// non-zero responses indicate a problem
+		if(!"0".equals(response.getResponse())) {
+			if ("2".equals(response.getResponse()) || "3".equals(response.getResponse())) {
+				throw new CnpInvalidCredentialException(response.getMessage());
+			} else if ("4".equals(response.getResponse())) {
+				throw new CnpConnectionLimitExceededException(response.getMessage());
+			} else if ("5".equals(response.getResponse())) {
+				throw new CnpObjectionableContentException(response.getMessage());
+			} else {
+				throw new CnpOnlineException(response.getMessage());
 			}
-			return response;
-		} catch(JAXBException ume) {
-			throw new CnpOnlineException("Error validating xml data against the schema", ume);
-		} finally {
 		}
+		return response;
 	}
 
-    private CnpOnlineResponse sendQueryTxnToCnp(CnpOnlineRequest request, Boolean retrySite) throws CnpOnlineException {
-        String xmlResponse;
-        CnpOnlineResponse response = null;
-        QueryTransactionResponse queryTxnResponse = null;
-        String siteAddress;
-        String altAddress;
+    /*
+     * Asks the sites with blocking requests through the classic connection pool, the one warmUp warms, each of them
+     * within the concurrency limit, and waits no longer than every site taking its full timeout
+     */
+    private CnpOnlineResponse sendQueryTxnToCnp(CnpOnlineRequest request) throws CnpOnlineException {
+        CnpRequestEntity requestEntity = new CnpRequestEntity(request, removeStubs);
+        CompletableFuture<CnpOnlineResponse> query = HedgedQuery.send(HedgedQuery.blocking(
+                url -> withinLimit(() -> communication.requestToServer(requestEntity, config, url))), config);
         try {
-            StringWriter sw = new StringWriter();
-            CnpContext.getJAXBContext().createMarshaller().marshal(request, sw);
-            String xmlRequest = sw.toString();
-
-            if (this.removeStubs) {
-                xmlRequest = xmlRequest.replaceAll("<[A-Za-z]+\\s*/>", "");
-            }
-            //	System.out.println("config-------------"+config+"\n\n\n");
-            if (retrySite)
-                config.setProperty("url", config.getProperty("multiSiteUrl1", config.getProperty("url")));
-            else
-                config.setProperty("url", config.getProperty("multiSiteUrl2", config.getProperty("url")));
-
-            CommManager.reset();
-            xmlResponse = communication.requestToServer(xmlRequest, config);
-            try {
-                if (xmlResponse.contains("queryTransactionResponse")) {
-                    xmlResponse = getSchema(xmlResponse);
-                    response = (CnpOnlineResponse) CnpContext.getJAXBContext().createUnmarshaller().unmarshal(new StringReader(xmlResponse));
-                    queryTxnResponse = (QueryTransactionResponse) response.getTransactionResponse().getValue();
-                    if (queryTxnResponse != null && "151".equals(queryTxnResponse.getResponse())) {
-                        if (!retrySite) {
-                            siteAddress = config.getProperty("multiSiteUrl1") != null ? ". Site unavailable : " + config.getProperty("multiSiteUrl1") : "";
-                            altAddress = config.getProperty("multiSiteUrl2") != null ? " in " + config.getProperty("multiSiteUrl2") : "";
-                            queryTxnResponse.setMessage("Original transaction not found" + altAddress + "" + siteAddress);
-                            response.setResponse(queryTxnResponse.toString());
-                            return response;
-                        } else {
-                            config.setProperty("url", config.getProperty("multiSiteUrl2", config.getProperty("url")));
-                            CommManager.reset();
-                            xmlResponse = communication.requestToServer(xmlRequest, config);
-                        }
-                    }
-                }
-            } catch (CnpOnlineException ex) {
-                siteAddress = config.getProperty("multiSiteUrl2") != null ? ". Site unavailable : " + config.getProperty("multiSiteUrl2") : "";
-                altAddress = config.getProperty("multiSiteUrl1") != null ? " in " + config.getProperty("multiSiteUrl1") : "";
-                queryTxnResponse.setMessage("Original transaction not found" + altAddress + "" + siteAddress);
-                response.setResponse(queryTxnResponse.toString());
-                return response;
+            return checkResponse(query.get(HedgedQuery.maxWaitMillis(config), TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            query.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CnpOnlineException("Interrupted while waiting for the query transaction response", e);
+        } catch (TimeoutException e) {
+            query.cancel(false);
+            throw new CnpOnlineException("Timed out waiting for the query transaction response", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CnpOnlineException) {
+                throw (CnpOnlineException) e.getCause();
             }
-            /**
-             * This was added to accommodate an issue with OpenAccess and possibly VAP where the XML namespace returned
-             * contains the extra "/online".
-             * This issue will be fixed for OpenAccess in Jan 2018
-             */
-            xmlResponse = getSchema(xmlResponse);
-            response = (CnpOnlineResponse) CnpContext.getJAXBContext().createUnmarshaller().unmarshal(new StringReader(xmlResponse));
-            // non-zero responses indicate a problem
-            if (!"0".equals(response.getResponse())) {
-                if ("2".equals(response.getResponse()) || "3".equals(response.getResponse())) {
-                    throw new CnpInvalidCredentialException(response.getMessage());
-                } else if ("4".equals(response.getResponse())) {
-                    throw new CnpConnectionLimitExceededException(response.getMessage());
-                } else if ("5".equals(response.getResponse())) {
-                    throw new CnpObjectionableContentException(response.getMessage());
-                } else {
-                    throw new CnpOnlineException(response.getMessage());
-                }
-            }
-            return response;
-        } catch (JAXBException ume) {
-            throw new CnpOnlineException("Error validating xml data against the schema", ume);
-        } catch (CnpOnlineException ex) {
-            if (retrySite) {
-                response = sendQueryTxnToCnp(request, false);
-                return response;
-            }
-            throw new CnpOnlineException("Original transaction not found - Site/s unavailable");
-        } finally {
+            throw new CnpOnlineException("Exception while querying the transaction", e);
         }
-
     }
 
-    private String getSchema(String xmlResponse) {
-        if (xmlResponse.contains("http://www.vantivcnp.com/schema/online")) {
-            xmlResponse = xmlResponse.replace("http://www.vantivcnp.com/schema/online", "http://www.vantivcnp.com/schema");
-        }
-        return xmlResponse;
+    CompletableFuture<CnpOnlineResponse> sendQueryTxnToCnpAsync(CnpOnlineRequest request) {
+        CnpRequestEntity requestEntity = new CnpRequestEntity(request, removeStubs);
+        return HedgedQuery.send(url -> withinLimitAsync(() -> communication.requestToServerAsync(requestEntity, config, url)), config)
+                .thenApply(this::checkResponse);
     }
 
-    private void fillInReportGroup(TransactionTypeWithReportGroup txn) {
+    void fillInReportGroup(TransactionTypeWithReportGroup txn) {
 		if(txn.getReportGroup() == null) {
 			txn.setReportGroup(config.getProperty("reportGroup"));
 		}
 	}
 
-	private void fillInReportGroup(TransactionTypeWithReportGroupAndPartial txn) {
+	void fillInReportGroup(TransactionTypeWithReportGroupAndPartial txn) {
 		if(txn.getReportGroup() == null) {
 			txn.setReportGroup(config.getProperty("reportGroup"));
 		}
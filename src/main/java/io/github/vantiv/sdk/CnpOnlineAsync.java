@@ -0,0 +1,757 @@
+package io.github.vantiv.sdk;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import io.github.vantiv.sdk.generate.*;
+import io.github.vantiv.sdk.generate.Void;
+
+/**
+ * A non-blocking counterpart of {@link CnpOnline}. Every transaction is sent on the async path of the transport
+ * and the returned future completes with the transaction response, or exceptionally with a
+ * CnpOnlineException, without tying up the calling thread while the request is in flight.
+ */
+public class CnpOnlineAsync {
+
+	private final CnpOnline cnpOnline;
+
+	/**
+	 * Construct a CnpOnlineAsync using the configuration specified in $HOME/.cnp_SDK_config.properties
+	 */
+	public CnpOnlineAsync() {
+		cnpOnline = new CnpOnline();
+	}
+
+	public CnpOnlineAsync(Properties config) {
+		cnpOnline = new CnpOnline(config);
+	}
+
+	public CnpOnlineAsync(Properties config, Boolean removeStubs) {
+		cnpOnline = new CnpOnline(config, removeStubs);
+	}
+
+	public CnpOnlineAsync(Properties config, CnpTransport transport) {
+		cnpOnline = new CnpOnline(config, transport);
+	}
+
+	protected void setCommunication(Communication communication) {
+		cnpOnline.setCommunication(communication);
+	}
+
+	public CompletableFuture<AuthorizationResponse> authorize(Authorization auth) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return authorize(auth, request);
+	}
+
+	public CompletableFuture<AuthorizationResponse> authorize(Authorization auth, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(auth);
+		request.setTransaction(CnpContext.getObjectFactory().createAuthorization(auth));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (AuthorizationResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<AuthReversalResponse> authReversal(AuthReversal reversal) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return authReversal(reversal, request);
+	}
+
+	public CompletableFuture<AuthReversalResponse> authReversal(AuthReversal reversal, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(reversal);
+		request.setTransaction(CnpContext.getObjectFactory().createAuthReversal(reversal));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (AuthReversalResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<CaptureResponse> capture(Capture capture) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return capture(capture, request);
+	}
+
+	public CompletableFuture<CaptureResponse> capture(Capture capture, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(capture);
+		request.setTransaction(CnpContext.getObjectFactory().createCapture(capture));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (CaptureResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<CaptureGivenAuthResponse> captureGivenAuth(CaptureGivenAuth captureGivenAuth) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return captureGivenAuth(captureGivenAuth, request);
+	}
+
+	public CompletableFuture<CaptureGivenAuthResponse> captureGivenAuth(CaptureGivenAuth captureGivenAuth, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(captureGivenAuth);
+		request.setTransaction(CnpContext.getObjectFactory().createCaptureGivenAuth(captureGivenAuth));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (CaptureGivenAuthResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<CreditResponse> credit(Credit credit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return credit(credit, request);
+	}
+
+	public CompletableFuture<CreditResponse> credit(Credit credit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(credit);
+		request.setTransaction(CnpContext.getObjectFactory().createCredit(credit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (CreditResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<EcheckCreditResponse> echeckCredit(EcheckCredit echeckcredit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return echeckCredit(echeckcredit, request);
+	}
+
+	public CompletableFuture<EcheckCreditResponse> echeckCredit(EcheckCredit echeckcredit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(echeckcredit);
+		request.setTransaction(CnpContext.getObjectFactory().createEcheckCredit(echeckcredit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (EcheckCreditResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<EcheckRedepositResponse> echeckRedeposit(EcheckRedeposit echeckRedeposit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return echeckRedeposit(echeckRedeposit, request);
+	}
+
+	public CompletableFuture<EcheckRedepositResponse> echeckRedeposit(EcheckRedeposit echeckRedeposit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(echeckRedeposit);
+		request.setTransaction(CnpContext.getObjectFactory().createEcheckRedeposit(echeckRedeposit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (EcheckRedepositResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<EcheckSalesResponse> echeckSale(EcheckSale echeckSale) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return echeckSale(echeckSale, request);
+	}
+
+	public CompletableFuture<EcheckSalesResponse> echeckSale(EcheckSale echeckSale, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(echeckSale);
+		request.setTransaction(CnpContext.getObjectFactory().createEcheckSale(echeckSale));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (EcheckSalesResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<EcheckVerificationResponse> echeckVerification(EcheckVerification echeckVerification) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return echeckVerification(echeckVerification, request);
+	}
+
+	public CompletableFuture<EcheckVerificationResponse> echeckVerification(EcheckVerification echeckVerification, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(echeckVerification);
+		request.setTransaction(CnpContext.getObjectFactory().createEcheckVerification(echeckVerification));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (EcheckVerificationResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<ForceCaptureResponse> forceCapture(ForceCapture forceCapture) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return forceCapture(forceCapture, request);
+	}
+
+	public CompletableFuture<ForceCaptureResponse> forceCapture(ForceCapture forceCapture, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(forceCapture);
+		request.setTransaction(CnpContext.getObjectFactory().createForceCapture(forceCapture));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (ForceCaptureResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<SaleResponse> sale(Sale sale) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return sale(sale, request);
+	}
+
+	public CompletableFuture<SaleResponse> sale(Sale sale, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(sale);
+		request.setTransaction(CnpContext.getObjectFactory().createSale(sale));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (SaleResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<FraudCheckResponse> fraudCheck(FraudCheck fraudCheck) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return fraudCheck(fraudCheck, request);
+	}
+
+	public CompletableFuture<FraudCheckResponse> fraudCheck(FraudCheck fraudCheck, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(fraudCheck);
+		request.setTransaction(CnpContext.getObjectFactory().createFraudCheck(fraudCheck));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (FraudCheckResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<RegisterTokenResponse> registerToken(RegisterTokenRequestType tokenRequest) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return registerToken(tokenRequest, request);
+	}
+
+	public CompletableFuture<RegisterTokenResponse> registerToken(RegisterTokenRequestType tokenRequest, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(tokenRequest);
+		request.setTransaction(CnpContext.getObjectFactory().createRegisterTokenRequest(tokenRequest));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (RegisterTokenResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<VoidResponse> dovoid(Void v) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return dovoid(v, request);
+	}
+
+	public CompletableFuture<VoidResponse> dovoid(Void v, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(v);
+		request.setTransaction(CnpContext.getObjectFactory().createVoid(v));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (VoidResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<EcheckVoidResponse> echeckVoid(EcheckVoid echeckVoid) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return echeckVoid(echeckVoid, request);
+	}
+
+	public CompletableFuture<EcheckVoidResponse> echeckVoid(EcheckVoid echeckVoid, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(echeckVoid);
+		request.setTransaction(CnpContext.getObjectFactory().createEcheckVoid(echeckVoid));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (EcheckVoidResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<UpdateCardValidationNumOnTokenResponse> updateCardValidationNumOnToken(UpdateCardValidationNumOnToken update) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return updateCardValidationNumOnToken(update, request);
+	}
+
+	public CompletableFuture<UpdateCardValidationNumOnTokenResponse> updateCardValidationNumOnToken(UpdateCardValidationNumOnToken update, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(update);
+		request.setTransaction(CnpContext.getObjectFactory().createUpdateCardValidationNumOnToken(update));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (UpdateCardValidationNumOnTokenResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<CancelSubscriptionResponse> cancelSubscription(CancelSubscription cancellation) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return cancelSubscription(cancellation, request);
+	}
+
+	public CompletableFuture<CancelSubscriptionResponse> cancelSubscription(CancelSubscription cancellation, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		request.setRecurringTransaction(CnpContext.getObjectFactory().createCancelSubscription(cancellation));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (CancelSubscriptionResponse) response.getRecurringTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<UpdateSubscriptionResponse> updateSubscription(UpdateSubscription update) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return updateSubscription(update, request);
+	}
+
+	public CompletableFuture<UpdateSubscriptionResponse> updateSubscription(UpdateSubscription update, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		request.setRecurringTransaction(CnpContext.getObjectFactory().createUpdateSubscription(update));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (UpdateSubscriptionResponse) response.getRecurringTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<CreatePlanResponse> createPlan(CreatePlan create) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return createPlan(create, request);
+	}
+
+	public CompletableFuture<CreatePlanResponse> createPlan(CreatePlan create, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		request.setRecurringTransaction(CnpContext.getObjectFactory().createCreatePlan(create));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (CreatePlanResponse) response.getRecurringTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<UpdatePlanResponse> updatePlan(UpdatePlan update) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return updatePlan(update, request);
+	}
+
+	public CompletableFuture<UpdatePlanResponse> updatePlan(UpdatePlan update, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		request.setRecurringTransaction(CnpContext.getObjectFactory().createUpdatePlan(update));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (UpdatePlanResponse) response.getRecurringTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<ActivateResponse> activate(Activate activate) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return activate(activate, request);
+	}
+
+	public CompletableFuture<ActivateResponse> activate(Activate activate, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(activate);
+		request.setTransaction(CnpContext.getObjectFactory().createActivate(activate));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (ActivateResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<DeactivateResponse> deactivate(Deactivate deactivate) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return deactivate(deactivate, request);
+	}
+
+	public CompletableFuture<DeactivateResponse> deactivate(Deactivate deactivate, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(deactivate);
+		request.setTransaction(CnpContext.getObjectFactory().createDeactivate(deactivate));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (DeactivateResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<LoadResponse> load(Load load) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return load(load, request);
+	}
+
+	public CompletableFuture<LoadResponse> load(Load load, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(load);
+		request.setTransaction(CnpContext.getObjectFactory().createLoad(load));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (LoadResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<UnloadResponse> unload(Unload unload) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return unload(unload, request);
+	}
+
+	public CompletableFuture<UnloadResponse> unload(Unload unload, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(unload);
+		request.setTransaction(CnpContext.getObjectFactory().createUnload(unload));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (UnloadResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<BalanceInquiryResponse> balanceInquiry(BalanceInquiry balanceInquiry) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return balanceInquiry(balanceInquiry, request);
+	}
+
+	public CompletableFuture<BalanceInquiryResponse> balanceInquiry(BalanceInquiry balanceInquiry, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(balanceInquiry);
+		request.setTransaction(CnpContext.getObjectFactory().createBalanceInquiry(balanceInquiry));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (BalanceInquiryResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<ActivateReversalResponse> activateReversal(ActivateReversal activateReversal) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return activateReversal(activateReversal, request);
+	}
+
+	public CompletableFuture<ActivateReversalResponse> activateReversal(ActivateReversal activateReversal, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(activateReversal);
+		request.setTransaction(CnpContext.getObjectFactory().createActivateReversal(activateReversal));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (ActivateReversalResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<DeactivateReversalResponse> deactivateReversal(DeactivateReversal deactivateReversal) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return deactivateReversal(deactivateReversal, request);
+	}
+
+	public CompletableFuture<DeactivateReversalResponse> deactivateReversal(DeactivateReversal deactivateReversal, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(deactivateReversal);
+		request.setTransaction(CnpContext.getObjectFactory().createDeactivateReversal(deactivateReversal));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (DeactivateReversalResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<LoadReversalResponse> loadReversal(LoadReversal loadReversal) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return loadReversal(loadReversal, request);
+	}
+
+	public CompletableFuture<LoadReversalResponse> loadReversal(LoadReversal loadReversal, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(loadReversal);
+		request.setTransaction(CnpContext.getObjectFactory().createLoadReversal(loadReversal));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (LoadReversalResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<UnloadReversalResponse> unloadReversal(UnloadReversal unloadReversal) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return unloadReversal(unloadReversal, request);
+	}
+
+	public CompletableFuture<UnloadReversalResponse> unloadReversal(UnloadReversal unloadReversal, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(unloadReversal);
+		request.setTransaction(CnpContext.getObjectFactory().createUnloadReversal(unloadReversal));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (UnloadReversalResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<RefundReversalResponse> refundReversal(RefundReversal refundReversal) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return refundReversal(refundReversal, request);
+	}
+
+	public CompletableFuture<RefundReversalResponse> refundReversal(RefundReversal refundReversal, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(refundReversal);
+		request.setTransaction(CnpContext.getObjectFactory().createRefundReversal(refundReversal));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (RefundReversalResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<DepositReversalResponse> depositReversal(DepositReversal depositReversal) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return depositReversal(depositReversal, request);
+	}
+
+	public CompletableFuture<DepositReversalResponse> depositReversal(DepositReversal depositReversal, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(depositReversal);
+		request.setTransaction(CnpContext.getObjectFactory().createDepositReversal(depositReversal));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (DepositReversalResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<DepositTransactionReversalResponse> depositTransactionReversal(DepositTransactionReversal depositTransactionReversal) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return depositTransactionReversal(depositTransactionReversal, request);
+	}
+
+	public CompletableFuture<DepositTransactionReversalResponse> depositTransactionReversal(DepositTransactionReversal depositTransactionReversal, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(depositTransactionReversal);
+		request.setTransaction(CnpContext.getObjectFactory().createDepositTransactionReversal(depositTransactionReversal));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (DepositTransactionReversalResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<RefundTransactionReversalResponse> refundTransactionReversal(RefundTransactionReversal transactionReversal) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return refundTransactionReversal(transactionReversal, request);
+	}
+
+	public CompletableFuture<RefundTransactionReversalResponse> refundTransactionReversal(RefundTransactionReversal transactionReversal, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(transactionReversal);
+		request.setTransaction(CnpContext.getObjectFactory().createRefundTransactionReversal(transactionReversal));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (RefundTransactionReversalResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<TransactionTypeWithReportGroup> queryTransaction(QueryTransaction queryTransaction) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return queryTransaction(queryTransaction, request);
+	}
+
+	public CompletableFuture<TransactionTypeWithReportGroup> queryTransaction(QueryTransaction queryTransaction, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(queryTransaction);
+		request.setTransaction(CnpContext.getObjectFactory().createQueryTransaction(queryTransaction));
+		return cnpOnline.sendQueryTxnToCnpAsync(request).thenApply(response -> response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<GiftCardCaptureResponse> giftCardCapture(GiftCardCapture giftCardCapture) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return giftCardCapture(giftCardCapture, request);
+	}
+
+	public CompletableFuture<GiftCardCaptureResponse> giftCardCapture(GiftCardCapture giftCardCapture, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(giftCardCapture);
+		request.setTransaction(CnpContext.getObjectFactory().createGiftCardCapture(giftCardCapture));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (GiftCardCaptureResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<GiftCardAuthReversalResponse> giftCardAuthReversal(GiftCardAuthReversal giftCardAuthReversal) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return giftCardAuthReversal(giftCardAuthReversal, request);
+	}
+
+	public CompletableFuture<GiftCardAuthReversalResponse> giftCardAuthReversal(GiftCardAuthReversal giftCardAuthReversal, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(giftCardAuthReversal);
+		request.setTransaction(CnpContext.getObjectFactory().createGiftCardAuthReversal(giftCardAuthReversal));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (GiftCardAuthReversalResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<GiftCardCreditResponse> giftCardCredit(GiftCardCredit giftCardCredit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return giftCardCredit(giftCardCredit, request);
+	}
+
+	public CompletableFuture<GiftCardCreditResponse> giftCardCredit(GiftCardCredit giftCardCredit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(giftCardCredit);
+		request.setTransaction(CnpContext.getObjectFactory().createGiftCardCredit(giftCardCredit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (GiftCardCreditResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<PayFacCreditResponse> payFacCredit(PayFacCredit payFacCredit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return payFacCredit(payFacCredit, request);
+	}
+
+	public CompletableFuture<PayFacCreditResponse> payFacCredit(PayFacCredit payFacCredit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(payFacCredit);
+		request.setTransaction(CnpContext.getObjectFactory().createPayFacCredit(payFacCredit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (PayFacCreditResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<PayFacDebitResponse> payFacDebit(PayFacDebit payFacDebit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return payFacDebit(payFacDebit, request);
+	}
+
+	public CompletableFuture<PayFacDebitResponse> payFacDebit(PayFacDebit payFacDebit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(payFacDebit);
+		request.setTransaction(CnpContext.getObjectFactory().createPayFacDebit(payFacDebit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (PayFacDebitResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<SubmerchantCreditResponse> submerchantCredit(SubmerchantCredit submerchantCredit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return submerchantCredit(submerchantCredit, request);
+	}
+
+	public CompletableFuture<SubmerchantCreditResponse> submerchantCredit(SubmerchantCredit submerchantCredit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(submerchantCredit);
+		request.setTransaction(CnpContext.getObjectFactory().createSubmerchantCredit(submerchantCredit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (SubmerchantCreditResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<SubmerchantDebitResponse> submerchantDebit(SubmerchantDebit submerchantDebit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return submerchantDebit(submerchantDebit, request);
+	}
+
+	public CompletableFuture<SubmerchantDebitResponse> submerchantDebit(SubmerchantDebit submerchantDebit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(submerchantDebit);
+		request.setTransaction(CnpContext.getObjectFactory().createSubmerchantDebit(submerchantDebit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (SubmerchantDebitResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<ReserveCreditResponse> reserveCredit(ReserveCredit reserveCredit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return reserveCredit(reserveCredit, request);
+	}
+
+	public CompletableFuture<ReserveCreditResponse> reserveCredit(ReserveCredit reserveCredit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(reserveCredit);
+		request.setTransaction(CnpContext.getObjectFactory().createReserveCredit(reserveCredit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (ReserveCreditResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<ReserveDebitResponse> reserveDebit(ReserveDebit reserveDebit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return reserveDebit(reserveDebit, request);
+	}
+
+	public CompletableFuture<ReserveDebitResponse> reserveDebit(ReserveDebit reserveDebit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(reserveDebit);
+		request.setTransaction(CnpContext.getObjectFactory().createReserveDebit(reserveDebit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (ReserveDebitResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<FundingInstructionVoidResponse> fundingInstructionVoid(FundingInstructionVoid fundingInstructionVoid) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return fundingInstructionVoid(fundingInstructionVoid, request);
+	}
+
+	public CompletableFuture<FundingInstructionVoidResponse> fundingInstructionVoid(FundingInstructionVoid fundingInstructionVoid, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(fundingInstructionVoid);
+		request.setTransaction(CnpContext.getObjectFactory().createFundingInstructionVoid(fundingInstructionVoid));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (FundingInstructionVoidResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<VendorCreditResponse> vendorCredit(VendorCredit vendorCredit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return vendorCredit(vendorCredit, request);
+	}
+
+	public CompletableFuture<VendorCreditResponse> vendorCredit(VendorCredit vendorCredit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(vendorCredit);
+		request.setTransaction(CnpContext.getObjectFactory().createVendorCredit(vendorCredit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (VendorCreditResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<VendorDebitResponse> vendorDebit(VendorDebit vendorDebit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return vendorDebit(vendorDebit, request);
+	}
+
+	public CompletableFuture<VendorDebitResponse> vendorDebit(VendorDebit vendorDebit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(vendorDebit);
+		request.setTransaction(CnpContext.getObjectFactory().createVendorDebit(vendorDebit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (VendorDebitResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<PhysicalCheckCreditResponse> physicalCheckCredit(PhysicalCheckCredit physicalCheckCredit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return physicalCheckCredit(physicalCheckCredit, request);
+	}
+
+	public CompletableFuture<PhysicalCheckCreditResponse> physicalCheckCredit(PhysicalCheckCredit physicalCheckCredit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(physicalCheckCredit);
+		request.setTransaction(CnpContext.getObjectFactory().createPhysicalCheckCredit(physicalCheckCredit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (PhysicalCheckCreditResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<PhysicalCheckDebitResponse> physicalCheckDebit(PhysicalCheckDebit physicalCheckDebit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return physicalCheckDebit(physicalCheckDebit, request);
+	}
+
+	public CompletableFuture<PhysicalCheckDebitResponse> physicalCheckDebit(PhysicalCheckDebit physicalCheckDebit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(physicalCheckDebit);
+		request.setTransaction(CnpContext.getObjectFactory().createPhysicalCheckDebit(physicalCheckDebit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (PhysicalCheckDebitResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<FastAccessFundingResponse> fastAccessFunding(FastAccessFunding fastAccessFunding) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return fastAccessFunding(fastAccessFunding, request);
+	}
+
+	public CompletableFuture<FastAccessFundingResponse> fastAccessFunding(FastAccessFunding fastAccessFunding, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(fastAccessFunding);
+		request.setTransaction(CnpContext.getObjectFactory().createFastAccessFunding(fastAccessFunding));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (FastAccessFundingResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<CustomerCreditResponse> customerCredit(CustomerCredit customerCredit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return customerCredit(customerCredit, request);
+	}
+
+	public CompletableFuture<CustomerCreditResponse> customerCredit(CustomerCredit customerCredit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(customerCredit);
+		request.setTransaction(CnpContext.getObjectFactory().createCustomerCredit(customerCredit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (CustomerCreditResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<CustomerDebitResponse> customerDebit(CustomerDebit customerDebit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return customerDebit(customerDebit, request);
+	}
+
+	public CompletableFuture<CustomerDebitResponse> customerDebit(CustomerDebit customerDebit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(customerDebit);
+		request.setTransaction(CnpContext.getObjectFactory().createCustomerDebit(customerDebit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (CustomerDebitResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<PayoutOrgCreditResponse> payoutOrgCredit(PayoutOrgCredit payoutOrgCredit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return payoutOrgCredit(payoutOrgCredit, request);
+	}
+
+	public CompletableFuture<PayoutOrgCreditResponse> payoutOrgCredit(PayoutOrgCredit payoutOrgCredit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(payoutOrgCredit);
+		request.setTransaction(CnpContext.getObjectFactory().createPayoutOrgCredit(payoutOrgCredit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (PayoutOrgCreditResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<PayoutOrgDebitResponse> payoutOrgDebit(PayoutOrgDebit payoutOrgDebit) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return payoutOrgDebit(payoutOrgDebit, request);
+	}
+
+	public CompletableFuture<PayoutOrgDebitResponse> payoutOrgDebit(PayoutOrgDebit payoutOrgDebit, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(payoutOrgDebit);
+		request.setTransaction(CnpContext.getObjectFactory().createPayoutOrgDebit(payoutOrgDebit));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (PayoutOrgDebitResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<FinicityUrlResponse> finicityUrl(FinicityUrlRequest finicityUrl) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return finicityUrl(finicityUrl, request);
+	}
+
+	public CompletableFuture<FinicityUrlResponse> finicityUrl(FinicityUrlRequest finicityUrl, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(finicityUrl);
+		request.setTransaction(CnpContext.getObjectFactory().createFinicityUrlRequest(finicityUrl));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (FinicityUrlResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<FinicityAccountResponse> finicityAccount(FinicityAccountRequest finicityAccount) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return finicityAccount(finicityAccount, request);
+	}
+
+	public CompletableFuture<FinicityAccountResponse> finicityAccount(FinicityAccountRequest finicityAccount, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(finicityAccount);
+		request.setTransaction(CnpContext.getObjectFactory().createFinicityAccountRequest(finicityAccount));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (FinicityAccountResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<BNPLAuthResponse> bnplAuth(BNPLAuthorizationRequest bnplAuth) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return bnplAuth(bnplAuth, request);
+	}
+
+	public CompletableFuture<BNPLAuthResponse> bnplAuth(BNPLAuthorizationRequest bnplAuth, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(bnplAuth);
+		request.setTransaction(CnpContext.getObjectFactory().createBNPLAuthorizationRequest(bnplAuth));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (BNPLAuthResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<BNPLCaptureResponse> bnplCapture(BNPLCaptureRequest bnplCapture) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return bnplCapture(bnplCapture, request);
+	}
+
+	public CompletableFuture<BNPLCaptureResponse> bnplCapture(BNPLCaptureRequest bnplCapture, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(bnplCapture);
+		request.setTransaction(CnpContext.getObjectFactory().createBNPLCaptureRequest(bnplCapture));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (BNPLCaptureResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<BNPLRefundResponse> bnplRefund(BNPLRefundRequest bnplRefund) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return bnplRefund(bnplRefund, request);
+	}
+
+	public CompletableFuture<BNPLRefundResponse> bnplRefund(BNPLRefundRequest bnplRefund, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(bnplRefund);
+		request.setTransaction(CnpContext.getObjectFactory().createBNPLRefundRequest(bnplRefund));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (BNPLRefundResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<BNPLCancelResponse> bnplCancle(BNPLCancelRequest bnplCancle) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return bnplCancle(bnplCancle, request);
+	}
+
+	public CompletableFuture<BNPLCancelResponse> bnplCancle(BNPLCancelRequest bnplCancle, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(bnplCancle);
+		request.setTransaction(CnpContext.getObjectFactory().createBNPLCancelRequest(bnplCancle));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (BNPLCancelResponse) response.getTransactionResponse().getValue());
+	}
+
+	public CompletableFuture<BNPLInquiryResponse> bnplInquiry(BNPLInquiryRequest bnplInquiry) {
+		CnpOnlineRequest request = cnpOnline.createCnpOnlineRequest();
+		return bnplInquiry(bnplInquiry, request);
+	}
+
+	public CompletableFuture<BNPLInquiryResponse> bnplInquiry(BNPLInquiryRequest bnplInquiry, CnpOnlineRequest overrides) {
+		CnpOnlineRequest request = cnpOnline.fillInMissingFieldsFromConfig(overrides);
+		cnpOnline.fillInReportGroup(bnplInquiry);
+		request.setTransaction(CnpContext.getObjectFactory().createBNPLInquiryRequest(bnplInquiry));
+		return cnpOnline.sendToCnpAsync(request).thenApply(response -> (BNPLInquiryResponse) response.getTransactionResponse().getValue());
+	}
+
+}
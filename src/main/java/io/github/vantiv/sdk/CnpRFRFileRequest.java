@@ -52,7 +52,7 @@ public class CnpRFRFileRequest {
 
     public void initializeMembers(String requestFileName, Properties in_properties) throws CnpBatchException{
         try {
-            this.jc = JAXBContext.newInstance("io.github.vantiv.sdk.generate");
+            this.jc = CnpContext.getJAXBContext();
             if(config == null){
                 config = new Configuration();
             }
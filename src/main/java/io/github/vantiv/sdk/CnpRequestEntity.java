@@ -0,0 +1,215 @@
+package io.github.vantiv.sdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+
+import io.github.vantiv.sdk.generate.CnpOnlineRequest;
+
+/**
+ * An HttpEntity that marshals a CnpOnlineRequest straight into the connection's output stream as UTF-8 bytes,
+ * instead of building the request xml as a String first. The entity is repeatable, the request is marshalled
+ * again every time it is written. Its length is not known up front, so the transports marshal it into a buffer
+ * and send that with a Content-Length.
+ */
+public class CnpRequestEntity extends AbstractHttpEntity {
+
+    public static final ContentType CONTENT_TYPE = ContentType.create("text/xml", StandardCharsets.UTF_8);
+
+    private final CnpOnlineRequest request;
+    private final boolean removeStubs;
+
+    /**
+     * @param request     request to be marshalled
+     * @param removeStubs whether empty elements without attributes, such as {@code <card/>}, are dropped while writing
+     */
+    public CnpRequestEntity(CnpOnlineRequest request, boolean removeStubs) {
+        super(CONTENT_TYPE, null, true);
+        this.request = request;
+        this.removeStubs = removeStubs;
+    }
+
+    public CnpOnlineRequest getRequest() {
+        return request;
+    }
+
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    public long getContentLength() {
+        return -1;
+    }
+
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    public void writeTo(OutputStream outStream) throws IOException {
+        StubRemovingOutputStream stubRemovingStream = null;
+        OutputStream out = outStream;
+        if (removeStubs) {
+            stubRemovingStream = new StubRemovingOutputStream(outStream);
+            out = stubRemovingStream;
+        }
+        // marshalling through a Writer keeps the xml byte for byte the same as the String it used to be built as
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        JAXBObjectPool<Marshaller> marshallerPool = CnpContext.getMarshallerPool();
+        Marshaller marshaller = null;
+        try {
+            marshaller = marshallerPool.borrow();
+            marshaller.marshal(request, writer);
+        } catch (JAXBException ume) {
+            throw new CnpOnlineException("Error validating xml data against the schema", ume);
+        } finally {
+            marshallerPool.release(marshaller);
+        }
+        writer.flush();
+        if (stubRemovingStream != null) {
+            stubRemovingStream.finish();
+        }
+        out.flush();
+    }
+
+    public boolean isStreaming() {
+        return false;
+    }
+
+    public void close() {
+    }
+
+    /**
+     * Drops empty elements without attributes, such as {@code <card/>} or {@code <card />}, matching what the
+     * removeStubs regex used to strip from the request String. Bytes that may still turn out to be part of a stub
+     * are held back until the stub is either complete, and dropped, or ruled out, and written through.
+     */
+    static class StubRemovingOutputStream extends FilterOutputStream {
+
+        private static final int TEXT = 0;
+        private static final int OPEN = 1;
+        private static final int NAME = 2;
+        private static final int SPACE = 3;
+        private static final int SLASH = 4;
+
+        private byte[] pending = new byte[64];
+        private int pendingLength = 0;
+        private int state = TEXT;
+
+        StubRemovingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        public void write(int b) throws IOException {
+            switch (state) {
+                case OPEN:
+                    if (isLetter(b)) {
+                        hold(b, NAME);
+                        return;
+                    }
+                    break;
+                case NAME:
+                    if (isLetter(b)) {
+                        hold(b, NAME);
+                        return;
+                    }
+                    if (isSpace(b)) {
+                        hold(b, SPACE);
+                        return;
+                    }
+                    if (b == '/') {
+                        hold(b, SLASH);
+                        return;
+                    }
+                    break;
+                case SPACE:
+                    if (isSpace(b)) {
+                        hold(b, SPACE);
+                        return;
+                    }
+                    if (b == '/') {
+                        hold(b, SLASH);
+                        return;
+                    }
+                    break;
+                case SLASH:
+                    if (b == '>') {
+                        pendingLength = 0;
+                        state = TEXT;
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            // not (or no longer) a stub, release what was held back and start over with this byte
+            releasePending();
+            if (b == '<') {
+                hold(b, OPEN);
+            } else {
+                out.write(b);
+            }
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            int end = off + len;
+            int runStart = off;
+            for (int i = off; i < end; i++) {
+                if (state == TEXT && b[i] != '<') {
+                    continue;
+                }
+                if (i > runStart) {
+                    out.write(b, runStart, i - runStart);
+                }
+                write(b[i]);
+                runStart = i + 1;
+            }
+            if (end > runStart) {
+                out.write(b, runStart, end - runStart);
+            }
+        }
+
+        /* Writes out anything still held back, the end of the document cannot be inside a stub */
+        void finish() throws IOException {
+            releasePending();
+        }
+
+        private void hold(int b, int nextState) {
+            if (pendingLength == pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            pending[pendingLength++] = (byte) b;
+            state = nextState;
+        }
+
+        private void releasePending() throws IOException {
+            if (pendingLength > 0) {
+                out.write(pending, 0, pendingLength);
+                pendingLength = 0;
+            }
+            state = TEXT;
+        }
+
+        private static boolean isLetter(int b) {
+            return (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z');
+        }
+
+        private static boolean isSpace(int b) {
+            return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+        }
+    }
+}
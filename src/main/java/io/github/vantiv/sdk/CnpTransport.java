@@ -0,0 +1,79 @@
+package io.github.vantiv.sdk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Moves the xml of an online request to a url and the xml of the response back. Communication picks the url,
+ * prints, marshals and unmarshals the xml and reports results for multi-site failover, a transport only does
+ * the http exchange.
+ *
+ * The transport is picked with the transport property: apache (default) for {@link ApacheHttpTransport}, jdk
+ * for {@code JdkHttpTransport} on Java 11 and later, or the name of any class implementing this interface with a
+ * public constructor taking the configuration Properties. {@link InMemoryTransport} is handed to Communication
+ * directly.
+ */
+public interface CnpTransport {
+
+    /**
+     * Body of a request, which may be written more than once.
+     */
+    interface RequestBody {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Response to a request. Closing it releases the connection it was read from.
+     */
+    interface Response extends Closeable {
+        int getStatusCode();
+
+        String getReasonPhrase();
+
+        /**
+         * @return value of the Content-Type header, or null when there was none
+         */
+        String getContentType();
+
+        InputStream getBody() throws IOException;
+    }
+
+    /**
+     * Sends the request and waits for the response.
+     * @param url           url to post the request to
+     * @param body          request body
+     * @param contentType   value of the Content-Type header
+     * @param configuration configuration Properties to use for processing
+     * @return response, which the caller must close
+     * @throws IOException when the request could not be sent or no response was received. A
+     * {@link org.apache.hc.core5.http.NoHttpResponseException} tells that the site did not answer in time.
+     */
+    Response send(String url, RequestBody body, String contentType, Properties configuration) throws IOException;
+
+    /**
+     * Sends the request without blocking the calling thread.
+     * @param url           url to post the request to
+     * @param body          request body
+     * @param contentType   value of the Content-Type header
+     * @param configuration configuration Properties to use for processing
+     * @return future response with its body already read, completed exceptionally the same way send throws.
+     * Cancelling it abandons the exchange.
+     */
+    CompletableFuture<Response> sendAsync(String url, byte[] body, String contentType, Properties configuration);
+
+    /**
+     * Opens connections ahead of the first request, transports without a connection pool have nothing to do.
+     * @param urls               urls of every site requests may be sent to
+     * @param connectionsPerSite number of connections to have open to each site
+     * @return number of new connections opened
+     * @throws IOException when a site could not be connected to
+     */
+    default int warmUp(List<String> urls, int connectionsPerSite) throws IOException {
+        return 0;
+    }
+}
@@ -6,59 +6,126 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Picks the url each online request is sent to and fails over between the multi-site urls when one of them
+ * keeps failing. There is one manager per distinct url configuration, so merchants configured differently in
+ * the same JVM keep independent failover state.
+ *
+ * Every multi-site url has its own {@link SiteCircuitBreaker}. Requests stay on the current site while its
+ * breaker allows them and move to the next site whose breaker does as soon as it opens, and an open site is
+ * only tried again with a single probe request once multiSiteOpenMillis have passed.
+ *
+ * Any number of sites can be configured as multiSiteUrl1, multiSiteUrl2, ... and multiSiteRouting picks how
+ * requests are spread across them:
+ * <ul>
+ * <li>failover (default) sends everything to one site and moves on only when it fails, or after
+ * maxHoursWithoutSwitch.</li>
+ * <li>fastest sends every request to the healthy site with the lowest EWMA latency and error rate.</li>
+ * <li>p2c picks two healthy sites at random and sends the request to the better one of the two, spreading
+ * load across all sites while steering it away from slow ones.</li>
+ * </ul>
+ * The latency averages of a site decay while it gets no traffic, so fastest also goes back to a site that
+ * was slow a while ago to see whether it has recovered.
+ *
+ * In failover mode the current site is an immutable snapshot held in an AtomicReference. Requests read it
+ * without locking and a switch replaces it with compare-and-set, so only one thread performs any given switch.
+ */
 public class CommManager {
 
     public final static int REQUEST_RESULT_RESPONSE_RECEIVED = 1;
     public final static int REQUEST_RESULT_CONNECTION_FAILED = 2;
     public final static int REQUEST_RESULT_RESPONSE_TIMEOUT = 3;
-    
-    private static CommManager manager = null;
-    
+
+    public final static String ROUTING_FAILOVER = "failover";
+    public final static String ROUTING_FASTEST = "fastest";
+    public final static String ROUTING_P2C = "p2c";
+
+    private static final ConcurrentMap<String, CommManager> managers = new ConcurrentHashMap<String, CommManager>();
+    // bumped by reset, so callers holding on to a manager know to look it up again
+    private static final AtomicInteger generation = new AtomicInteger();
+
     protected Properties configuration;
     protected boolean doMultiSite = false;
     protected String legacyUrl;
     protected List<String> multiSiteUrls = new ArrayList<>();
-    protected int errorCount = 0;
-    protected int currentMultiSiteUrlIndex = 0;
     protected int multiSiteThreshold = 5;
-    protected long lastSiteSwitchTime = 0;
     protected int maxHoursWithoutSwitch = 48;
+    protected int failureRateThreshold = 50;
+    protected int windowSize = 20;
+    protected int minimumCalls = 10;
+    protected long openMillis = 30000;
+    protected long slowCallMillis = 0;
+    protected String routing = ROUTING_FAILOVER;
     protected SimpleDateFormat dateFormatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
     protected boolean printDebug = false;
-    
+
+    private final AtomicReference<SiteState> state = new AtomicReference<SiteState>(new SiteState(0, 0));
+    private SiteCircuitBreaker[] breakers = new SiteCircuitBreaker[0];
+    private SiteStats[] stats = new SiteStats[0];
+
     public static CommManager instance(Properties config) {
+        String key = managerKey(config);
+        CommManager manager = managers.get(key);
         if ( manager == null ) {
-            manager = new CommManager(config);
+            manager = managers.computeIfAbsent(key, k -> new CommManager(config));
         }
         return manager;
     }
-    
+
+    /**
+     * Forgets the failover state of every configuration, the next request starts over with freshly
+     * shuffled sites.
+     */
     public static void reset() {
-        manager = null;
+        managers.clear();
+        generation.incrementAndGet();
+    }
+
+    static int generation() {
+        return generation.get();
     }
-    
+
+    /* Everything the constructor reads, so configurations that would build the same manager share one */
+    static String managerKey(Properties config) {
+        StringBuilder key = new StringBuilder()
+                .append(config.getProperty("url")).append('|')
+                .append(config.getProperty("multiSite", "false")).append('|')
+                .append(config.getProperty("printMultiSiteDebug", "false")).append('|')
+                .append(config.getProperty("multiSiteErrorThreshold")).append('|')
+                .append(config.getProperty("maxHoursWithoutSwitch")).append('|')
+                .append(config.getProperty("multiSiteFailureRateThreshold")).append('|')
+                .append(config.getProperty("multiSiteWindowSize")).append('|')
+                .append(config.getProperty("multiSiteMinimumCalls")).append('|')
+                .append(config.getProperty("multiSiteOpenMillis")).append('|')
+                .append(config.getProperty("multiSiteSlowCallMillis")).append('|')
+                .append(config.getProperty("multiSiteRouting"));
+        for( int x=1; config.getProperty("multiSiteUrl" + x) != null; x++ ) {
+            key.append('|').append(config.getProperty("multiSiteUrl" + x));
+        }
+        return key.toString();
+    }
+
 	private CommManager(Properties config) {
 	    configuration = config;
 	    legacyUrl = configuration.getProperty("url");
 	    doMultiSite = Boolean.valueOf(configuration.getProperty("multiSite", "false"));
 	    printDebug = Boolean.valueOf(configuration.getProperty("printMultiSiteDebug", "false"));
-	    
+
 	    if ( doMultiSite ) {
-	        for( int x=1; x < 3; x++ ) {
-	            String siteUrl = configuration.getProperty("multiSiteUrl" + x);
-	            if ( siteUrl == null ) {
-	                break;
-	            }
-	            multiSiteUrls.add(siteUrl);
+	        for( int x=1; configuration.getProperty("multiSiteUrl" + x) != null; x++ ) {
+	            multiSiteUrls.add(configuration.getProperty("multiSiteUrl" + x));
 	        }
 	        if ( multiSiteUrls.size() == 0 ) {
 	            doMultiSite = false;
 	        }
 	        else {
                 Collections.shuffle(multiSiteUrls);  // shuffle to randomize which one is selected first
-	            currentMultiSiteUrlIndex = 0;
-	            errorCount = 0;
 	            String threshold = configuration.getProperty("multiSiteErrorThreshold");
 	            if ( threshold != null ) {
 	                int t = Integer.parseInt(threshold);
@@ -71,75 +138,242 @@ public class CommManager {
 	                int t = Integer.parseInt(maxHours);
 	                if ( t >= 0 && t < 300 ) {
 	                    maxHoursWithoutSwitch = t;
-	                }	            
+	                }
+	            }
+	            String rate = configuration.getProperty("multiSiteFailureRateThreshold");
+	            if ( rate != null ) {
+	                int t = Integer.parseInt(rate);
+	                if ( t > 0 && t <= 100 ) {
+	                    failureRateThreshold = t;
+	                }
+	            }
+	            String window = configuration.getProperty("multiSiteWindowSize");
+	            if ( window != null ) {
+	                int t = Integer.parseInt(window);
+	                if ( t > 0 && t <= 1000 ) {
+	                    windowSize = t;
+	                }
 	            }
-	            lastSiteSwitchTime = System.currentTimeMillis();
+	            String calls = configuration.getProperty("multiSiteMinimumCalls");
+	            if ( calls != null ) {
+	                int t = Integer.parseInt(calls);
+	                if ( t > 0 ) {
+	                    minimumCalls = t;
+	                }
+	            }
+	            String open = configuration.getProperty("multiSiteOpenMillis");
+	            if ( open != null ) {
+	                long t = Long.parseLong(open);
+	                if ( t >= 0 ) {
+	                    openMillis = t;
+	                }
+	            }
+	            String slow = configuration.getProperty("multiSiteSlowCallMillis");
+	            if ( slow != null ) {
+	                long t = Long.parseLong(slow);
+	                if ( t >= 0 ) {
+	                    slowCallMillis = t;
+	                }
+	            }
+	            String mode = configuration.getProperty("multiSiteRouting");
+	            if ( ROUTING_FASTEST.equalsIgnoreCase(mode) ) {
+	                routing = ROUTING_FASTEST;
+	            }
+	            else if ( ROUTING_P2C.equalsIgnoreCase(mode) ) {
+	                routing = ROUTING_P2C;
+	            }
+	            breakers = new SiteCircuitBreaker[multiSiteUrls.size()];
+	            stats = new SiteStats[multiSiteUrls.size()];
+	            for ( int x = 0; x < breakers.length; x++ ) {
+	                breakers[x] = new SiteCircuitBreaker(multiSiteThreshold, failureRateThreshold, windowSize,
+	                        minimumCalls, openMillis, slowCallMillis);
+	                stats[x] = new SiteStats();
+	            }
+	            state.set(new SiteState(0, System.currentTimeMillis()));
 	        }
 	    }
 	}
 
-	public synchronized RequestTarget findUrl() {
+	public RequestTarget findUrl() {
+	    if ( doMultiSite && !ROUTING_FAILOVER.equals(routing) ) {
+	        int siteIndex = routeByLatency(System.currentTimeMillis());
+	        if ( printDebug ) {
+	            System.out.println("Selected URL: " + multiSiteUrls.get(siteIndex));
+	        }
+	        return new RequestTarget(multiSiteUrls.get(siteIndex), siteIndex);
+	    }
 	    String url = legacyUrl;
+	    SiteState current = state.get();
+	    int siteIndex = current.siteIndex;
 	    if ( doMultiSite ) {
-	        boolean switchSite = false;
-	        String switchReason = "";
-	        String currentUrl = multiSiteUrls.get(currentMultiSiteUrlIndex);
-	        if ( errorCount < multiSiteThreshold ) {
-	            if (maxHoursWithoutSwitch > 0) {
-	                long diffSinceSwitch = (System.currentTimeMillis() - lastSiteSwitchTime) / 3600000;
-	                if ( diffSinceSwitch > maxHoursWithoutSwitch ) {
-	                    switchReason = " more than " + maxHoursWithoutSwitch + " hours since last switch";
-	                    switchSite = true;
-	                }
-	            }
+	        long now = System.currentTimeMillis();
+	        String switchReason = null;
+	        boolean breakerOpen = !breakers[siteIndex].allowRequest(now);
+	        if ( breakerOpen ) {
+	            switchReason = " circuit breaker for " + multiSiteUrls.get(siteIndex) + " is open";
 	        }
-	        else {
-                switchReason = " consecutive error count has reached threshold of " + multiSiteThreshold;
-	            switchSite = true;
+	        else if (maxHoursWithoutSwitch > 0) {
+	            long diffSinceSwitch = (now - current.switchTime) / 3600000;
+	            if ( diffSinceSwitch > maxHoursWithoutSwitch ) {
+	                switchReason = " more than " + maxHoursWithoutSwitch + " hours since last switch";
+	            }
 	        }
 
-	        if ( switchSite ) {
-	            currentMultiSiteUrlIndex++;
-	            if ( currentMultiSiteUrlIndex >= multiSiteUrls.size() ) {
-	                currentMultiSiteUrlIndex = 0;
-	            }
-	            url = multiSiteUrls.get(currentMultiSiteUrlIndex);
-	            errorCount = 0;
-	            if ( printDebug ) {
-	                Date switchDate = new Date();
-	                lastSiteSwitchTime = switchDate.getTime();
-	                System.out.println(dateFormatter.format(switchDate) + "  Switched to " + url + " because " + switchReason);
+	        if ( switchReason != null ) {
+	            siteIndex = nextSite(siteIndex, now, breakerOpen);
+	            SiteState next = new SiteState(siteIndex, now);
+	            if ( state.compareAndSet(current, next) ) {
+	                JfrEvents.siteSwitch(current.siteIndex, siteIndex, multiSiteUrls.get(siteIndex), switchReason.trim());
+	                if ( printDebug ) {
+	                    synchronized (dateFormatter) {
+	                        System.out.println(dateFormatter.format(new Date(now)) + "  Switched to "
+	                                + multiSiteUrls.get(siteIndex) + " because " + switchReason);
+	                    }
+	                }
 	            }
 	        }
-	        else {
-	            url = currentUrl;
-	        }
+	        url = multiSiteUrls.get(siteIndex);
 	    }
 	    if ( printDebug ) {
 	        System.out.println("Selected URL: " + url);
 	    }
-	    return new RequestTarget(url,currentMultiSiteUrlIndex);
+	    return new RequestTarget(url, siteIndex);
+	}
+
+	/*
+	 * The first site after the current one whose breaker lets a request through. When none does, an open current
+	 * site still rotates to the next one, as every site is failing anyway, and a healthy one is kept.
+	 */
+	private int nextSite(int siteIndex, long now, boolean breakerOpen) {
+	    for ( int x = 1; x < multiSiteUrls.size(); x++ ) {
+	        int candidate = (siteIndex + x) % multiSiteUrls.size();
+	        if ( breakers[candidate].allowRequest(now) ) {
+	            return candidate;
+	        }
+	    }
+	    return breakerOpen ? (siteIndex + 1) % multiSiteUrls.size() : siteIndex;
+	}
+
+	/*
+	 * Sends the request as the probe of an open site that is due one, otherwise to the best closed site: the
+	 * cheapest of all of them for fastest, the cheaper of two picked at random for p2c. When every site is open
+	 * the cheapest one is used anyway.
+	 *
+	 * p2c samples with replacement, so the same site can be drawn twice and even the most expensive one gets a
+	 * share of the requests: a quarter of them with two sites. That keeps its averages fresh and spreads load
+	 * when there are only two sites to choose from.
+	 */
+	private int routeByLatency(long now) {
+	    int closedCount = 0;
+	    int[] closed = new int[breakers.length];
+	    for ( int x = 0; x < breakers.length; x++ ) {
+	        if ( breakers[x].getState() == SiteCircuitBreaker.State.CLOSED ) {
+	            closed[closedCount++] = x;
+	        }
+	        else if ( breakers[x].allowRequest(now) ) {
+	            return x;
+	        }
+	    }
+	    if ( closedCount == 0 ) {
+	        return cheapest(allSites(), breakers.length, now);
+	    }
+	    if ( ROUTING_P2C.equals(routing) ) {
+	        ThreadLocalRandom random = ThreadLocalRandom.current();
+	        int a = closed[random.nextInt(closedCount)];
+	        int b = closed[random.nextInt(closedCount)];
+	        return stats[a].cost(now) <= stats[b].cost(now) ? a : b;
+	    }
+	    return cheapest(closed, closedCount, now);
+	}
+
+	private int cheapest(int[] sites, int count, long now) {
+	    int best = sites[0];
+	    for ( int x = 1; x < count; x++ ) {
+	        if ( stats[sites[x]].cost(now) < stats[best].cost(now) ) {
+	            best = sites[x];
+	        }
+	    }
+	    return best;
+	}
+
+	private int[] allSites() {
+	    int[] sites = new int[breakers.length];
+	    for ( int x = 0; x < sites.length; x++ ) {
+	        sites[x] = x;
+	    }
+	    return sites;
 	}
-	
-    public synchronized void reportResult(RequestTarget target, int result, int statusCode) {
-        if ( target.getRequestTime() < lastSiteSwitchTime || !doMultiSite ) {
+
+    /**
+     * Records the outcome of a request with the circuit breaker and latency averages of the site it was sent to.
+     * @param target     target returned by findUrl for the request
+     * @param result     one of the REQUEST_RESULT constants
+     * @param statusCode http status of the response, when one was received
+     */
+    public void reportResult(RequestTarget target, int result, int statusCode) {
+        if ( !doMultiSite || target.getUrlIndex() < 0 || target.getUrlIndex() >= breakers.length ) {
             return;
         }
+        SiteCircuitBreaker breaker = breakers[target.getUrlIndex()];
+        SiteStats siteStats = stats[target.getUrlIndex()];
+        long elapsed = System.currentTimeMillis() - target.getRequestTime();
         switch(result) {
             case REQUEST_RESULT_RESPONSE_RECEIVED:
                 if ( statusCode == 200 ) {
-                    errorCount = 0;
+                    breaker.onSuccess(elapsed);
                 }
                 else if ( statusCode >= 400 ) {
-                    errorCount++;
+                    breaker.onFailure();
                 }
+                siteStats.recordResponse(elapsed, statusCode >= 400);
                 break;
             case REQUEST_RESULT_CONNECTION_FAILED:
-                errorCount++;
+                breaker.onFailure();
+                siteStats.recordFailure(elapsed, false);
                 break;
             case REQUEST_RESULT_RESPONSE_TIMEOUT:
-                errorCount++;
+                breaker.onFailure();
+                siteStats.recordFailure(elapsed, true);
                 break;
         }
     }
+
+    int getErrorCount() {
+        return doMultiSite ? breakers[state.get().siteIndex].getConsecutiveFailures() : 0;
+    }
+
+    SiteCircuitBreaker getCircuitBreaker(int siteIndex) {
+        return breakers[siteIndex];
+    }
+
+    SiteStats getSiteStats(int siteIndex) {
+        return stats[siteIndex];
+    }
+
+    int getCurrentMultiSiteUrlIndex() {
+        return state.get().siteIndex;
+    }
+
+    long getLastSiteSwitchTime() {
+        return state.get().switchTime;
+    }
+
+    /* Moves the time of the last switch, keeping the current site */
+    void setLastSiteSwitchTime(long switchTime) {
+        SiteState current;
+        do {
+            current = state.get();
+        } while ( !state.compareAndSet(current, new SiteState(current.siteIndex, switchTime)) );
+    }
+
+    /* The site currently in use, replaced as a whole whenever the site is switched */
+    private static final class SiteState {
+        final int siteIndex;
+        final long switchTime;
+
+        SiteState(int siteIndex, long switchTime) {
+            this.siteIndex = siteIndex;
+            this.switchTime = switchTime;
+        }
+    }
 }
@@ -1,79 +1,133 @@
 package io.github.vantiv.sdk;
 
 import com.jcraft.jsch.*;
-import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
-import org.apache.hc.client5.http.HttpRequestRetryStrategy;
-import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.config.RequestConfig;
-import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.BasicHttpClientConnectionManager;
-import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
-import org.apache.hc.client5.http.socket.LayeredConnectionSocketFactory;
-import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
-import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
-import org.apache.hc.core5.http.*;
-import org.apache.hc.core5.http.config.Registry;
-import org.apache.hc.core5.http.config.RegistryBuilder;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
-import org.apache.hc.core5.http.io.entity.StringEntity;
-import org.apache.hc.core5.http.protocol.HttpContext;
-import org.apache.hc.core5.ssl.SSLContexts;
-import org.apache.hc.core5.util.TimeValue;
-import org.apache.hc.core5.util.Timeout;
-
-import javax.net.ssl.SSLContext;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.NoHttpResponseException;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import io.github.vantiv.sdk.generate.CnpOnlineRequest;
+import io.github.vantiv.sdk.generate.CnpOnlineResponse;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.sax.SAXSource;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.nio.charset.Charset;
-import java.security.GeneralSecurityException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class Communication {
 
     private static final String[] SUPPORTED_PROTOCOLS = new String[]{"TLSv1.3", "TLSv1.2"};
     public static final String CONTENT_TYPE_TEXT_XML_UTF8 = "text/xml; charset=UTF-8";
-    private CloseableHttpClient httpClient;
-    private final int KEEP_ALIVE_DURATION = 8000;
-    private final int DEFAULT_RETRY_INTERVAL = 5000;
-    private static final String NEUTER_STR = "NEUTERED";
+    // loaded by name, so the SDK still runs on a JVM without java.net.http as long as it is not picked
+    private static final String JDK_TRANSPORT = "io.github.vantiv.sdk.JdkHttpTransport";
+    // XMLReaders are not thread safe, but one can be reused by its thread once a parse has completed
+    private static final ThreadLocal<XMLReader> xmlReaders = ThreadLocal.withInitial(Communication::createXmlReader);
+    final CnpTransport transport;
+    // CommManager of the configuration last used, so requests do not rebuild its key from the properties
+    private volatile ResolvedManager resolvedManager;
 
     public Communication() {
+        this(new Properties());
+    }
+
+    /**
+     * Construct a Communication on the transport named by the transport property: apache (default), jdk, or the
+     * name of a CnpTransport class with a public constructor taking the configuration Properties or none at all.
+     * @param configuration configuration Properties to use for processing
+     */
+    public Communication(Properties configuration) {
+        this(createTransport(configuration));
+    }
+
+    /**
+     * Construct a Communication that sends every request through the given transport
+     * @param transport transport to send requests through
+     */
+    public Communication(CnpTransport transport) {
+        this.transport = transport;
+    }
+
+    static CnpTransport createTransport(Properties configuration) {
+        String name = configuration.getProperty("transport", "apache");
+        if ("apache".equalsIgnoreCase(name)) {
+            return new ApacheHttpTransport(configuration);
+        }
+        String className = "jdk".equalsIgnoreCase(name) ? JDK_TRANSPORT : name;
         try {
-            String protocol = getBestProtocol(SSLContext.getDefault().getSupportedSSLParameters().getProtocols());
-            if (protocol == null) {
-                throw new IllegalStateException("No supported TLS protocols available");
+            Class<? extends CnpTransport> transportClass = Class.forName(className).asSubclass(CnpTransport.class);
+            try {
+                return transportClass.getConstructor(Properties.class).newInstance(configuration);
+            }
+            catch (NoSuchMethodException e) {
+                return transportClass.getConstructor().newInstance();
             }
-            SSLContext ctx = SSLContexts.custom().setProtocol(protocol).build();
-            ConnectionSocketFactory plainSocketFactory = new PlainConnectionSocketFactory();
-            LayeredConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(ctx);
-
-            Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
-                    .register("http", plainSocketFactory)
-                    .register("https", sslSocketFactory)
-                    .build();
-
-            BasicHttpClientConnectionManager connManager = new BasicHttpClientConnectionManager(registry);
-
-            HttpRequestRetryStrategy requestRetryStrategy = new DefaultHttpRequestRetryStrategy(0, TimeValue.ofMilliseconds(DEFAULT_RETRY_INTERVAL));
-            // Vantiv will a close an idle connection, so we define our Keep-alive strategy to be below that threshold
-            ConnectionKeepAliveStrategy keepAliveStrategy = new ConnectionKeepAliveStrategy() {
-                public TimeValue getKeepAliveDuration(HttpResponse response, HttpContext context) {
-                    return TimeValue.ofMilliseconds(KEEP_ALIVE_DURATION);
-                }
-            };
-            httpClient = HttpClients.custom().setConnectionManager(connManager)
-                    .setRetryStrategy(requestRetryStrategy)
-                    .setKeepAliveStrategy(keepAliveStrategy)
-                    .build();
         }
-        catch (GeneralSecurityException ex) {
-            throw new IllegalStateException(ex);
+        catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+            throw new CnpOnlineException("Unable to create the " + name + " transport", e instanceof Exception ? (Exception) e : new IllegalStateException(e));
+        }
+    }
+
+    /**
+     * Opens connections to every configured site ahead of the first request, so the first transactions do not
+     * pay for the TCP and TLS handshakes, and loads the JAXB context and pooled (un)marshallers they need. How
+     * many connections are opened is up to the transport, see {@link ApacheHttpTransport}.
+     * @param configuration configuration Properties to use for processing
+     * @param connectionsPerSite number of connections to have open to each site
+     * @return number of new connections opened
+     */
+    public int warmUp(Properties configuration, int connectionsPerSite) {
+        warmUpJaxb();
+        try {
+            return transport.warmUp(siteUrls(configuration), connectionsPerSite);
+        }
+        catch (IOException e) {
+            throw new CnpOnlineException("Exception connection to Vantiv eCommerce", e);
+        }
+    }
+
+    static List<String> siteUrls(Properties configuration) {
+        List<String> urls = new ArrayList<>();
+        if (configuration.getProperty("url") != null) {
+            urls.add(configuration.getProperty("url"));
+        }
+        if (Boolean.valueOf(configuration.getProperty("multiSite", "false"))) {
+            for (int x = 1; configuration.getProperty("multiSiteUrl" + x) != null; x++) {
+                urls.add(configuration.getProperty("multiSiteUrl" + x));
+            }
+        }
+        return urls;
+    }
+
+    /* Builds the JAXB context and runs a request and a response through a pooled marshaller and unmarshaller */
+    private static void warmUpJaxb() {
+        try {
+            toByteArray(new CnpRequestEntity(new CnpOnlineRequest(), false)::writeTo);
+            unmarshalResponse(new InputSource(new StringReader(
+                    "<cnpOnlineResponse version='1.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'/>")));
+        }
+        catch (IOException e) {
+            throw new CnpOnlineException("Unable to warm up the xml binding", e);
         }
     }
 
@@ -93,82 +147,368 @@ public class Communication {
     }
 
     public String requestToServer(String xmlRequest, Properties configuration) {
-        String xmlResponse = null;
-        String proxyHost = configuration.getProperty("proxyHost");
-        String proxyPort = configuration.getProperty("proxyPort");
-        //Default timeout=120 seconds as per cnp endpoint
-        int httpTimeout = Integer.valueOf(configuration.getProperty("timeout", "120000"));
-        HttpHost proxy;
-        RequestConfig requestConfig;
-        if (proxyHost != null && proxyHost.length() > 0 && proxyPort != null && proxyHost.length() > 0) {
-            proxy = new HttpHost(proxyHost, Integer.valueOf(proxyPort));
-            requestConfig = RequestConfig.copy(RequestConfig.DEFAULT)
-                    .setProxy(proxy)
-                    .setResponseTimeout(Timeout.ofMilliseconds(httpTimeout))
-                    .setConnectTimeout(Timeout.ofMilliseconds(httpTimeout))
-                    .build();
-        }
-        else {
-            requestConfig = RequestConfig.copy(RequestConfig.DEFAULT)
-                    .setResponseTimeout(Timeout.ofMilliseconds(httpTimeout))
-                    .setConnectTimeout(Timeout.ofMilliseconds(httpTimeout))
-                    .build();
-        }
-
-        RequestTarget reqTarget = CommManager.instance(configuration).findUrl();
-        HttpPost post = new HttpPost(reqTarget.getUrl());
-        post.setHeader("Content-Type", CONTENT_TYPE_TEXT_XML_UTF8);
-
-        post.setConfig(requestConfig);
-        HttpEntity entity = null;
+        byte[] body = xmlRequest.getBytes(StandardCharsets.UTF_8);
+        return requestToServer("xml", out -> out.write(body), configuration, null, new ResponseReader<String>() {
+            public String read(CnpTransport.Response response, byte[] printedBody) throws IOException {
+                return printedBody != null ? new String(printedBody, charsetOf(response, StandardCharsets.UTF_8)) : readString(response);
+            }
+        });
+    }
+
+    /**
+     * Sends the request, marshalling it straight into the connection's output stream, and unmarshals the
+     * response straight from the connection's input stream
+     * @param requestEntity request to be sent to Vantiv
+     * @param configuration configuration Properties to use for processing
+     * @return unmarshalled response
+     */
+    public CnpOnlineResponse requestToServer(CnpRequestEntity requestEntity, Properties configuration) {
+        return requestToServer(requestEntity, configuration, null);
+    }
+
+    /*
+     * Sends to url as it is when one is given, leaving the CommManager of the configuration alone, and to the
+     * site the CommManager picks otherwise.
+     */
+    CnpOnlineResponse requestToServer(CnpRequestEntity requestEntity, Properties configuration, String url) {
+        return requestToServer(transactionType(requestEntity.getRequest()), requestEntity::writeTo, configuration, url, Communication::readResponse);
+    }
+
+    /* Reads the body of a 200 response, printedBody is the already read body when printxml is on */
+    private interface ResponseReader<T> {
+        T read(CnpTransport.Response response, byte[] printedBody) throws IOException;
+    }
+
+    private <T> T requestToServer(String transactionType, CnpTransport.RequestBody requestBody, Properties configuration,
+                                  String url, ResponseReader<T> responseReader) {
+        RequestTimings timings = RequestTimings.start(transactionType, configuration, true);
+        requestBody = timings.timed(requestBody);
+        CommManager manager = null;
+        RequestTarget reqTarget = null;
+        CnpTransport.Response response = null;
+        String responseCode = null;
+        Throwable failure = null;
         try {
+            // picking the site can fail on a bad configuration, the timings are finished all the same
+            manager = url != null ? null : commManager(configuration);
+            reqTarget = manager != null ? manager.findUrl() : new RequestTarget(url, -1);
+            timings.target(reqTarget);
             boolean printxml = "true".equalsIgnoreCase(configuration.getProperty("printxml"));
-            boolean neuterXml = "true".equalsIgnoreCase(configuration.getProperty("neuterXml"));
 
             if (printxml) {
-                printXml(xmlRequest, neuterXml);
+                // the request has to be held in memory to be printed, so send the printed bytes as they are
+                byte[] body = toByteArray(requestBody);
+                XmlLogSink.log("Request XML: ", body, StandardCharsets.UTF_8, configuration);
+                requestBody = out -> out.write(body);
             }
 
-            post.setEntity(new StringEntity(xmlRequest, Charset.forName("UTF-8")));
-            ClassicHttpResponse response = httpClient.execute(post);
-            entity = response.getEntity();
-            CommManager.instance(configuration).reportResult(reqTarget, CommManager.REQUEST_RESULT_RESPONSE_RECEIVED, response.getCode());
-            if (response.getCode() != 200) {
-                StringBuilder errorResponse = new StringBuilder().append(response.getCode())
-                        .append('(').append(response.getReasonPhrase()).append(')');
-                try {
-                    errorResponse.append(" : ").append(EntityUtils.toString(entity, "UTF-8"));
-                }
-                catch (Exception ignored) {
-                }
-                throw new CnpOnlineException(errorResponse.toString());
+            timings.sendStarted();
+            response = timings.counted(transport.send(reqTarget.getUrl(), requestBody, CONTENT_TYPE_TEXT_XML_UTF8, configuration));
+            timings.sendCompleted();
+            responseCode = "HTTP " + response.getStatusCode();
+            reportResult(manager, reqTarget, CommManager.REQUEST_RESULT_RESPONSE_RECEIVED, response.getStatusCode());
+            if (response.getStatusCode() != 200) {
+                throw new CnpOnlineException(errorResponse(response));
             }
-            xmlResponse = EntityUtils.toString(entity, "UTF-8");
+            long unmarshalStart = System.nanoTime();
+            byte[] printedBody = null;
             if (printxml) {
-                if (neuterXml) {
-                    xmlResponse = neuterXml(xmlResponse);
-                }
-                System.out.println("Response XML: " + xmlResponse);
+                printedBody = readBytes(response);
+                XmlLogSink.log("Response XML: ", printedBody, charsetOf(response, StandardCharsets.UTF_8), configuration);
             }
+            T result = responseReader.read(response, printedBody);
+            timings.add(CnpMetrics.Phase.UNMARSHAL, System.nanoTime() - unmarshalStart);
+            responseCode = responseCode(result, responseCode);
+            return result;
         }
         catch (IOException e) {
             int result = CommManager.REQUEST_RESULT_CONNECTION_FAILED;
             if (e instanceof NoHttpResponseException) {
                 result = CommManager.REQUEST_RESULT_RESPONSE_TIMEOUT;
             }
-            CommManager.instance(configuration).reportResult(reqTarget, result, 0);
-            throw new CnpOnlineException("Exception connection to Vantiv eCommerce", e);
+            reportResult(manager, reqTarget, result, 0);
+            CnpOnlineException exception = new CnpOnlineException("Exception connection to Vantiv eCommerce", e);
+            failure = exception;
+            throw exception;
+        }
+        catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        }
+        finally {
+            closeQuietly(response);
+            timings.finish(responseCode, failure);
+        }
+    }
+
+    /*
+     * The CommManager of the configuration, looked up again only when another Properties instance is used or the
+     * managers were reset. Changes made to the properties after the first request are therefore not picked up.
+     */
+    private CommManager commManager(Properties configuration) {
+        ResolvedManager resolved = resolvedManager;
+        int generation = CommManager.generation();
+        if (resolved == null || resolved.configuration != configuration || resolved.generation != generation) {
+            resolved = new ResolvedManager(configuration, generation, CommManager.instance(configuration));
+            resolvedManager = resolved;
+        }
+        return resolved.manager;
+    }
+
+    /* Requests sent to a url given by the caller have no manager to report to */
+    private static void reportResult(CommManager manager, RequestTarget target, int result, int statusCode) {
+        if (manager != null) {
+            manager.reportResult(target, result, statusCode);
+        }
+    }
+
+    private static final class ResolvedManager {
+        final Properties configuration;
+        final int generation;
+        final CommManager manager;
+
+        ResolvedManager(Properties configuration, int generation, CommManager manager) {
+            this.configuration = configuration;
+            this.generation = generation;
+            this.manager = manager;
+        }
+    }
+
+    /* Element name of the transaction in the request, such as authorization */
+    static String transactionType(CnpOnlineRequest request) {
+        JAXBElement<?> transaction = request.getTransaction();
+        return transaction != null ? transaction.getName().getLocalPart() : "none";
+    }
+
+    /* The response attribute of an unmarshalled response, the HTTP status otherwise */
+    private static String responseCode(Object result, String httpStatus) {
+        return result instanceof CnpOnlineResponse ? ((CnpOnlineResponse) result).getResponse() : httpStatus;
+    }
+
+    /**
+     * Sends the request without blocking the calling thread. The returned future completes with the unmarshalled
+     * response, or exceptionally with a CnpOnlineException, on a thread of the transport.
+     * @param requestEntity request to be sent to Vantiv
+     * @param configuration configuration Properties to use for processing
+     * @return future unmarshalled response, cancelling it abandons the request
+     */
+    public CompletableFuture<CnpOnlineResponse> requestToServerAsync(CnpRequestEntity requestEntity, Properties configuration) {
+        return requestToServerAsync(requestEntity, configuration, null);
+    }
+
+    /*
+     * Sends to url as it is when one is given, leaving the CommManager of the configuration alone, and to the
+     * site the CommManager picks otherwise.
+     */
+    CompletableFuture<CnpOnlineResponse> requestToServerAsync(CnpRequestEntity requestEntity, Properties configuration, String url) {
+        CompletableFuture<CnpOnlineResponse> future = new CompletableFuture<>();
+        boolean printxml = "true".equalsIgnoreCase(configuration.getProperty("printxml"));
+        RequestTimings timings = RequestTimings.start(transactionType(requestEntity.getRequest()), configuration, false);
+
+        // async transports send the body from memory, so marshal straight into a byte array
+        byte[] body;
+        try {
+            body = toByteArray(timings.timed(requestEntity::writeTo));
+        }
+        catch (IOException e) {
+            CnpOnlineException exception = new CnpOnlineException("Exception while marshalling the request", e);
+            timings.finish(null, exception);
+            throw exception;
+        }
+        catch (RuntimeException e) {
+            timings.finish(null, e);
+            throw e;
+        }
+        if (printxml) {
+            XmlLogSink.log("Request XML: ", body, StandardCharsets.UTF_8, configuration);
+        }
+
+        CommManager manager;
+        RequestTarget reqTarget;
+        CompletableFuture<CnpTransport.Response> exchange;
+        try {
+            manager = url != null ? null : commManager(configuration);
+            reqTarget = manager != null ? manager.findUrl() : new RequestTarget(url, -1);
+            timings.target(reqTarget);
+            timings.sendStarted();
+            exchange = transport.sendAsync(reqTarget.getUrl(), body, CONTENT_TYPE_TEXT_XML_UTF8, configuration);
+        }
+        catch (RuntimeException e) {
+            timings.finish(null, e);
+            throw e;
+        }
+        exchange.whenComplete((sent, failure) -> {
+            timings.sendCompleted();
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                if (cause instanceof CancellationException) {
+                    timings.finish(null, cause);
+                    future.cancel(false);
+                    return;
+                }
+                int result = CommManager.REQUEST_RESULT_CONNECTION_FAILED;
+                if (cause instanceof NoHttpResponseException) {
+                    result = CommManager.REQUEST_RESULT_RESPONSE_TIMEOUT;
+                }
+                reportResult(manager, reqTarget, result, 0);
+                Throwable exception = cause instanceof Exception
+                        ? new CnpOnlineException("Exception connection to Vantiv eCommerce", (Exception) cause) : cause;
+                timings.finish(null, exception);
+                future.completeExceptionally(exception);
+                return;
+            }
+            CnpTransport.Response response = sent;
+            String responseCode = "HTTP " + response.getStatusCode();
+            Throwable exception = null;
+            try {
+                response = timings.counted(sent);
+                reportResult(manager, reqTarget, CommManager.REQUEST_RESULT_RESPONSE_RECEIVED, response.getStatusCode());
+                if (response.getStatusCode() != 200) {
+                    exception = new CnpOnlineException(errorResponse(response));
+                    future.completeExceptionally(exception);
+                    return;
+                }
+                long unmarshalStart = System.nanoTime();
+                byte[] printedBody = null;
+                if (printxml) {
+                    printedBody = readBytes(response);
+                    XmlLogSink.log("Response XML: ", printedBody, charsetOf(response, StandardCharsets.UTF_8), configuration);
+                }
+                CnpOnlineResponse onlineResponse = readResponse(response, printedBody);
+                timings.add(CnpMetrics.Phase.UNMARSHAL, System.nanoTime() - unmarshalStart);
+                responseCode = onlineResponse.getResponse();
+                future.complete(onlineResponse);
+            }
+            catch (IOException e) {
+                exception = new CnpOnlineException("Exception connection to Vantiv eCommerce", e);
+                future.completeExceptionally(exception);
+            }
+            catch (RuntimeException e) {
+                // anything else would escape to the transport's thread and leave the future incomplete
+                exception = e;
+                future.completeExceptionally(e);
+            }
+            finally {
+                closeQuietly(response);
+                timings.finish(responseCode, exception);
+            }
+        });
+        future.whenComplete((response, failure) -> {
+            if (future.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /* Unmarshals a 200 response, from the printed xml when printxml is on and from the body as it arrives otherwise */
+    private static CnpOnlineResponse readResponse(CnpTransport.Response response, byte[] printedBody) throws IOException {
+        InputStream content = printedBody != null ? new ByteArrayInputStream(printedBody) : response.getBody();
+        try {
+            InputSource source = new InputSource(content);
+            Charset charset = charsetOf(response, null);
+            if (charset != null) {
+                source.setEncoding(charset.name());
+            }
+            return unmarshalResponse(source);
+        }
+        finally {
+            content.close();
+        }
+    }
+
+    private static String errorResponse(CnpTransport.Response response) {
+        StringBuilder errorResponse = new StringBuilder().append(response.getStatusCode());
+        if (response.getReasonPhrase() != null) {
+            errorResponse.append('(').append(response.getReasonPhrase()).append(')');
         }
-        catch (ParseException e) {
-            throw new CnpOnlineException("Exception while parsing HttpEntity", e);
+        try {
+            errorResponse.append(" : ").append(readString(response));
+        }
+        catch (Exception ignored) {
+        }
+        return errorResponse.toString();
+    }
+
+    /* Reads the whole body in the charset of the response, UTF-8 if it does not name one */
+    private static String readString(CnpTransport.Response response) throws IOException {
+        return new String(readBytes(response), charsetOf(response, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] readBytes(CnpTransport.Response response) throws IOException {
+        InputStream content = response.getBody();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
         }
         finally {
-            if (entity != null) {
-                EntityUtils.consumeQuietly(entity);
+            content.close();
+        }
+    }
+
+    private static Charset charsetOf(CnpTransport.Response response, Charset defaultCharset) {
+        String contentType = response.getContentType();
+        ContentType parsed = contentType != null ? ContentType.parseLenient(contentType) : null;
+        return parsed != null && parsed.getCharset() != null ? parsed.getCharset() : defaultCharset;
+    }
+
+    private static byte[] toByteArray(CnpTransport.RequestBody requestBody) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        requestBody.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static void closeQuietly(CnpTransport.Response response) {
+        if (response != null) {
+            try {
+                response.close();
             }
-            post.abort();
+            catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Unmarshals a cnpOnlineResponse while it is parsed, mapping the legacy ".../schema/online" namespace onto
+     * the cnp namespace on the way.
+     * @param source response xml
+     * @return unmarshalled response
+     * @throws IOException when the response could not be read
+     */
+    static CnpOnlineResponse unmarshalResponse(InputSource source) throws IOException {
+        JAXBObjectPool<Unmarshaller> unmarshallerPool = CnpContext.getUnmarshallerPool();
+        Unmarshaller unmarshaller = null;
+        try {
+            unmarshaller = unmarshallerPool.borrow();
+            XMLReader xmlReader = new NamespaceRemappingFilter(xmlReaders.get());
+            return (CnpOnlineResponse) unmarshaller.unmarshal(new SAXSource(xmlReader, source));
+        }
+        catch (JAXBException ume) {
+            if (ume.getLinkedException() instanceof IOException) {
+                throw (IOException) ume.getLinkedException();
+            }
+            throw new CnpOnlineException("Error validating xml data against the schema", ume);
+        }
+        finally {
+            unmarshallerPool.release(unmarshaller);
+        }
+    }
+
+    private static XMLReader createXmlReader() {
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            return factory.newSAXParser().getXMLReader();
+        }
+        catch (ParserConfigurationException | SAXException e) {
+            throw new CnpOnlineException("Unable to create the xml parser", e);
         }
-        return xmlResponse;
     }
 
     /**
@@ -334,17 +674,7 @@ public class Communication {
 
     /* Method to neuter out sensitive information from xml */
     public String neuterXml(String xml) {
-        if (xml == null) {
-            return xml;
-        }
-
-        xml = xml.replaceAll("<accNum>.*</accNum>", "<accNum>" + NEUTER_STR + "</accNum>");
-        xml = xml.replaceAll("<user>.*</user>", "<user>" + NEUTER_STR + "</user>");
-        xml = xml.replaceAll("<password>.*</password>", "<password>" + NEUTER_STR + "</password>");
-        xml = xml.replaceAll("<track>.*</track>", "<track>" + NEUTER_STR + "</track>");
-        xml = xml.replaceAll("<number>.*</number>", "<number>" + NEUTER_STR + "</number>");
-        xml = xml.replaceAll("<cardValidationNum>.*</cardValidationNum>", "<cardValidationNum>" + NEUTER_STR + "</cardValidationNum>");
-        return xml;
+        return XmlMasker.DEFAULT.mask(xml);
     }
 
     public String printXml(String xmlRequest, boolean neuterXml) {
@@ -0,0 +1,190 @@
+package io.github.vantiv.sdk;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of online requests in flight to the gateway and adapts the cap to what the gateway can take,
+ * so that under overload callers are held back in the SDK instead of being turned away by the gateway. It is
+ * turned on with adaptiveConcurrency=true and there is one limiter per url, shared by every CnpOnline using it.
+ *
+ * The limit moves like TCP congestion control (AIMD):
+ * <ul>
+ * <li>it is halved when the gateway answers with a connection limit exceeded response,</li>
+ * <li>it shrinks by a tenth when a response takes more than concurrencyLimitLatencyTolerance times as long as
+ * the fastest response seen recently, since queueing at the gateway shows up as latency first,</li>
+ * <li>it shrinks at most once per round trip, requests sent before a decrease do not lower it again,</li>
+ * <li>it grows by one with each fast enough response while at least half of the limit is in use.</li>
+ * </ul>
+ * It stays between concurrencyLimitMin and concurrencyLimitMax, starting at concurrencyLimitInitial. A caller
+ * finding the limit reached waits up to concurrencyLimitMaxWait milliseconds for a request to complete, 0 fails
+ * it right away, and then gets a CnpConnectionLimitExceededException without anything being sent.
+ */
+class ConcurrencyLimiter {
+
+    static final int SUCCESS = 0;
+    static final int DROPPED = 1;
+    static final int IGNORED = 2;
+
+    static final int DEFAULT_INITIAL_LIMIT = 20;
+    static final int DEFAULT_MIN_LIMIT = 1;
+    static final int DEFAULT_MAX_LIMIT = 200;
+    static final long DEFAULT_MAX_WAIT = 1000;
+    static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+
+    private static final double DROP_BACKOFF = 0.5;
+    private static final double LATENCY_BACKOFF = 0.9;
+    // the fastest response is looked for again every this many responses, so the baseline follows the gateway
+    private static final int BASELINE_WINDOW = 100;
+
+    private static final ConcurrentMap<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxWaitNanos;
+    private final double latencyTolerance;
+
+    private int limit;
+    private int inFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private long lastDecreaseNanos;
+
+    ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long maxWaitMillis, double latencyTolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.latencyTolerance = latencyTolerance;
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * @param config configuration Properties to use for processing
+     * @return the limiter for the configured url, or null when adaptiveConcurrency is off
+     */
+    static ConcurrencyLimiter instance(Properties config) {
+        if (!Boolean.valueOf(config.getProperty("adaptiveConcurrency", "false"))) {
+            return null;
+        }
+        return limiters.computeIfAbsent(limiterKey(config), key -> new ConcurrencyLimiter(
+                Integer.parseInt(config.getProperty("concurrencyLimitInitial", String.valueOf(DEFAULT_INITIAL_LIMIT))),
+                Integer.parseInt(config.getProperty("concurrencyLimitMin", String.valueOf(DEFAULT_MIN_LIMIT))),
+                Integer.parseInt(config.getProperty("concurrencyLimitMax", String.valueOf(DEFAULT_MAX_LIMIT))),
+                Long.parseLong(config.getProperty("concurrencyLimitMaxWait", String.valueOf(DEFAULT_MAX_WAIT))),
+                Double.parseDouble(config.getProperty("concurrencyLimitLatencyTolerance", String.valueOf(DEFAULT_LATENCY_TOLERANCE)))));
+    }
+
+    static void reset() {
+        limiters.clear();
+    }
+
+    private static String limiterKey(Properties config) {
+        return config.getProperty("url") + '|'
+                + config.getProperty("concurrencyLimitInitial") + '|'
+                + config.getProperty("concurrencyLimitMin") + '|'
+                + config.getProperty("concurrencyLimitMax") + '|'
+                + config.getProperty("concurrencyLimitMaxWait") + '|'
+                + config.getProperty("concurrencyLimitLatencyTolerance");
+    }
+
+    /**
+     * Waits up to concurrencyLimitMaxWait for the number of requests in flight to drop below the limit.
+     * @return start time of the request, to be handed to {@link #release(long, int)} once it completes
+     * @throws CnpConnectionLimitExceededException when the limit is still reached after waiting
+     */
+    synchronized long acquire() {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        boolean interrupted = false;
+        try {
+            while (inFlight >= limit) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new CnpConnectionLimitExceededException("Concurrency limit of " + limit + " requests in flight reached");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        inFlight++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Takes a slot only if one is free right away, for callers that must not block.
+     * @return start time of the request, to be handed to {@link #release(long, int)} once it completes
+     * @throws CnpConnectionLimitExceededException when the limit is reached
+     */
+    synchronized long tryAcquire() {
+        if (inFlight >= limit) {
+            throw new CnpConnectionLimitExceededException("Concurrency limit of " + limit + " requests in flight reached");
+        }
+        inFlight++;
+        return System.nanoTime();
+    }
+
+    /**
+     * @param startNanos what acquire returned for the request
+     * @param outcome    SUCCESS when the gateway answered, DROPPED when it refused the request for exceeding its
+     *                   connection limit, IGNORED when the request failed in a way that says nothing about load
+     */
+    synchronized void release(long startNanos, int outcome) {
+        long now = System.nanoTime();
+        long rttNanos = now - startNanos;
+        int previousLimit = limit;
+        if (outcome == DROPPED) {
+            decrease(now, startNanos, DROP_BACKOFF);
+        }
+        else if (outcome == SUCCESS) {
+            windowMinNanos = Math.min(windowMinNanos, rttNanos);
+            if (++windowSamples >= BASELINE_WINDOW) {
+                baselineNanos = windowMinNanos;
+                windowMinNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+            long noLoadNanos = Math.min(baselineNanos, windowMinNanos);
+            if (rttNanos > noLoadNanos * latencyTolerance) {
+                decrease(now, startNanos, LATENCY_BACKOFF);
+            }
+            else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+        inFlight--;
+        // one waiter per freed slot, all of them only when the limit grew and there may be a second slot
+        if (limit > previousLimit) {
+            notifyAll();
+        }
+        else if (inFlight < limit) {
+            notify();
+        }
+    }
+
+    /* Requests sent before the last decrease were sent at the old limit, so they do not lower it again */
+    private void decrease(long now, long startNanos, double backoff) {
+        if (startNanos - lastDecreaseNanos >= 0) {
+            limit = Math.max(minLimit, (int) (limit * backoff));
+            lastDecreaseNanos = now;
+        }
+    }
+
+    synchronized int getLimit() {
+        return limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+}
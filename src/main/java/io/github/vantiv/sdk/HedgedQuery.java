@@ -0,0 +1,230 @@
+package io.github.vantiv.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import io.github.vantiv.sdk.generate.CnpOnlineResponse;
+import io.github.vantiv.sdk.generate.QueryTransactionResponse;
+
+/**
+ * Looks up a transaction on every configured site, multiSiteUrl1, multiSiteUrl2, ... or just url when there are
+ * none, and takes the first definitive answer. A site answering that it does not have the transaction (151) or
+ * failing to answer at all is not definitive, since the transaction may have gone to another site.
+ *
+ * With queryTransactionHedgeMillis at 0 (default) every site is asked at once. Otherwise the sites are asked in
+ * order, the next one once the previous has not answered within that many milliseconds or as soon as it has
+ * answered without a definitive answer.
+ *
+ * How a site is asked is up to the caller: CnpOnlineAsync goes through the async path of its Communication,
+ * without holding a thread while a request is in flight, while CnpOnline sends blocking requests through its
+ * classic connection pool on a small bounded executor, see {@link #blocking}. Each request goes to its site as
+ * it is, so neither the caller's configuration nor the failover state of its CommManager is touched and one
+ * CnpOnline can be shared by any number of threads. Once an answer is taken, the requests still in flight are
+ * cancelled, which abandons async requests while blocking ones run to their end and are ignored.
+ */
+class HedgedQuery {
+
+    static final String NOT_FOUND = "151";
+
+    // blocking site requests beyond this many wait in the queue for a thread
+    static final int MAX_BLOCKING_REQUESTS = 16;
+
+    private static final ThreadPoolExecutor blockingRequests = new ThreadPoolExecutor(MAX_BLOCKING_REQUESTS,
+            MAX_BLOCKING_REQUESTS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), daemonThreads("cnp-query-transaction"));
+    private static final ScheduledExecutorService hedgeTimer = Executors.newSingleThreadScheduledExecutor(daemonThreads("cnp-query-hedge"));
+
+    private final SiteRequest siteRequest;
+    private final List<String> sites;
+    private final AtomicIntegerArray launched;
+    private final AtomicReferenceArray<CompletableFuture<CnpOnlineResponse>> requests;
+    private final AtomicReferenceArray<Object> results;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final CompletableFuture<CnpOnlineResponse> answer = new CompletableFuture<CnpOnlineResponse>();
+
+    static {
+        blockingRequests.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Sends the query to one site.
+     */
+    interface SiteRequest {
+        /**
+         * @param url url of the site
+         * @return future response of the site, cancelled once it is no longer needed
+         */
+        CompletableFuture<CnpOnlineResponse> send(String url);
+    }
+
+    private HedgedQuery(SiteRequest siteRequest, Properties config) {
+        this.siteRequest = siteRequest;
+        this.sites = querySites(config);
+        this.launched = new AtomicIntegerArray(sites.size());
+        this.requests = new AtomicReferenceArray<CompletableFuture<CnpOnlineResponse>>(sites.size());
+        this.results = new AtomicReferenceArray<Object>(sites.size());
+        answer.whenComplete((response, failure) -> cancelRequests());
+    }
+
+    /**
+     * @param siteRequest sends the queryTransaction request to a site
+     * @param config      configuration Properties to use for processing, left as it is
+     * @return future response, completed with the first definitive answer, with the not found answer when no
+     * site has the transaction, or exceptionally with a CnpOnlineException when no site answered. Cancelling it
+     * cancels the requests still in flight.
+     */
+    static CompletableFuture<CnpOnlineResponse> send(SiteRequest siteRequest, Properties config) {
+        HedgedQuery query = new HedgedQuery(siteRequest, config);
+        long hedgeMillis = Long.parseLong(config.getProperty("queryTransactionHedgeMillis", "0"));
+        query.launch(0);
+        for (int i = 1; i < query.sites.size(); i++) {
+            if (hedgeMillis <= 0) {
+                query.launch(i);
+            }
+            else {
+                int site = i;
+                hedgeTimer.schedule(() -> query.launch(site), hedgeMillis * i, TimeUnit.MILLISECONDS);
+            }
+        }
+        return query.answer;
+    }
+
+    /**
+     * @param request blocking request to a site
+     * @return site request running the blocking request on the bounded executor of queries
+     */
+    static SiteRequest blocking(Function<String, CnpOnlineResponse> request) {
+        return url -> CompletableFuture.supplyAsync(() -> request.apply(url), blockingRequests);
+    }
+
+    /**
+     * @param config configuration Properties to use for processing
+     * @return the longest a query can take when every site takes its full timeout, plus the hedge delays
+     */
+    static long maxWaitMillis(Properties config) {
+        int siteCount = querySites(config).size();
+        long timeout = Long.parseLong(config.getProperty("timeout", "120000"));
+        long hedgeMillis = Math.max(0, Long.parseLong(config.getProperty("queryTransactionHedgeMillis", "0")));
+        return timeout * siteCount + hedgeMillis * (siteCount - 1);
+    }
+
+    static List<String> querySites(Properties config) {
+        List<String> sites = new ArrayList<String>();
+        for (int x = 1; config.getProperty("multiSiteUrl" + x) != null; x++) {
+            sites.add(config.getProperty("multiSiteUrl" + x));
+        }
+        if (sites.isEmpty()) {
+            sites.add(config.getProperty("url"));
+        }
+        return sites;
+    }
+
+    private void launch(int site) {
+        if (answer.isDone() || !launched.compareAndSet(site, 0, 1)) {
+            return;
+        }
+        CompletableFuture<CnpOnlineResponse> request;
+        try {
+            request = siteRequest.send(sites.get(site));
+        }
+        catch (RuntimeException e) {
+            results.set(site, e);
+            onResult(site, e);
+            return;
+        }
+        requests.set(site, request);
+        if (answer.isDone()) {
+            // answered while this request was being sent, after the others were cancelled
+            request.cancel(false);
+        }
+        request.whenComplete((response, failure) -> {
+            Object result = failure != null ? failure : response;
+            results.set(site, result);
+            onResult(site, result);
+        });
+    }
+
+    private void cancelRequests() {
+        for (int i = 0; i < requests.length(); i++) {
+            CompletableFuture<CnpOnlineResponse> request = requests.get(i);
+            if (request != null) {
+                request.cancel(false);
+            }
+        }
+    }
+
+    private void onResult(int site, Object result) {
+        if (result instanceof CnpOnlineResponse && !isNotFound((CnpOnlineResponse) result)) {
+            answer.complete((CnpOnlineResponse) result);
+            return;
+        }
+        // no answer from this site, ask the next one without waiting for the hedge delay
+        for (int next = site + 1; next < sites.size(); next++) {
+            if (launched.get(next) == 0) {
+                launch(next);
+                break;
+            }
+        }
+        if (completed.incrementAndGet() == sites.size()) {
+            try {
+                answer.complete(notFoundAnywhere());
+            }
+            catch (CnpOnlineException e) {
+                answer.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static boolean isNotFound(CnpOnlineResponse response) {
+        return response.getTransactionResponse() != null
+                && response.getTransactionResponse().getValue() instanceof QueryTransactionResponse
+                && NOT_FOUND.equals(((QueryTransactionResponse) response.getTransactionResponse().getValue()).getResponse());
+    }
+
+    /* Every site has answered that it does not have the transaction, or could not be asked */
+    private CnpOnlineResponse notFoundAnywhere() {
+        CnpOnlineResponse notFound = null;
+        List<String> searched = new ArrayList<String>();
+        List<String> unavailable = new ArrayList<String>();
+        for (int i = 0; i < sites.size(); i++) {
+            Object result = results.get(i);
+            if (result instanceof CnpOnlineResponse) {
+                if (notFound == null) {
+                    notFound = (CnpOnlineResponse) result;
+                }
+                searched.add(sites.get(i));
+            }
+            else {
+                unavailable.add(sites.get(i));
+            }
+        }
+        if (notFound == null) {
+            throw new CnpOnlineException("Original transaction not found - Site/s unavailable");
+        }
+        if (!unavailable.isEmpty()) {
+            QueryTransactionResponse queryTxnResponse = (QueryTransactionResponse) notFound.getTransactionResponse().getValue();
+            queryTxnResponse.setMessage("Original transaction not found in " + String.join(", ", searched)
+                    + ". Site unavailable : " + String.join(", ", unavailable));
+        }
+        return notFound;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
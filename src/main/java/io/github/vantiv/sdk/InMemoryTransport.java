@@ -0,0 +1,67 @@
+package io.github.vantiv.sdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A transport that never touches the network: every request is answered in the calling thread by a Responder.
+ * It is meant for tests and for measuring what the SDK itself costs per transaction, marshalling, unmarshalling
+ * and failover bookkeeping included, without the cost of the network.
+ *
+ * <pre>
+ * CnpOnline cnp = new CnpOnline(config, InMemoryTransport.fixedResponse(
+ *         "&lt;cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'/&gt;"));
+ * </pre>
+ */
+public class InMemoryTransport implements CnpTransport {
+
+    private static final String CONTENT_TYPE = "text/xml; charset=UTF-8";
+
+    /**
+     * Answers a request, in place of a site.
+     */
+    public interface Responder {
+        /**
+         * @param url     url the request was sent to
+         * @param request xml of the request, UTF-8 encoded
+         * @return xml of the response, UTF-8 encoded
+         * @throws IOException to fail the request the way a connection failure would
+         */
+        byte[] respond(String url, byte[] request) throws IOException;
+    }
+
+    private final Responder responder;
+
+    public InMemoryTransport(Responder responder) {
+        this.responder = responder;
+    }
+
+    /**
+     * @param responseXml xml every request is answered with
+     * @return a transport answering every request with the same response
+     */
+    public static InMemoryTransport fixedResponse(String responseXml) {
+        byte[] response = responseXml.getBytes(StandardCharsets.UTF_8);
+        return new InMemoryTransport((url, request) -> response);
+    }
+
+    public Response send(String url, RequestBody body, String contentType, Properties configuration) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return new BufferedTransportResponse(200, "OK", CONTENT_TYPE, responder.respond(url, out.toByteArray()));
+    }
+
+    public CompletableFuture<Response> sendAsync(String url, byte[] body, String contentType, Properties configuration) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        try {
+            future.complete(new BufferedTransportResponse(200, "OK", CONTENT_TYPE, responder.respond(url, body)));
+        }
+        catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
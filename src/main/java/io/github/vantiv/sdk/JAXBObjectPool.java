@@ -0,0 +1,81 @@
+package io.github.vantiv.sdk;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.bind.JAXBException;
+
+/**
+ * A small pool of Marshaller or Unmarshaller instances. Neither is thread safe, but both are expensive enough
+ * to create that handing out idle instances beats creating one per request. A borrowed instance belongs to the
+ * caller until it is released, and the pool keeps at most maxIdle instances around between requests.
+ *
+ * Hits count borrows served by an idle instance, misses count borrows that had to create a new one.
+ */
+public class JAXBObjectPool<T> {
+
+    /* Creates a new pooled instance with its properties already set */
+    interface Factory<T> {
+        T create() throws JAXBException;
+    }
+
+    private final Queue<T> idle = new ConcurrentLinkedQueue<T>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Factory<T> factory;
+    private final int maxIdle;
+
+    JAXBObjectPool(Factory<T> factory, int maxIdle) {
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * @return an idle instance, or a newly created one when none is idle
+     * @throws JAXBException when a new instance could not be created
+     */
+    public T borrow() throws JAXBException {
+        T instance = idle.poll();
+        if (instance != null) {
+            idleCount.decrementAndGet();
+            hits.increment();
+            return instance;
+        }
+        misses.increment();
+        return factory.create();
+    }
+
+    /**
+     * Hands a borrowed instance back to the pool. It must not be used by the caller afterwards.
+     * @param instance instance previously returned by borrow
+     */
+    public void release(T instance) {
+        if (instance == null) {
+            return;
+        }
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(instance);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.vantiv.sdk;
+
+/**
+ * JDK Flight Recorder events of the SDK, so that a recording lines up slow transactions, site switches and batch
+ * file work with the GC pauses, safepoints and I/O of the JVM around them. Nothing is recorded, and next to
+ * nothing is spent, unless a recording with the events enabled is running.
+ *
+ * The events themselves are in {@code JfrRecorder}, which is built for Java 11 into the versioned part of the
+ * jar. The begin methods return null when the event is not recorded, and on JVMs older than 11, where that
+ * class is never loaded.
+ */
+final class JfrEvents {
+
+    private static final Recorder RECORDER = loadRecorder();
+
+    private JfrEvents() {
+    }
+
+    /* The half of the events compiled against jdk.jfr */
+    interface Recorder {
+        OnlineTransaction beginOnlineTransaction();
+
+        OnlineRequest beginOnlineRequest();
+
+        BatchTransaction beginBatchTransaction();
+
+        Pgp beginPgp();
+
+        ResponseFileTag beginResponseFileTag();
+
+        void siteSwitch(int fromSiteIndex, int toSiteIndex, String url, String reason);
+    }
+
+    interface OnlineTransaction {
+        void finish(String transactionType, String responseCode, Throwable failure);
+    }
+
+    interface OnlineRequest {
+        void finish(String transactionType, RequestTarget target, long requestBytes, long responseBytes,
+                    String responseCode, Throwable failure);
+    }
+
+    interface BatchTransaction {
+        void finish(String transactionType, TransactionCodeEnum status, int transactionCount);
+    }
+
+    interface Pgp {
+        void finish(String operation, String path, long bytes);
+    }
+
+    interface ResponseFileTag {
+        void finish(String tag, long charactersRead);
+    }
+
+    private static Recorder loadRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Recorder) Class.forName("io.github.vantiv.sdk.JfrRecorder").getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    static OnlineTransaction beginOnlineTransaction() {
+        return RECORDER != null ? RECORDER.beginOnlineTransaction() : null;
+    }
+
+    static OnlineRequest beginOnlineRequest() {
+        return RECORDER != null ? RECORDER.beginOnlineRequest() : null;
+    }
+
+    static BatchTransaction beginBatchTransaction() {
+        return RECORDER != null ? RECORDER.beginBatchTransaction() : null;
+    }
+
+    static Pgp beginPgp() {
+        return RECORDER != null ? RECORDER.beginPgp() : null;
+    }
+
+    static ResponseFileTag beginResponseFileTag() {
+        return RECORDER != null ? RECORDER.beginResponseFileTag() : null;
+    }
+
+    static void siteSwitch(int fromSiteIndex, int toSiteIndex, String url, String reason) {
+        if (RECORDER != null) {
+            RECORDER.siteSwitch(fromSiteIndex, toSiteIndex, url, reason);
+        }
+    }
+}
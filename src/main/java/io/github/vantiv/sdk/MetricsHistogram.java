@@ -0,0 +1,119 @@
+package io.github.vantiv.sdk;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values, such as latencies in microseconds or sizes in bytes. Like
+ * HdrHistogram, values are counted in log-linear buckets: every power of two is split into 64 buckets, so any
+ * value read back, percentiles included, is within about 1.5% of the value that was recorded. Values up to
+ * 2^36 are told apart, larger ones are counted as 2^36.
+ */
+public final class MetricsHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 36;
+    private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+    private static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+        counts.incrementAndGet(bucketIndex(clamped));
+        sum.add(clamped);
+        long currentMax;
+        while (clamped > (currentMax = max.get()) && !max.compareAndSet(currentMax, clamped)) {
+            // another thread raised the max, look again
+        }
+    }
+
+    /**
+     * @return a copy of the histogram, later records do not change it
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum(), max.get());
+    }
+
+    /* Values below 2 * SUB_BUCKETS have a bucket each, above that every power of two has SUB_BUCKETS buckets */
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /* Lowest value counted in the bucket */
+    static long bucketValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile between 0 and 100, such as 99.9
+         * @return the value that percentile of the recorded values are at or below, 0 when nothing was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+            if (rank >= count) {
+                return max;
+            }
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketValue(i), max);
+                }
+            }
+            return max;
+        }
+
+        public String toString() {
+            return "count=" + count + " mean=" + Math.round(getMean()) + " p50=" + getValueAtPercentile(50)
+                    + " p99=" + getValueAtPercentile(99) + " p99.9=" + getValueAtPercentile(99.9) + " max=" + max;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.vantiv.sdk;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * A SAX filter that rewrites one namespace uri into another while the document is parsed.
+ *
+ * OpenAccess and possibly VAP return the online namespace with an extra "/online"
+ * (http://www.vantivcnp.com/schema/online), which this filter maps back onto http://www.vantivcnp.com/schema
+ * so the response can be unmarshalled without first rewriting it as a String.
+ */
+class NamespaceRemappingFilter extends XMLFilterImpl {
+
+    static final String LEGACY_ONLINE_NAMESPACE = "http://www.vantivcnp.com/schema/online";
+    static final String CNP_NAMESPACE = "http://www.vantivcnp.com/schema";
+
+    private final String fromUri;
+    private final String toUri;
+
+    NamespaceRemappingFilter(XMLReader parent) {
+        this(parent, LEGACY_ONLINE_NAMESPACE, CNP_NAMESPACE);
+    }
+
+    NamespaceRemappingFilter(XMLReader parent, String fromUri, String toUri) {
+        super(parent);
+        this.fromUri = fromUri;
+        this.toUri = toUri;
+    }
+
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        super.startPrefixMapping(prefix, remap(uri));
+    }
+
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        super.startElement(remap(uri), localName, qName, remapAttributes(atts));
+    }
+
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        super.endElement(remap(uri), localName, qName);
+    }
+
+    private String remap(String uri) {
+        return fromUri.equals(uri) ? toUri : uri;
+    }
+
+    private Attributes remapAttributes(Attributes atts) {
+        AttributesImpl remapped = null;
+        for (int i = 0; i < atts.getLength(); i++) {
+            if (fromUri.equals(atts.getURI(i)) || fromUri.equals(atts.getValue(i))) {
+                if (remapped == null) {
+                    remapped = new AttributesImpl(atts);
+                }
+                remapped.setURI(i, remap(atts.getURI(i)));
+                remapped.setValue(i, remap(atts.getValue(i)));
+            }
+        }
+        return remapped == null ? atts : remapped;
+    }
+}
@@ -88,15 +88,25 @@ public class PgpHelper {
      */
     public static void decrypt(String inputFilepath, String outputFilepath, String privateKeyPath, String passphrase)
             throws IOException, PGPException {
-        InputStream decryptionInputStream = decryptionStream(inputFilepath, privateKeyPath, passphrase);
-        OutputStream fileOutputStream = new FileOutputStream(outputFilepath);
-        byte[] clearData = new byte[2097152];
-        int len;
-        while ((len = decryptionInputStream.read(clearData)) > 0) {
-            fileOutputStream.write(clearData, 0, len);
+        JfrEvents.Pgp event = JfrEvents.beginPgp();
+        long decrypted = 0;
+        try {
+            InputStream decryptionInputStream = decryptionStream(inputFilepath, privateKeyPath, passphrase);
+            OutputStream fileOutputStream = new FileOutputStream(outputFilepath);
+            byte[] clearData = new byte[2097152];
+            int len;
+            while ((len = decryptionInputStream.read(clearData)) > 0) {
+                fileOutputStream.write(clearData, 0, len);
+                decrypted += len;
+            }
+            fileOutputStream.close();
+            decryptionInputStream.close();
+        }
+        finally {
+            if (event != null) {
+                event.finish("decrypt", inputFilepath, decrypted);
+            }
         }
-        fileOutputStream.close();
-        decryptionInputStream.close();
     }
 
 
@@ -180,15 +190,25 @@ public class PgpHelper {
      */
     public static void encrypt(String inputFilePath, String outputFilepath, String publicKeyPath)
             throws IOException, PGPException {
-        OutputStream encryptionOutputStream = encryptionStream(outputFilepath, publicKeyPath);
-        InputStream fileInputStream = new FileInputStream(inputFilePath);
-        byte[] clearData = new byte[2097152];
-        int len;
-        while ((len = fileInputStream.read(clearData)) > 0) {
-            encryptionOutputStream.write(clearData, 0, len);
+        JfrEvents.Pgp event = JfrEvents.beginPgp();
+        long encrypted = 0;
+        try {
+            OutputStream encryptionOutputStream = encryptionStream(outputFilepath, publicKeyPath);
+            InputStream fileInputStream = new FileInputStream(inputFilePath);
+            byte[] clearData = new byte[2097152];
+            int len;
+            while ((len = fileInputStream.read(clearData)) > 0) {
+                encryptionOutputStream.write(clearData, 0, len);
+                encrypted += len;
+            }
+            encryptionOutputStream.close();
+            fileInputStream.close();
+        }
+        finally {
+            if (event != null) {
+                event.finish("encrypt", inputFilePath, encrypted);
+            }
         }
-        encryptionOutputStream.close();
-        fileInputStream.close();
     }
 
 
@@ -0,0 +1,190 @@
+package io.github.vantiv.sdk;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import io.github.vantiv.sdk.CnpMetrics.Phase;
+
+/**
+ * Collects the phases of one online request for {@link CnpMetrics} and its Flight Recorder event. A blocking
+ * request is also the current one of its thread while it is sent, so the Apache transport can add the connection
+ * phases it sees from the pool. When metrics are off and the event is not recorded every request shares the
+ * DISABLED instance, which records nothing.
+ */
+class RequestTimings {
+
+    static final RequestTimings DISABLED = new RequestTimings(null, false, null);
+
+    private static final ThreadLocal<RequestTimings> current = new ThreadLocal<RequestTimings>();
+
+    private final String transactionType;
+    private final boolean metrics;
+    private final JfrEvents.OnlineRequest event;
+    private final long start = System.nanoTime();
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long requestBytes;
+    private long responseBytes;
+    private long sendStart;
+    private long marshalBeforeSend;
+    private RequestTarget target;
+
+    private RequestTimings(String transactionType, boolean metrics, JfrEvents.OnlineRequest event) {
+        this.transactionType = transactionType;
+        this.metrics = metrics;
+        this.event = event;
+    }
+
+    /**
+     * @param transactionType element name of the transaction
+     * @param configuration   configuration Properties to use for processing
+     * @param blocking        whether the request is sent on the calling thread, which makes it the current one
+     * @return timings of the request, DISABLED unless metrics are on or the event is recorded
+     */
+    static RequestTimings start(String transactionType, Properties configuration, boolean blocking) {
+        boolean metrics = "true".equalsIgnoreCase(configuration.getProperty("metrics"));
+        JfrEvents.OnlineRequest event = JfrEvents.beginOnlineRequest();
+        if (!metrics && event == null) {
+            return DISABLED;
+        }
+        RequestTimings timings = new RequestTimings(transactionType, metrics, event);
+        if (blocking) {
+            current.set(timings);
+        }
+        return timings;
+    }
+
+    /* Adds to a phase of the request the calling thread is sending, if it is measured */
+    static void recordCurrent(Phase phase, long nanos) {
+        RequestTimings timings = current.get();
+        if (timings != null) {
+            timings.phaseNanos[phase.ordinal()] += nanos;
+        }
+    }
+
+    void add(Phase phase, long nanos) {
+        if (this != DISABLED) {
+            phaseNanos[phase.ordinal()] += nanos;
+        }
+    }
+
+    /* Times writing the body as MARSHAL and counts its bytes */
+    CnpTransport.RequestBody timed(CnpTransport.RequestBody body) {
+        if (this == DISABLED) {
+            return body;
+        }
+        return out -> {
+            long writeStart = System.nanoTime();
+            try {
+                body.writeTo(new FilterOutputStream(out) {
+                    public void write(int b) throws IOException {
+                        out.write(b);
+                        requestBytes++;
+                    }
+
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                        requestBytes += len;
+                    }
+                });
+            }
+            finally {
+                add(Phase.MARSHAL, System.nanoTime() - writeStart);
+            }
+        };
+    }
+
+    /* Counts the bytes read from the response body */
+    CnpTransport.Response counted(CnpTransport.Response response) {
+        if (this == DISABLED) {
+            return response;
+        }
+        return new CnpTransport.Response() {
+            public int getStatusCode() {
+                return response.getStatusCode();
+            }
+
+            public String getReasonPhrase() {
+                return response.getReasonPhrase();
+            }
+
+            public String getContentType() {
+                return response.getContentType();
+            }
+
+            public InputStream getBody() throws IOException {
+                return new FilterInputStream(response.getBody()) {
+                    public int read() throws IOException {
+                        int b = in.read();
+                        if (b != -1) {
+                            responseBytes++;
+                        }
+                        return b;
+                    }
+
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int read = in.read(b, off, len);
+                        if (read > 0) {
+                            responseBytes += read;
+                        }
+                        return read;
+                    }
+                };
+            }
+
+            public void close() throws IOException {
+                response.close();
+            }
+        };
+    }
+
+    /* The site the request is sent to */
+    void target(RequestTarget target) {
+        if (this != DISABLED) {
+            this.target = target;
+        }
+    }
+
+    void sendStarted() {
+        if (this == DISABLED) {
+            return;
+        }
+        sendStart = System.nanoTime();
+        marshalBeforeSend = phaseNanos[Phase.MARSHAL.ordinal()];
+    }
+
+    /* Whatever part of sending the request was not marshalling or getting a connection was the gateway's */
+    void sendCompleted() {
+        if (this == DISABLED) {
+            return;
+        }
+        long marshalDuringSend = phaseNanos[Phase.MARSHAL.ordinal()] - marshalBeforeSend;
+        long server = System.nanoTime() - sendStart - marshalDuringSend
+                - phaseNanos[Phase.CONNECTION_LEASE.ordinal()] - phaseNanos[Phase.CONNECT.ordinal()];
+        phaseNanos[Phase.SERVER.ordinal()] = Math.max(0, server);
+    }
+
+    /**
+     * Records the request in CnpMetrics and commits its event.
+     * @param responseCode see {@link CnpMetrics.Sample#getResponseCode()}
+     * @param failure      what the request failed with, null if it did not
+     */
+    void finish(String responseCode, Throwable failure) {
+        if (this == DISABLED) {
+            return;
+        }
+        if (current.get() == this) {
+            current.remove();
+        }
+        if (metrics) {
+            phaseNanos[Phase.TOTAL.ordinal()] = System.nanoTime() - start;
+            CnpMetrics.record(new CnpMetrics.Sample(transactionType, phaseNanos.clone(), requestBytes, responseBytes, responseCode, failure));
+        }
+        if (event != null) {
+            event.finish(transactionType, target, requestBytes, responseBytes, responseCode, failure);
+        }
+    }
+}
@@ -23,6 +23,7 @@ public class ResponseFileParser implements AutoCloseable {
     private InputStream in = null;
     private Reader reader = null;
     private Reader buffer = null;
+    private long charactersRead = 0;
 
     public ResponseFileParser(File responseFile) {
         try {
@@ -36,6 +37,19 @@ public class ResponseFileParser implements AutoCloseable {
     }
 
     public String getNextTag(String tagToLookFor) throws Exception {
+        JfrEvents.ResponseFileTag event = JfrEvents.beginResponseFileTag();
+        if (event == null) {
+            return readNextTag(tagToLookFor);
+        }
+        long charactersBefore = charactersRead;
+        try {
+            return readNextTag(tagToLookFor);
+        } finally {
+            event.finish(tagToLookFor, charactersRead - charactersBefore);
+        }
+    }
+
+    private String readNextTag(String tagToLookFor) throws Exception {
         StringBuilder currentStartingTagInFile = new StringBuilder();
         StringBuilder retStringBuf = new StringBuilder();
         StringBuilder currentEndingTagInFile = new StringBuilder();
@@ -51,6 +65,7 @@ public class ResponseFileParser implements AutoCloseable {
 
         int r;
         while ((r = buffer.read()) != -1) {
+            charactersRead++;
             char ch = (char) r;
 
             if (startRecordingRetString) {
@@ -0,0 +1,157 @@
+package io.github.vantiv.sdk;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker for one multi-site url.
+ *
+ * While CLOSED every request goes through and its outcome is recorded in a sliding window of the last
+ * windowSize requests. The breaker OPENs when the consecutive failures reach the error threshold, or when at
+ * least minimumCalls are in the window and the share of failures reaches the failure rate threshold. Responses
+ * slower than the slow call threshold count as failures, so a site that answers but takes too long trips the
+ * breaker too. While OPEN no request is allowed; once openMillis have passed the breaker goes HALF_OPEN and
+ * lets a single probe request through, which closes it again on success or re-opens it on failure.
+ *
+ * All state is kept in atomics so that recording outcomes does not make requests wait on each other.
+ */
+class SiteCircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int EMPTY = 0;
+    private static final int SUCCESS = 1;
+    private static final int FAILURE = 2;
+
+    private final int errorThreshold;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openMillis;
+    private final long slowCallMillis;
+
+    private final AtomicIntegerArray window;
+    private final AtomicLong windowCursor = new AtomicLong();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final AtomicInteger state = new AtomicInteger(State.CLOSED.ordinal());
+    // when the breaker last opened while OPEN, when the probe was let through while HALF_OPEN
+    private final AtomicLong stateChangedAt = new AtomicLong();
+
+    /**
+     * @param errorThreshold       consecutive failures that open the breaker
+     * @param failureRateThreshold percentage of failures in the window that opens the breaker
+     * @param windowSize           number of most recent requests the failure rate is taken over
+     * @param minimumCalls         requests needed in the window before the failure rate is considered
+     * @param openMillis           time the breaker stays open before it lets a probe through
+     * @param slowCallMillis       responses taking longer than this count as failures, 0 to disable
+     */
+    SiteCircuitBreaker(int errorThreshold, int failureRateThreshold, int windowSize, int minimumCalls,
+                       long openMillis, long slowCallMillis) {
+        this.errorThreshold = errorThreshold;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openMillis = openMillis;
+        this.slowCallMillis = slowCallMillis;
+        this.window = new AtomicIntegerArray(windowSize);
+    }
+
+    /**
+     * @param now current time in milliseconds
+     * @return true when a request may be sent to the site now, a HALF_OPEN breaker allows only the one probe
+     */
+    boolean allowRequest(long now) {
+        State current = getState();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        long changedAt = stateChangedAt.get();
+        if (now - changedAt < openMillis) {
+            return false;
+        }
+        // open long enough, or the last probe never came back: let exactly one request through as the probe
+        if (stateChangedAt.compareAndSet(changedAt, now)) {
+            state.compareAndSet(current.ordinal(), State.HALF_OPEN.ordinal());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param elapsedMillis time the request took
+     */
+    void onSuccess(long elapsedMillis) {
+        if (slowCallMillis > 0 && elapsedMillis > slowCallMillis) {
+            onFailure();
+            return;
+        }
+        consecutiveFailures.set(0);
+        record(SUCCESS);
+        if (getState() != State.CLOSED) {
+            close();
+        }
+    }
+
+    void onFailure() {
+        int consecutive = consecutiveFailures.incrementAndGet();
+        record(FAILURE);
+        State current = getState();
+        if (current == State.HALF_OPEN) {
+            open(current);
+        }
+        else if (current == State.CLOSED && (consecutive >= errorThreshold || failureRateReached())) {
+            open(current);
+        }
+    }
+
+    State getState() {
+        return State.values()[state.get()];
+    }
+
+    int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    int getWindowFailures() {
+        return count(FAILURE);
+    }
+
+    int getWindowCalls() {
+        return count(SUCCESS) + count(FAILURE);
+    }
+
+    /* Only evaluated when a request fails, the window is small enough to simply be counted */
+    private boolean failureRateReached() {
+        int failures = count(FAILURE);
+        int calls = failures + count(SUCCESS);
+        return calls >= minimumCalls && failures * 100 >= failureRateThreshold * calls;
+    }
+
+    private int count(int outcome) {
+        int count = 0;
+        for (int i = 0; i < window.length(); i++) {
+            if (window.get(i) == outcome) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void open(State from) {
+        if (state.compareAndSet(from.ordinal(), State.OPEN.ordinal())) {
+            stateChangedAt.set(System.currentTimeMillis());
+        }
+    }
+
+    private void close() {
+        state.set(State.CLOSED.ordinal());
+        // start the closed period with a clean window so old failures do not trip it straight away
+        for (int i = 0; i < window.length(); i++) {
+            window.set(i, EMPTY);
+        }
+    }
+
+    private void record(int outcome) {
+        window.set((int) (windowCursor.getAndIncrement() % window.length()), outcome);
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.vantiv.sdk;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exponentially weighted moving averages of the latency and error rate of one multi-site url, used by
+ * CommManager to route requests to the site that is currently answering best. Every new sample moves an
+ * average ALPHA of the way towards it, so a site that slows down or starts failing is noticed within a
+ * handful of requests.
+ *
+ * Averages also decay towards zero with a half-life of DECAY_HALF_LIFE_MILLIS while a site gets no samples.
+ * A site that stopped receiving traffic after a slow spell, a single long timeout for instance, therefore
+ * looks cheaper as time goes by until it is tried again, instead of being judged by that spell forever.
+ *
+ * The averages and the time of the last sample are held as one immutable snapshot in an AtomicReference
+ * and updated with compare-and-set.
+ */
+class SiteStats {
+
+    static final double ALPHA = 0.3;
+
+    static final long DECAY_HALF_LIFE_MILLIS = 60000;
+
+    // how much a failing request weighs against a site compared to a slow one
+    private static final double ERROR_PENALTY = 10;
+
+    private final AtomicReference<Averages> averages = new AtomicReference<Averages>(new Averages(-1, 0, 0));
+
+    /**
+     * @param elapsedMillis time from sending the request to receiving the response
+     * @param failed        whether the response was an error
+     */
+    void recordResponse(long elapsedMillis, boolean failed) {
+        recordResponse(elapsedMillis, failed, System.currentTimeMillis());
+    }
+
+    void recordResponse(long elapsedMillis, boolean failed, long now) {
+        update(elapsedMillis, failed ? 1 : 0, now);
+    }
+
+    /**
+     * @param elapsedMillis time until the request failed, a timeout also tells how slow the site is
+     * @param timedOut      whether the request timed out rather than failed to connect
+     */
+    void recordFailure(long elapsedMillis, boolean timedOut) {
+        recordFailure(elapsedMillis, timedOut, System.currentTimeMillis());
+    }
+
+    void recordFailure(long elapsedMillis, boolean timedOut, long now) {
+        update(timedOut ? elapsedMillis : -1, 1, now);
+    }
+
+    /**
+     * @return average latency in milliseconds, 0 while there is no sample so an unknown site gets tried
+     */
+    double getLatency(long now) {
+        Averages current = averages.get();
+        return Math.max(0, current.latency) * current.decay(now);
+    }
+
+    double getErrorRate(long now) {
+        Averages current = averages.get();
+        return current.errorRate * current.decay(now);
+    }
+
+    /**
+     * @return lower is better, the latency inflated by the error rate
+     */
+    double cost(long now) {
+        Averages current = averages.get();
+        double decay = current.decay(now);
+        return (Math.max(0, current.latency) * decay + 1) * (1 + ERROR_PENALTY * current.errorRate * decay);
+    }
+
+    /*
+     * A negative latency sample leaves the latency alone, the first one replaces the missing average outright.
+     */
+    private void update(double latencySample, double errorSample, long now) {
+        Averages current;
+        Averages next;
+        do {
+            current = averages.get();
+            double decay = current.decay(now);
+            double latency = current.latency * decay;
+            if ( latencySample >= 0 ) {
+                latency = current.latency < 0 ? latencySample : latency + ALPHA * (latencySample - latency);
+            }
+            else if ( current.latency < 0 ) {
+                latency = -1;
+            }
+            double errorRate = current.errorRate * decay;
+            next = new Averages(latency, errorRate + ALPHA * (errorSample - errorRate), Math.max(now, current.sampleTime));
+        } while ( !averages.compareAndSet(current, next) );
+    }
+
+    private static final class Averages {
+        final double latency;
+        final double errorRate;
+        final long sampleTime;
+
+        Averages(double latency, double errorRate, long sampleTime) {
+            this.latency = latency;
+            this.errorRate = errorRate;
+            this.sampleTime = sampleTime;
+        }
+
+        double decay(long now) {
+            long age = now - sampleTime;
+            return age <= 0 ? 1 : Math.pow(0.5, (double) age / DECAY_HALF_LIFE_MILLIS);
+        }
+    }
+}
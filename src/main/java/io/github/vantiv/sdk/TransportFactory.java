@@ -0,0 +1,113 @@
+package io.github.vantiv.sdk;
+
+import java.security.GeneralSecurityException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
+import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.config.Registry;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.ssl.SSLContexts;
+
+/**
+ * TLS setup shared by the http clients the SDK creates. Connections that come from one SSLContext also share its
+ * client session cache, so a new connection to a site any CnpOnline, CnpBatchFileRequest or CnpRFRFileRequest has
+ * talked to before can resume the TLS session with an abbreviated handshake instead of a full one.
+ *
+ * The session cache is sized with the sslSessionCacheSize property and sessions expire after sslSessionTimeout
+ * seconds. Configurations that set neither share one SSLContext with the defaults. Those that set either get an
+ * SSLContext of their own, shared only with configurations that have the same settings, so one configuration
+ * never changes the session cache of another.
+ */
+final class TransportFactory {
+
+    static final int DEFAULT_SESSION_CACHE_SIZE = 1000;
+    static final int DEFAULT_SESSION_TIMEOUT = 3600;
+
+    private static final ConcurrentMap<String, Tls> configured = new ConcurrentHashMap<String, Tls>();
+
+    private TransportFactory() {
+    }
+
+    /**
+     * The SSLContext for one set of session cache settings and the socket factories built on it.
+     */
+    static final class Tls {
+        private final SSLContext sslContext;
+        private final Registry<ConnectionSocketFactory> socketFactoryRegistry;
+        private final TlsStrategy tlsStrategy;
+
+        private Tls(int sessionCacheSize, int sessionTimeout) {
+            sslContext = createSslContext(sessionCacheSize, sessionTimeout);
+            socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", new SSLConnectionSocketFactory(sslContext))
+                    .build();
+            tlsStrategy = ClientTlsStrategyBuilder.create().setSslContext(sslContext).build();
+        }
+
+        SSLContext getSslContext() {
+            return sslContext;
+        }
+
+        /**
+         * @return the http and https socket factories for the classic client's connection managers
+         */
+        Registry<ConnectionSocketFactory> getSocketFactoryRegistry() {
+            return socketFactoryRegistry;
+        }
+
+        /**
+         * @return the TLS strategy for the async client's connection managers
+         */
+        TlsStrategy getTlsStrategy() {
+            return tlsStrategy;
+        }
+    }
+
+    /* Created on first use, by whichever thread gets there first */
+    private static class Holder {
+        private static final Tls shared = new Tls(DEFAULT_SESSION_CACHE_SIZE, DEFAULT_SESSION_TIMEOUT);
+    }
+
+    private static SSLContext createSslContext(int sessionCacheSize, int sessionTimeout) {
+        try {
+            String protocol = Communication.getBestProtocol(SSLContext.getDefault().getSupportedSSLParameters().getProtocols());
+            if (protocol == null) {
+                throw new IllegalStateException("No supported TLS protocols available");
+            }
+            SSLContext sslContext = SSLContexts.custom().setProtocol(protocol).build();
+            sslContext.getClientSessionContext().setSessionCacheSize(sessionCacheSize);
+            sslContext.getClientSessionContext().setSessionTimeout(sessionTimeout);
+            return sslContext;
+        }
+        catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * @param configuration configuration Properties to use for processing
+     * @return the TLS setup for the session cache settings of the configuration
+     */
+    static Tls forConfiguration(Properties configuration) {
+        String cacheSize = configuration.getProperty("sslSessionCacheSize");
+        String timeout = configuration.getProperty("sslSessionTimeout");
+        if (cacheSize == null && timeout == null) {
+            return Holder.shared;
+        }
+        int sessionCacheSize = cacheSize != null ? Integer.parseInt(cacheSize) : DEFAULT_SESSION_CACHE_SIZE;
+        int sessionTimeout = timeout != null ? Integer.parseInt(timeout) : DEFAULT_SESSION_TIMEOUT;
+        if (sessionCacheSize == DEFAULT_SESSION_CACHE_SIZE && sessionTimeout == DEFAULT_SESSION_TIMEOUT) {
+            return Holder.shared;
+        }
+        return configured.computeIfAbsent(sessionCacheSize + "|" + sessionTimeout, key -> new Tls(sessionCacheSize, sessionTimeout));
+    }
+}
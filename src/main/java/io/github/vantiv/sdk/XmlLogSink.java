@@ -0,0 +1,139 @@
+package io.github.vantiv.sdk;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prints the xml of online requests and responses when printxml is on. With printxmlAsync (default true) the
+ * request thread only puts the raw xml on a bounded queue, and a background thread masks it, when neuterXml is
+ * on, and prints it to System.out. When the queue is full the xml is dropped rather than holding up the
+ * request, and the number of dropped lines is printed once the queue has room again. The queue holds
+ * printxmlQueueSize lines, as configured by the first configuration that prints anything.
+ *
+ * Lines still queued when the JVM shuts down are printed by a shutdown hook.
+ */
+final class XmlLogSink {
+
+    static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    private static volatile XmlLogSink instance;
+
+    private final BlockingQueue<Object> queue;
+    private final AtomicLong dropped = new AtomicLong();
+
+    /* A line to print, masked and decoded only once it is printed */
+    private static final class Entry {
+        final String label;
+        final byte[] xml;
+        final Charset charset;
+        final XmlMasker masker;
+
+        Entry(String label, byte[] xml, Charset charset, XmlMasker masker) {
+            this.label = label;
+            this.xml = xml;
+            this.charset = charset;
+            this.masker = masker;
+        }
+    }
+
+    private XmlLogSink(int queueSize) {
+        queue = new ArrayBlockingQueue<Object>(queueSize);
+        Thread writer = new Thread(this::drain, "cnp-printxml");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::printQueued, "cnp-printxml-shutdown"));
+    }
+
+    static XmlLogSink instance(int queueSize) {
+        if (instance == null) {
+            synchronized (XmlLogSink.class) {
+                if (instance == null) {
+                    instance = new XmlLogSink(queueSize);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Prints label followed by the xml, masked when neuterXml is on, right away or from the background thread.
+     * @param label         what the xml is, such as "Request XML: "
+     * @param xml           xml to print, which must not be modified afterwards
+     * @param charset       encoding of the xml
+     * @param configuration configuration Properties to use for processing
+     */
+    static void log(String label, byte[] xml, Charset charset, Properties configuration) {
+        XmlMasker masker = "true".equalsIgnoreCase(configuration.getProperty("neuterXml")) ? XmlMasker.forConfig(configuration) : null;
+        Entry entry = new Entry(label, xml, charset, masker);
+        if (!Boolean.valueOf(configuration.getProperty("printxmlAsync", "true"))) {
+            print(entry);
+            return;
+        }
+        XmlLogSink sink = instance(Integer.parseInt(configuration.getProperty("printxmlQueueSize", String.valueOf(DEFAULT_QUEUE_SIZE))));
+        if (!sink.queue.offer(entry)) {
+            sink.dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Waits until everything logged so far has been printed.
+     */
+    void flush(long timeoutMillis) throws InterruptedException {
+        CountDownLatch printed = new CountDownLatch(1);
+        if (queue.offer(printed, timeoutMillis, TimeUnit.MILLISECONDS)) {
+            printed.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            try {
+                printNext(queue.take());
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            catch (RuntimeException e) {
+                // a line that cannot be printed is lost, the ones after it are not
+            }
+        }
+    }
+
+    private void printQueued() {
+        Object next;
+        while ((next = queue.poll()) != null) {
+            printNext(next);
+        }
+    }
+
+    private void printNext(Object next) {
+        if (next instanceof CountDownLatch) {
+            ((CountDownLatch) next).countDown();
+            return;
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            System.out.println("printxml queue full, " + lost + " xml lines not printed");
+        }
+        print((Entry) next);
+    }
+
+    private static void print(Entry entry) {
+        String xml;
+        if (entry.masker != null) {
+            ByteArrayOutputStream masked = new ByteArrayOutputStream(entry.xml.length);
+            entry.masker.mask(entry.xml, 0, entry.xml.length, masked);
+            xml = new String(masked.toByteArray(), entry.charset);
+        }
+        else {
+            xml = new String(entry.xml, entry.charset);
+        }
+        System.out.println(entry.label + xml);
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.vantiv.sdk;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Replaces the content of sensitive elements, such as {@code <number>4100000000000000</number>}, with NEUTERED
+ * before xml is logged. The xml is scanned once, byte by byte, and every element is masked on its own, so text
+ * between two sensitive elements is left as it is. Element names are ASCII, so this works on UTF-8 and any other
+ * ASCII compatible encoding without decoding the xml.
+ *
+ * The elements masked are accNum, user, password, track, number and cardValidationNum, or the comma separated
+ * names in the neuterXmlTags property.
+ */
+final class XmlMasker {
+
+    static final String MASK = "NEUTERED";
+    static final String DEFAULT_TAGS = "accNum,user,password,track,number,cardValidationNum";
+    static final XmlMasker DEFAULT = new XmlMasker(DEFAULT_TAGS);
+
+    private static final byte[] MASK_BYTES = MASK.getBytes(StandardCharsets.US_ASCII);
+    private static final ConcurrentMap<String, XmlMasker> maskers = new ConcurrentHashMap<String, XmlMasker>();
+
+    private final byte[][] tags;
+
+    /**
+     * @param tags comma separated names of the elements to mask
+     */
+    XmlMasker(String tags) {
+        List<byte[]> names = new ArrayList<byte[]>();
+        for (String tag : tags.split(",")) {
+            if (tag.trim().length() > 0) {
+                names.add(tag.trim().getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        this.tags = names.toArray(new byte[names.size()][]);
+    }
+
+    /**
+     * @param configuration configuration Properties to use for processing
+     * @return the masker for the neuterXmlTags of the configuration
+     */
+    static XmlMasker forConfig(Properties configuration) {
+        String tags = configuration.getProperty("neuterXmlTags");
+        if (tags == null) {
+            return DEFAULT;
+        }
+        return maskers.computeIfAbsent(tags, XmlMasker::new);
+    }
+
+    String mask(String xml) {
+        if (xml == null) {
+            return null;
+        }
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+        mask(bytes, 0, bytes.length, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the xml to out with the content of every sensitive element replaced. An element that is never
+     * closed has everything after its start tag replaced.
+     */
+    void mask(byte[] xml, int off, int len, ByteArrayOutputStream out) {
+        int end = off + len;
+        int copyFrom = off;
+        int i = off;
+        while (i < end) {
+            if (xml[i++] != '<') {
+                continue;
+            }
+            byte[] tag = matchTag(xml, i, end);
+            if (tag == null) {
+                continue;
+            }
+            int contentStart = indexOf(xml, (byte) '>', i + tag.length, end) + 1;
+            if (contentStart == 0) {
+                break;
+            }
+            if (xml[contentStart - 2] == '/') {
+                // empty element, nothing to hide
+                i = contentStart;
+                continue;
+            }
+            out.write(xml, copyFrom, contentStart - copyFrom);
+            out.write(MASK_BYTES, 0, MASK_BYTES.length);
+            int contentEnd = indexOfEndTag(xml, tag, contentStart, end);
+            if (contentEnd < 0) {
+                return;
+            }
+            copyFrom = contentEnd;
+            i = contentEnd + tag.length + 3;
+        }
+        out.write(xml, copyFrom, end - copyFrom);
+    }
+
+    /* The sensitive element whose start tag name begins at start, which must be followed by '>', '/' or space */
+    private byte[] matchTag(byte[] xml, int start, int end) {
+        for (byte[] tag : tags) {
+            int after = start + tag.length;
+            if (after < end && regionMatches(xml, start, tag) && isNameEnd(xml[after])) {
+                return tag;
+            }
+        }
+        return null;
+    }
+
+    private static int indexOfEndTag(byte[] xml, byte[] tag, int from, int end) {
+        for (int i = from; (i = indexOf(xml, (byte) '<', i, end)) >= 0; i++) {
+            int after = i + 2 + tag.length;
+            if (after < end && xml[i + 1] == '/' && regionMatches(xml, i + 2, tag) && xml[after] == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(byte[] xml, int start, byte[] tag) {
+        for (int j = 0; j < tag.length; j++) {
+            if (xml[start + j] != tag[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] xml, byte b, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (xml[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isNameEnd(byte b) {
+        return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.vantiv.sdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hc.core5.http.NoHttpResponseException;
+
+/**
+ * A transport on the JDK's java.net.http.HttpClient, which negotiates HTTP/2 where the site offers it and is
+ * asynchronous without a separate client. It needs Java 11, so it is built into the Java 11 part of the
+ * multi-release jar, which may not add public classes, and is picked with the transport property jdk rather
+ * than created directly. The client keeps its own connection pool, shared with every other transport created for the
+ * same endpoint, so maxConnections, idleConnectionTimeout and keepWarmConnections do not apply to it.
+ */
+class JdkHttpTransport implements CnpTransport {
+
+    private static final ConcurrentMap<String, HttpClient> sharedHttpClients = new ConcurrentHashMap<>();
+
+    private final HttpClient httpClient;
+
+    /**
+     * @param configuration configuration Properties to use for processing
+     */
+    public JdkHttpTransport(Properties configuration) {
+        httpClient = sharedHttpClients.computeIfAbsent(ApacheHttpTransport.poolKey(configuration), key -> createHttpClient(configuration));
+    }
+
+    private static HttpClient createHttpClient(Properties configuration) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .sslContext(TransportFactory.forConfiguration(configuration).getSslContext())
+                .connectTimeout(Duration.ofMillis(Long.parseLong(configuration.getProperty("timeout", "120000"))));
+        if (ApacheHttpTransport.usesProxy(configuration)) {
+            builder.proxy(ProxySelector.of(new InetSocketAddress(configuration.getProperty("proxyHost"),
+                    Integer.parseInt(configuration.getProperty("proxyPort")))));
+        }
+        return builder.build();
+    }
+
+    private static HttpRequest createRequest(String url, HttpRequest.BodyPublisher body, String contentType, Properties configuration) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", contentType)
+                .timeout(Duration.ofMillis(Long.parseLong(configuration.getProperty("timeout", "120000"))))
+                .POST(body)
+                .build();
+    }
+
+    /**
+     * The request body is written to memory before it is sent, the JDK client has no way to stream it from a
+     * callback.
+     */
+    public Response send(String url, RequestBody body, String contentType, Properties configuration) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        HttpRequest request = createRequest(url, HttpRequest.BodyPublishers.ofByteArray(out.toByteArray()), contentType, configuration);
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            return new StreamedResponse(response);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        }
+        catch (IOException e) {
+            throw translate(e);
+        }
+    }
+
+    public CompletableFuture<Response> sendAsync(String url, byte[] body, String contentType, Properties configuration) {
+        HttpRequest request = createRequest(url, HttpRequest.BodyPublishers.ofByteArray(body), contentType, configuration);
+        CompletableFuture<HttpResponse<byte[]>> exchange = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        CompletableFuture<Response> future = exchange.handle((response, failure) -> {
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                throw new CompletionException(cause instanceof IOException ? translate((IOException) cause) : cause);
+            }
+            return new BufferedTransportResponse(response.statusCode(), null,
+                    response.headers().firstValue("Content-Type").orElse(null), response.body());
+        });
+        future.whenComplete((response, failure) -> {
+            if (future.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /* A site that was connected to but did not answer in time is reported the way the Apache client reports it */
+    private static IOException translate(IOException e) {
+        if (e instanceof HttpTimeoutException && !(e instanceof HttpConnectTimeoutException)) {
+            NoHttpResponseException timeout = new NoHttpResponseException(e.getMessage());
+            timeout.initCause(e);
+            return timeout;
+        }
+        return e;
+    }
+
+    private static class StreamedResponse implements Response {
+
+        private final HttpResponse<InputStream> response;
+
+        StreamedResponse(HttpResponse<InputStream> response) {
+            this.response = response;
+        }
+
+        public int getStatusCode() {
+            return response.statusCode();
+        }
+
+        public String getReasonPhrase() {
+            // HTTP/2 has no reason phrase and the JDK client does not expose the HTTP/1.1 one
+            return null;
+        }
+
+        public String getContentType() {
+            return response.headers().firstValue("Content-Type").orElse(null);
+        }
+
+        public InputStream getBody() {
+            return response.body();
+        }
+
+        /* Reads to the end of the body first, a stream closed early takes its connection with it */
+        public void close() throws IOException {
+            InputStream body = response.body();
+            try {
+                byte[] buffer = new byte[1024];
+                while (body.read(buffer) != -1) {
+                    // discard the rest of the body
+                }
+            }
+            finally {
+                body.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.vantiv.sdk;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The Flight Recorder events behind {@link JfrEvents}. jdk.jfr is not part of the Java 8 API, so this class is
+ * compiled for Java 11 and only loaded where it is available.
+ */
+final class JfrRecorder implements JfrEvents.Recorder {
+
+    private static final String CATEGORY = "Vantiv eCommerce SDK";
+
+    private static String name(Throwable failure) {
+        return failure == null ? null : failure.getClass().getName();
+    }
+
+    @Name("io.github.vantiv.sdk.OnlineTransaction")
+    @Label("Online Transaction")
+    @Category(CATEGORY)
+    @Description("An online transaction, from waiting for the concurrency limit to checking the response")
+    @StackTrace(false)
+    static final class OnlineTransaction extends Event implements JfrEvents.OnlineTransaction {
+        @Label("Transaction Type")
+        String transactionType;
+        @Label("Response Code")
+        String responseCode;
+        @Label("Failure")
+        String failure;
+
+        public void finish(String transactionType, String responseCode, Throwable failure) {
+            end();
+            if (shouldCommit()) {
+                this.transactionType = transactionType;
+                this.responseCode = responseCode;
+                this.failure = name(failure);
+                commit();
+            }
+        }
+    }
+
+    @Name("io.github.vantiv.sdk.OnlineRequest")
+    @Label("Online Request")
+    @Category(CATEGORY)
+    @Description("An online request sent to a site, from marshalling the request to unmarshalling the response")
+    @StackTrace(false)
+    static final class OnlineRequest extends Event implements JfrEvents.OnlineRequest {
+        @Label("Transaction Type")
+        String transactionType;
+        @Label("URL")
+        String url;
+        @Label("Site Index")
+        int siteIndex;
+        @Label("Request Size")
+        @DataAmount
+        long requestBytes;
+        @Label("Response Size")
+        @DataAmount
+        long responseBytes;
+        @Label("Response Code")
+        String responseCode;
+        @Label("Failure")
+        String failure;
+
+        public void finish(String transactionType, RequestTarget target, long requestBytes, long responseBytes,
+                    String responseCode, Throwable failure) {
+            end();
+            if (shouldCommit()) {
+                this.transactionType = transactionType;
+                this.url = target != null ? target.getUrl() : null;
+                this.siteIndex = target != null ? target.getUrlIndex() : -1;
+                this.requestBytes = requestBytes;
+                this.responseBytes = responseBytes;
+                this.responseCode = responseCode;
+                this.failure = name(failure);
+                commit();
+            }
+        }
+    }
+
+    @Name("io.github.vantiv.sdk.SiteSwitch")
+    @Label("Site Switch")
+    @Category(CATEGORY)
+    @Description("Multi site failover moved online requests to another site")
+    @StackTrace(false)
+    static final class SiteSwitch extends Event {
+        @Label("From Site Index")
+        int fromSiteIndex;
+        @Label("To Site Index")
+        int toSiteIndex;
+        @Label("To URL")
+        String url;
+        @Label("Reason")
+        String reason;
+    }
+
+    @Name("io.github.vantiv.sdk.BatchTransaction")
+    @Label("Batch Transaction")
+    @Category(CATEGORY)
+    @Description("A transaction marshalled into a batch request file")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class BatchTransaction extends Event implements JfrEvents.BatchTransaction {
+        @Label("Transaction Type")
+        String transactionType;
+        @Label("Status")
+        String status;
+        @Label("Transactions In Batch")
+        int transactionCount;
+
+        public void finish(String transactionType, TransactionCodeEnum status, int transactionCount) {
+            end();
+            if (shouldCommit()) {
+                this.transactionType = transactionType;
+                this.status = status != null ? status.name() : null;
+                this.transactionCount = transactionCount;
+                commit();
+            }
+        }
+    }
+
+    @Name("io.github.vantiv.sdk.Pgp")
+    @Label("PGP")
+    @Category(CATEGORY)
+    @Description("A file encrypted or decrypted with PGP")
+    @StackTrace(false)
+    static final class Pgp extends Event implements JfrEvents.Pgp {
+        @Label("Operation")
+        String operation;
+        @Label("File")
+        String path;
+        @Label("Clear Size")
+        @DataAmount
+        long bytes;
+
+        public void finish(String operation, String path, long bytes) {
+            end();
+            if (shouldCommit()) {
+                this.operation = operation;
+                this.path = path;
+                this.bytes = bytes;
+                commit();
+            }
+        }
+    }
+
+    @Name("io.github.vantiv.sdk.ResponseFileTag")
+    @Label("Response File Tag")
+    @Category(CATEGORY)
+    @Description("Reading the next element out of a batch response file")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class ResponseFileTag extends Event implements JfrEvents.ResponseFileTag {
+        @Label("Tag")
+        String tag;
+        @Label("Characters Read")
+        long charactersRead;
+
+        public void finish(String tag, long charactersRead) {
+            end();
+            if (shouldCommit()) {
+                this.tag = tag;
+                this.charactersRead = charactersRead;
+                commit();
+            }
+        }
+    }
+
+    public JfrEvents.OnlineTransaction beginOnlineTransaction() {
+        OnlineTransaction event = new OnlineTransaction();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public JfrEvents.OnlineRequest beginOnlineRequest() {
+        OnlineRequest event = new OnlineRequest();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public JfrEvents.BatchTransaction beginBatchTransaction() {
+        BatchTransaction event = new BatchTransaction();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public JfrEvents.Pgp beginPgp() {
+        Pgp event = new Pgp();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public JfrEvents.ResponseFileTag beginResponseFileTag() {
+        ResponseFileTag event = new ResponseFileTag();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public void siteSwitch(int fromSiteIndex, int toSiteIndex, String url, String reason) {
+        SiteSwitch event = new SiteSwitch();
+        if (event.shouldCommit()) {
+            event.fromSiteIndex = fromSiteIndex;
+            event.toSiteIndex = toSiteIndex;
+            event.url = url;
+            event.reason = reason;
+            event.commit();
+        }
+    }
+}
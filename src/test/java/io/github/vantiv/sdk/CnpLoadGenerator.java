@@ -0,0 +1,404 @@
+package io.github.vantiv.sdk;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import io.github.vantiv.sdk.generate.AuthReversal;
+import io.github.vantiv.sdk.generate.Authorization;
+import io.github.vantiv.sdk.generate.Capture;
+import io.github.vantiv.sdk.generate.CardType;
+import io.github.vantiv.sdk.generate.Credit;
+import io.github.vantiv.sdk.generate.MethodOfPaymentTypeEnum;
+import io.github.vantiv.sdk.generate.OrderSourceType;
+import io.github.vantiv.sdk.generate.Sale;
+import io.github.vantiv.sdk.generate.Void;
+
+/**
+ * An open loop load generator for CnpOnline. Requests are started on a schedule, at a fixed rate or with Poisson
+ * arrivals, whether or not earlier requests have completed, and response times are measured from the time each
+ * request was scheduled to start. A slow gateway or SDK therefore shows up in the percentiles instead of quietly
+ * lowering the load, as it does with threads that each wait for their previous request.
+ *
+ * Settings, given as key=value arguments or in the configuration, besides the usual SDK configuration:
+ * <ul>
+ * <li>loadRate: requests started per second, default 100</li>
+ * <li>loadArrivals: fixed or poisson, default fixed</li>
+ * <li>loadWarmupSeconds: seconds of load that are not reported, default 10</li>
+ * <li>loadDurationSeconds: seconds of load that are reported, default 60</li>
+ * <li>loadMix: transactions and their weights, default authorization:50,sale:30,capture:10,credit:5,void:3,authReversal:2</li>
+ * <li>loadConcurrency: most requests in flight, later ones wait in line, default 200</li>
+ * <li>loadStandInSites: when above 0 the load goes to a local CnpStandInServer with that many sites instead of
+ * the configured url, default 0</li>
+ * <li>loadStandInMedianMillis, loadStandInP99Millis: latency of the stand-in, default 20 and 100</li>
+ * </ul>
+ */
+public class CnpLoadGenerator {
+
+    private static final String DEFAULT_MIX = "authorization:50,sale:30,capture:10,credit:5,void:3,authReversal:2";
+
+    /**
+     * Sends one transaction of a kind.
+     */
+    interface Transaction {
+        Object send(CnpOnline cnpOnline, long sequence);
+    }
+
+    private static final Map<String, Transaction> TRANSACTIONS = new LinkedHashMap<String, Transaction>();
+
+    static {
+        TRANSACTIONS.put("authorization", (cnp, sequence) -> {
+            Authorization authorization = new Authorization();
+            authorization.setId("load" + sequence);
+            authorization.setReportGroup("load");
+            authorization.setOrderId("load-" + sequence);
+            authorization.setAmount(106L);
+            authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+            authorization.setCard(card());
+            return cnp.authorize(authorization);
+        });
+        TRANSACTIONS.put("sale", (cnp, sequence) -> {
+            Sale sale = new Sale();
+            sale.setId("load" + sequence);
+            sale.setReportGroup("load");
+            sale.setOrderId("load-" + sequence);
+            sale.setAmount(106L);
+            sale.setOrderSource(OrderSourceType.ECOMMERCE);
+            sale.setCard(card());
+            return cnp.sale(sale);
+        });
+        TRANSACTIONS.put("capture", (cnp, sequence) -> {
+            Capture capture = new Capture();
+            capture.setId("load" + sequence);
+            capture.setReportGroup("load");
+            capture.setCnpTxnId(84568456L);
+            capture.setAmount(106L);
+            return cnp.capture(capture);
+        });
+        TRANSACTIONS.put("credit", (cnp, sequence) -> {
+            Credit credit = new Credit();
+            credit.setId("load" + sequence);
+            credit.setReportGroup("load");
+            credit.setCnpTxnId(84568456L);
+            credit.setAmount(106L);
+            return cnp.credit(credit);
+        });
+        TRANSACTIONS.put("void", (cnp, sequence) -> {
+            Void v = new Void();
+            v.setId("load" + sequence);
+            v.setReportGroup("load");
+            v.setCnpTxnId(84568456L);
+            return cnp.dovoid(v);
+        });
+        TRANSACTIONS.put("authReversal", (cnp, sequence) -> {
+            AuthReversal reversal = new AuthReversal();
+            reversal.setId("load" + sequence);
+            reversal.setReportGroup("load");
+            reversal.setCnpTxnId(84568456L);
+            reversal.setAmount(106L);
+            return cnp.authReversal(reversal);
+        });
+    }
+
+    /**
+     * Results of one transaction kind, or of all of them.
+     */
+    public static class Result {
+
+        private final MetricsHistogram responseTime = new MetricsHistogram();
+        private final MetricsHistogram serviceTime = new MetricsHistogram();
+        private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<String, LongAdder>();
+
+        void record(long responseMicros, long serviceMicros, Throwable failure) {
+            responseTime.record(responseMicros);
+            serviceTime.record(serviceMicros);
+            if (failure != null) {
+                errors.computeIfAbsent(failure.getClass().getSimpleName(), name -> new LongAdder()).increment();
+            }
+        }
+
+        /**
+         * @return microseconds from the time each request was scheduled to start until it completed
+         */
+        public MetricsHistogram.Snapshot getResponseTime() {
+            return responseTime.snapshot();
+        }
+
+        /**
+         * @return microseconds from the time each request actually started until it completed
+         */
+        public MetricsHistogram.Snapshot getServiceTime() {
+            return serviceTime.snapshot();
+        }
+
+        /**
+         * @return number of failed requests by the simple class name of the exception
+         */
+        public Map<String, Long> getErrors() {
+            Map<String, Long> counts = new TreeMap<String, Long>();
+            for (Map.Entry<String, LongAdder> entry : errors.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().sum());
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Results of the measured part of a run.
+     */
+    public static class Report {
+
+        private final Result total;
+        private final Map<String, Result> transactions;
+        private final long intendedRequests;
+        private final double seconds;
+
+        Report(Result total, Map<String, Result> transactions, long intendedRequests, double seconds) {
+            this.total = total;
+            this.transactions = transactions;
+            this.intendedRequests = intendedRequests;
+            this.seconds = seconds;
+        }
+
+        public Result getTotal() {
+            return total;
+        }
+
+        public Map<String, Result> getTransactions() {
+            return transactions;
+        }
+
+        /**
+         * @return number of requests the schedule started while measuring
+         */
+        public long getIntendedRequests() {
+            return intendedRequests;
+        }
+
+        /**
+         * @return requests completed per second while measuring
+         */
+        public double getThroughput() {
+            return total.getResponseTime().getCount() / seconds;
+        }
+
+        public String toString() {
+            StringBuilder report = new StringBuilder(String.format("%d requests scheduled, %.1f completed per second%n",
+                    intendedRequests, getThroughput()));
+            report.append(String.format("%-14s %8s %8s %10s %10s %10s %10s %10s   %s%n",
+                    "transaction", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "service p99 ms"));
+            for (Map.Entry<String, Result> transaction : transactions.entrySet()) {
+                append(report, transaction.getKey(), transaction.getValue());
+            }
+            append(report, "all", total);
+            if (!total.getErrors().isEmpty()) {
+                report.append("errors: ").append(total.getErrors()).append(String.format("%n"));
+            }
+            return report.toString();
+        }
+
+        private static void append(StringBuilder report, String name, Result result) {
+            MetricsHistogram.Snapshot response = result.getResponseTime();
+            long errors = 0;
+            for (long count : result.getErrors().values()) {
+                errors += count;
+            }
+            report.append(String.format("%-14s %8d %8d %10.2f %10.2f %10.2f %10.2f %10.2f   %.2f%n", name, response.getCount(), errors,
+                    millis(response.getValueAtPercentile(50)), millis(response.getValueAtPercentile(90)),
+                    millis(response.getValueAtPercentile(99)), millis(response.getValueAtPercentile(99.9)),
+                    millis(response.getMax()), millis(result.getServiceTime().getValueAtPercentile(99))));
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+
+    /* Results being collected, replaced when the warm-up ends */
+    private static final class Phase {
+        final Result total = new Result();
+        final Map<String, Result> transactions = new LinkedHashMap<String, Result>();
+        final AtomicLong intended = new AtomicLong();
+
+        Phase(Iterable<String> names) {
+            for (String name : names) {
+                transactions.put(name, new Result());
+            }
+        }
+    }
+
+    private final Properties configuration;
+    private final double rate;
+    private final boolean poisson;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final int concurrency;
+    private final String[] mixNames;
+    private final double[] mixCumulative;
+
+    /**
+     * @param configuration SDK configuration, with the load settings described above
+     */
+    public CnpLoadGenerator(Properties configuration) {
+        this.configuration = configuration;
+        rate = Double.parseDouble(configuration.getProperty("loadRate", "100"));
+        poisson = "poisson".equalsIgnoreCase(configuration.getProperty("loadArrivals", "fixed"));
+        warmupNanos = TimeUnit.MILLISECONDS.toNanos((long) (Double.parseDouble(configuration.getProperty("loadWarmupSeconds", "10")) * 1000));
+        durationNanos = TimeUnit.MILLISECONDS.toNanos((long) (Double.parseDouble(configuration.getProperty("loadDurationSeconds", "60")) * 1000));
+        concurrency = Integer.parseInt(configuration.getProperty("loadConcurrency", "200"));
+
+        List<String> names = new ArrayList<String>();
+        List<Double> weights = new ArrayList<Double>();
+        double totalWeight = 0;
+        for (String entry : configuration.getProperty("loadMix", DEFAULT_MIX).split(",")) {
+            String[] nameAndWeight = entry.trim().split(":");
+            if (!TRANSACTIONS.containsKey(nameAndWeight[0])) {
+                throw new IllegalArgumentException("Unknown transaction " + nameAndWeight[0] + " in loadMix, known are " + TRANSACTIONS.keySet());
+            }
+            double weight = nameAndWeight.length > 1 ? Double.parseDouble(nameAndWeight[1]) : 1;
+            names.add(nameAndWeight[0]);
+            weights.add(weight);
+            totalWeight += weight;
+        }
+        mixNames = names.toArray(new String[0]);
+        mixCumulative = new double[mixNames.length];
+        double cumulative = 0;
+        for (int i = 0; i < mixNames.length; i++) {
+            cumulative += weights.get(i) / totalWeight;
+            mixCumulative[i] = cumulative;
+        }
+    }
+
+    /**
+     * Runs the warm-up and then the measured load, and waits for every request to complete.
+     * @return results of the measured load
+     */
+    public Report run() throws InterruptedException {
+        CnpOnline cnpOnline = new CnpOnline(configuration);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "cnp-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<String> mix = new ArrayList<String>();
+        for (String name : mixNames) {
+            if (!mix.contains(name)) {
+                mix.add(name);
+            }
+        }
+        Phase warmup = new Phase(mix);
+        Phase measured = new Phase(mix);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        double offset = 0;
+        long sequence = 0;
+        while (true) {
+            long intendedStart = start + (long) offset;
+            if (intendedStart >= end) {
+                break;
+            }
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Phase phase = intendedStart < measureFrom ? warmup : measured;
+            phase.intended.incrementAndGet();
+            String name = pick(random.nextDouble());
+            Transaction transaction = TRANSACTIONS.get(name);
+            Result result = phase.transactions.get(name);
+            long requestSequence = sequence++;
+            workers.execute(() -> {
+                long serviceStart = System.nanoTime();
+                Throwable failure = null;
+                try {
+                    transaction.send(cnpOnline, requestSequence);
+                }
+                catch (RuntimeException e) {
+                    failure = e;
+                }
+                long now = System.nanoTime();
+                long responseMicros = TimeUnit.NANOSECONDS.toMicros(now - intendedStart);
+                long serviceMicros = TimeUnit.NANOSECONDS.toMicros(now - serviceStart);
+                result.record(responseMicros, serviceMicros, failure);
+                phase.total.record(responseMicros, serviceMicros, failure);
+            });
+            offset += poisson ? -Math.log(1 - random.nextDouble()) * intervalNanos : intervalNanos;
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+        return new Report(measured.total, measured.transactions, measured.intended.get(), durationNanos / 1e9);
+    }
+
+    private String pick(double draw) {
+        for (int i = 0; i < mixCumulative.length; i++) {
+            if (draw < mixCumulative[i]) {
+                return mixNames[i];
+            }
+        }
+        return mixNames[mixNames.length - 1];
+    }
+
+    private static CardType card() {
+        CardType card = new CardType();
+        card.setType(MethodOfPaymentTypeEnum.VI);
+        card.setNumber("4100000000000000");
+        card.setExpDate("1210");
+        return card;
+    }
+
+    /**
+     * Runs the load against the configured endpoint, or a local stand-in, and prints the report.
+     * @param args load settings and configuration overrides as key=value
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Properties configuration = new Properties();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals > 0) {
+                configuration.setProperty(arg.substring(0, equals), arg.substring(equals + 1));
+            }
+        }
+        int standInSites = Integer.parseInt(configuration.getProperty("loadStandInSites", "0"));
+        CnpStandInServer standIn = null;
+        if (standInSites > 0) {
+            standIn = new CnpStandInServer(standInSites).setLatency(CnpStandInServer.logNormalLatency(
+                    Double.parseDouble(configuration.getProperty("loadStandInMedianMillis", "20")),
+                    Double.parseDouble(configuration.getProperty("loadStandInP99Millis", "100"))));
+            standIn.configure(configuration);
+        }
+        else {
+            Properties fileConfiguration = new Properties();
+            try (InputStream in = new FileInputStream(new Configuration().location())) {
+                fileConfiguration.load(in);
+            }
+            fileConfiguration.putAll(configuration);
+            configuration = fileConfiguration;
+        }
+        try {
+            System.out.print(new CnpLoadGenerator(configuration).run());
+        }
+        finally {
+            if (standIn != null) {
+                standIn.close();
+            }
+        }
+    }
+}
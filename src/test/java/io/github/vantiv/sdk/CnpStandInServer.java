@@ -0,0 +1,497 @@
+package io.github.vantiv.sdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementDecl;
+import javax.xml.bind.annotation.XmlSchemaType;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import io.github.vantiv.sdk.generate.CnpOnlineRequest;
+import io.github.vantiv.sdk.generate.CnpOnlineResponse;
+import io.github.vantiv.sdk.generate.ObjectFactory;
+import io.github.vantiv.sdk.generate.RecurringTransactionResponseType;
+import io.github.vantiv.sdk.generate.TransactionTypeWithReportGroup;
+
+/**
+ * A local stand-in for the cnpOnline endpoint, so the whole SDK stack can be benchmarked and soak tested without
+ * the prelive environment. Every site is its own HTTP, or HTTPS, server on a loopback port. Any cnpOnlineRequest
+ * is answered with an approved, schema valid response of the matching type, which echoes the id, customerId,
+ * reportGroup and orderId of the request.
+ *
+ * Latency, the rate of HTTP 500 errors, the rate of connection limit responses and outages of single sites can be
+ * changed while the server runs. A site that is down closes every connection without answering, as a failing
+ * site would. Delayed responses are written from a scheduler, so slow responses do not hold up handler threads.
+ */
+public class CnpStandInServer implements AutoCloseable {
+
+    /**
+     * How long the stand-in waits before answering a request.
+     */
+    public interface Latency {
+        long nextMicros(ThreadLocalRandom random);
+    }
+
+    private static final String CONTEXT = "/vap/communicator/online";
+    private static final ObjectFactory OBJECT_FACTORY = new ObjectFactory();
+    private static final Map<String, Method> RESPONSE_FACTORIES = responseFactories();
+    private static final DatatypeFactory DATATYPE_FACTORY = datatypeFactory();
+    // transactions that only batch files may hold, the online schema has no response for them
+    private static final Set<String> BATCH_ONLY = new HashSet<String>(Arrays.asList("accountUpdate", "echeckPreNoteSale", "echeckPreNoteCredit"));
+
+    private final List<HttpServer> sites = new ArrayList<HttpServer>();
+    private final Set<Integer> downSites = ConcurrentHashMap.newKeySet();
+    private final ExecutorService handlers;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong nextCnpTxnId = new AtomicLong(82820000000000001L);
+    private final LongAdder requests = new LongAdder();
+    private volatile Latency latency = fixedLatency(0);
+    private volatile double errorRate;
+    private volatile double connectionLimitRate;
+
+    /**
+     * Starts plain HTTP sites on free ports.
+     * @param siteCount number of sites
+     */
+    public CnpStandInServer(int siteCount) throws IOException {
+        this(new int[siteCount], null);
+    }
+
+    /**
+     * @param ports      port of every site, 0 for a free one
+     * @param sslContext SSLContext holding the certificate the sites present, null for plain HTTP
+     */
+    public CnpStandInServer(int[] ports, SSLContext sslContext) throws IOException {
+        // without TCP_NODELAY every response waits out the client's delayed ACK, about 40ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        handlers = Executors.newFixedThreadPool(threads, daemon("cnp-stand-in"));
+        scheduler = Executors.newScheduledThreadPool(Math.max(2, threads / 4), daemon("cnp-stand-in-delay"));
+        try {
+            for (int site = 0; site < ports.length; site++) {
+                InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), ports[site]);
+                HttpServer server;
+                if (sslContext != null) {
+                    HttpsServer httpsServer = HttpsServer.create(address, 1024);
+                    httpsServer.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+                    server = httpsServer;
+                }
+                else {
+                    server = HttpServer.create(address, 1024);
+                }
+                int siteIndex = site;
+                server.createContext(CONTEXT, exchange -> handle(siteIndex, exchange));
+                server.setExecutor(handlers);
+                server.start();
+                sites.add(server);
+            }
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public static Latency fixedLatency(long millis) {
+        return random -> millis * 1000;
+    }
+
+    public static Latency uniformLatency(long minMillis, long maxMillis) {
+        return random -> random.nextLong(minMillis * 1000, maxMillis * 1000 + 1);
+    }
+
+    /**
+     * A long tailed latency, as real gateways have.
+     * @param medianMillis half of the requests are answered faster than this
+     * @param p99Millis    99% of the requests are answered faster than this
+     */
+    public static Latency logNormalLatency(double medianMillis, double p99Millis) {
+        double mu = Math.log(medianMillis * 1000);
+        double sigma = (Math.log(p99Millis * 1000) - mu) / 2.326;
+        return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+    }
+
+    public CnpStandInServer setLatency(Latency latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * @param errorRate share of requests, between 0 and 1, answered with HTTP 500
+     */
+    public CnpStandInServer setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param connectionLimitRate share of requests, between 0 and 1, answered with a connection limit response
+     */
+    public CnpStandInServer setConnectionLimitRate(double connectionLimitRate) {
+        this.connectionLimitRate = connectionLimitRate;
+        return this;
+    }
+
+    public CnpStandInServer setSiteAvailable(int site, boolean available) {
+        if (available) {
+            downSites.remove(site);
+        }
+        else {
+            downSites.add(site);
+        }
+        return this;
+    }
+
+    public String getUrl(int site) {
+        HttpServer server = sites.get(site);
+        return (server instanceof HttpsServer ? "https" : "http") + "://127.0.0.1:" + server.getAddress().getPort() + CONTEXT;
+    }
+
+    /**
+     * Points the configuration at the stand-in: url at the first site and, with more than one site, multiSite at
+     * all of them.
+     * @param configuration configuration Properties to change
+     * @return the configuration
+     */
+    public Properties configure(Properties configuration) {
+        configuration.setProperty("url", getUrl(0));
+        for (int site = 0; site < sites.size(); site++) {
+            configuration.setProperty("multiSiteUrl" + (site + 1), getUrl(site));
+        }
+        configuration.setProperty("multiSite", String.valueOf(sites.size() > 1));
+        return configuration;
+    }
+
+    /**
+     * @return number of requests received so far, answered or not
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public void close() {
+        for (HttpServer server : sites) {
+            server.stop(0);
+        }
+        handlers.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    private void handle(int site, HttpExchange exchange) {
+        requests.increment();
+        if (downSites.contains(site)) {
+            exchange.close();
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int status = 200;
+        byte[] body;
+        try {
+            CnpOnlineRequest request = unmarshal(exchange.getRequestBody());
+            if (random.nextDouble() < errorRate) {
+                status = 500;
+                body = "Internal Server Error".getBytes(StandardCharsets.UTF_8);
+            }
+            else if (random.nextDouble() < connectionLimitRate) {
+                body = marshal(onlineResponse("4", "Connection limit exceeded"));
+            }
+            else {
+                body = marshal(respond(request));
+            }
+        }
+        catch (IOException | JAXBException | RuntimeException e) {
+            status = 400;
+            body = String.valueOf(e).getBytes(StandardCharsets.UTF_8);
+        }
+        long delay = latency.nextMicros(random);
+        if (delay <= 0) {
+            write(exchange, status, body);
+        }
+        else {
+            int delayedStatus = status;
+            byte[] delayedBody = body;
+            scheduler.schedule(() -> write(exchange, delayedStatus, delayedBody), delay, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private static void write(HttpExchange exchange, int status, byte[] body) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", status == 200 ? "text/xml; charset=UTF-8" : "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(status, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+        }
+        catch (IOException ignored) {
+            // the client went away
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Builds the approved response to a request.
+     * @param request request to answer
+     * @return response of the type matching the transaction of the request, or the schema error the gateway
+     * answers batch only transactions with
+     */
+    CnpOnlineResponse respond(CnpOnlineRequest request) {
+        if (request.getTransaction() != null && BATCH_ONLY.contains(request.getTransaction().getName().getLocalPart())) {
+            return onlineResponse("1", "Error validating xml data against the schema");
+        }
+        CnpOnlineResponse response = onlineResponse("0", "Valid Format");
+        if (request.getTransaction() != null) {
+            response.setTransactionResponse(transactionResponse(request.getTransaction(), TransactionTypeWithReportGroup.class));
+        }
+        else if (request.getRecurringTransaction() != null) {
+            response.setRecurringTransactionResponse(transactionResponse(request.getRecurringTransaction(), RecurringTransactionResponseType.class));
+        }
+        return response;
+    }
+
+    private static CnpOnlineResponse onlineResponse(String response, String message) {
+        CnpOnlineResponse onlineResponse = new CnpOnlineResponse();
+        onlineResponse.setVersion(Versions.XML_VERSION);
+        onlineResponse.setResponse(response);
+        onlineResponse.setMessage(message);
+        return onlineResponse;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> JAXBElement<? extends T> transactionResponse(JAXBElement<?> transaction, Class<T> responseType) {
+        Method factory = RESPONSE_FACTORIES.get(transaction.getName().getLocalPart());
+        if (factory == null) {
+            throw new IllegalArgumentException("No response for " + transaction.getName().getLocalPart());
+        }
+        try {
+            Object value = factory.getParameterTypes()[0].getConstructor().newInstance();
+            fill(value, transaction.getValue(), 0);
+            return (JAXBElement<? extends T>) factory.invoke(OBJECT_FACTORY, responseType.cast(value));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to build the response to " + transaction.getName().getLocalPart(), e);
+        }
+    }
+
+    /* Echoes the identifiers of the request and gives every other required element a plausible value */
+    private void fill(Object bean, Object request, int depth) throws ReflectiveOperationException {
+        for (Class<?> type = bean.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                Object echoed = echo(request, field.getName());
+                if (echoed != null && field.getType().isInstance(echoed)) {
+                    field.set(bean, echoed);
+                }
+                else if ((isRequired(field) && field.get(bean) == null) || field.getName().equals("cnpTxnId")) {
+                    Object value = defaultValue(field, depth);
+                    if (value != null) {
+                        field.set(bean, value);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isRequired(Field field) {
+        XmlElement element = field.getAnnotation(XmlElement.class);
+        XmlAttribute attribute = field.getAnnotation(XmlAttribute.class);
+        return (element != null && element.required()) || (attribute != null && attribute.required());
+    }
+
+    private static Object echo(Object request, String property) {
+        if (request == null || !(property.equals("id") || property.equals("customerId") || property.equals("reportGroup")
+                || property.equals("orderId"))) {
+            return null;
+        }
+        try {
+            return request.getClass().getMethod("get" + Character.toUpperCase(property.charAt(0)) + property.substring(1)).invoke(request);
+        }
+        catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private Object defaultValue(Field field, int depth) throws ReflectiveOperationException {
+        Class<?> type = field.getType();
+        String name = field.getName();
+        if (type == String.class) {
+            if (name.equals("fundsTransferId")) {
+                return "FT" + String.format("%014d", nextCnpTxnId.get() % 100000000000000L);
+            }
+            return name.equals("response") ? "000" : name.equals("message") ? "Approved" : "1";
+        }
+        if (type == long.class || type == Long.class) {
+            return name.equals("cnpTxnId") ? nextCnpTxnId.getAndIncrement() : 1L;
+        }
+        if (type == Integer.class) {
+            return 1;
+        }
+        if (type == BigInteger.class) {
+            return BigInteger.ONE;
+        }
+        if (type == Boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (type == XMLGregorianCalendar.class) {
+            XMLGregorianCalendar now = DATATYPE_FACTORY.newXMLGregorianCalendar(new GregorianCalendar());
+            XmlSchemaType schemaType = field.getAnnotation(XmlSchemaType.class);
+            if (schemaType != null && schemaType.name().equals("date")) {
+                now.setTime(DatatypeConstants.FIELD_UNDEFINED, DatatypeConstants.FIELD_UNDEFINED, DatatypeConstants.FIELD_UNDEFINED);
+                now.setTimezone(DatatypeConstants.FIELD_UNDEFINED);
+            }
+            return now;
+        }
+        if (type == Calendar.class) {
+            return Calendar.getInstance();
+        }
+        if (type.isEnum()) {
+            return type.getEnumConstants()[0];
+        }
+        if (depth < 4 && type.getPackage() == CnpOnlineResponse.class.getPackage()) {
+            Object value = type.getConstructor().newInstance();
+            fill(value, null, depth + 1);
+            return value;
+        }
+        return null;
+    }
+
+    private static CnpOnlineRequest unmarshal(InputStream body) throws IOException, JAXBException {
+        JAXBObjectPool<Unmarshaller> pool = CnpContext.getUnmarshallerPool();
+        Unmarshaller unmarshaller = pool.borrow();
+        try {
+            return (CnpOnlineRequest) unmarshaller.unmarshal(body);
+        }
+        finally {
+            pool.release(unmarshaller);
+            body.close();
+        }
+    }
+
+    private static byte[] marshal(CnpOnlineResponse response) throws JAXBException {
+        JAXBObjectPool<Marshaller> pool = CnpContext.getMarshallerPool();
+        Marshaller marshaller = pool.borrow();
+        try {
+            StringWriter writer = new StringWriter();
+            marshaller.marshal(response, writer);
+            return writer.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        finally {
+            pool.release(marshaller);
+        }
+    }
+
+    /* Factory of the response element of every transaction and recurring transaction element */
+    private static Map<String, Method> responseFactories() {
+        Map<String, Method> declarations = new HashMap<String, Method>();
+        Map<String, String> substitutionHeads = new HashMap<String, String>();
+        for (Method method : ObjectFactory.class.getMethods()) {
+            XmlElementDecl declaration = method.getAnnotation(XmlElementDecl.class);
+            if (declaration != null && method.getParameterTypes().length == 1) {
+                declarations.put(declaration.name(), method);
+                substitutionHeads.put(declaration.name(), declaration.substitutionHeadName());
+            }
+        }
+        Map<String, String> irregular = new HashMap<String, String>();
+        irregular.put("echeckSale", "echeckSalesResponse");
+        irregular.put("BNPLAuthorizationRequest", "BNPLAuthResponse");
+
+        Map<String, Method> factories = new HashMap<String, Method>();
+        for (Map.Entry<String, String> head : substitutionHeads.entrySet()) {
+            if (!head.getValue().equals("transaction") && !head.getValue().equals("recurringTransaction")) {
+                continue;
+            }
+            String name = head.getKey();
+            String[] candidates = {irregular.get(name), name + "Response", name.replaceFirst("Request$", "") + "Response"};
+            for (String candidate : candidates) {
+                if (candidate != null && declarations.containsKey(candidate)) {
+                    factories.put(name, declarations.get(candidate));
+                    break;
+                }
+            }
+        }
+        return Collections.unmodifiableMap(factories);
+    }
+
+    private static DatatypeFactory datatypeFactory() {
+        try {
+            return DatatypeFactory.newInstance();
+        }
+        catch (DatatypeConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicLong count = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Runs the stand-in until the JVM is stopped, for load tests running in another JVM.
+     * @param args port of every site, one free port when none is given
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int[] ports = new int[Math.max(1, args.length)];
+        for (int site = 0; site < args.length; site++) {
+            ports[site] = Integer.parseInt(args[site]);
+        }
+        CnpStandInServer server = new CnpStandInServer(ports, null);
+        for (int site = 0; site < ports.length; site++) {
+            System.out.println("Site " + (site + 1) + " listening on " + server.getUrl(site));
+        }
+        Thread.currentThread().join();
+    }
+}
@@ -4,15 +4,28 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
+import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 
 import io.github.vantiv.sdk.generate.ApplepayHeaderType;
 import io.github.vantiv.sdk.generate.ApplepayType;
@@ -92,6 +105,11 @@ public class TestCnpBatchFileRequest {
         testBatch2.addTransaction(createTestSale(106L,"106"));
 
         assertEquals(cnpBatchFileRequest.getNumberOfTransactionInFile(), 8);
+
+        testBatch2.setNumOfTxn(0);
+        assertEquals(cnpBatchFileRequest.getNumberOfTransactionInFile(), 4);
+        testBatch.setNumOfTxn(0);
+        assertTrue(cnpBatchFileRequest.isEmpty());
     }
 
     @Test
@@ -180,4 +198,99 @@ public class TestCnpBatchFileRequest {
         sale.setReportGroup("test");
         return sale;
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCompactOutput() throws Exception {
+        String formatted = buildRequestFile("false");
+        String compact = buildRequestFile("true");
+
+        assertTrue(formatted.contains("\n    <orderId>"));
+        assertTrue(!compact.contains("\n    <"));
+        assertTrue(compact.length() < formatted.length());
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(compact.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(3, document.getElementsByTagName("sale").getLength());
+        assertEquals(2, document.getElementsByTagName("batchRequest").getLength());
+    }
+
+    private String buildRequestFile(String compactOutput) throws Exception {
+        File folder = Files.createTempDirectory("cnpBatch").toFile();
+        try {
+            Properties property = new Properties();
+            property.putAll(cnpBatchFileRequest.getConfig());
+            property.setProperty("batchRequestFolder", folder.getAbsolutePath());
+            property.setProperty("batchCompactOutput", compactOutput);
+            property.setProperty("batchWriteBufferSize", "128");
+            CnpBatchFileRequest request = new CnpBatchFileRequest("compact.xml", property);
+            CnpBatchRequest batch = request.createBatch("101");
+            batch.addTransaction(createTestSale(101L, "101"));
+            batch.addTransaction(createTestSale(102L, "102"));
+            request.createBatch("102").addTransaction(createTestSale(103L, "103"));
+            request.prepareForDelivery();
+            // only the request file is left, the batch files and their tmp folder are gone
+            assertEquals(1, folder.listFiles().length);
+            return new String(Files.readAllBytes(request.getFile().toPath()), StandardCharsets.UTF_8);
+        } finally {
+            for (File file : folder.listFiles()) {
+                file.delete();
+            }
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        File folder = Files.createTempDirectory("cnpBatch").toFile();
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        try {
+            Properties property = new Properties();
+            property.putAll(cnpBatchFileRequest.getConfig());
+            property.setProperty("batchRequestFolder", folder.getAbsolutePath());
+            property.setProperty("maxTransactionsPerBatch", "1000");
+            property.setProperty("maxAllowedTransactionsPerFile", "2000");
+            final CnpBatchFileRequest request = new CnpBatchFileRequest("concurrent.xml", property);
+            final CnpBatchRequest batch = request.createBatch("101");
+
+            List<Future<Integer>> added = new ArrayList<Future<Integer>>();
+            for (int producer = 0; producer < 4; producer++) {
+                final int first = producer * 300;
+                added.add(producers.submit(new Callable<Integer>() {
+                    public Integer call() {
+                        int count = 0;
+                        for (int i = first; i < first + 300; i++) {
+                            try {
+                                batch.addTransaction(createTestSale(1L, String.valueOf(i)));
+                                count++;
+                            } catch (CnpBatchBatchFullException e) {
+                                // the other producers filled the batch
+                            }
+                        }
+                        return count;
+                    }
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> producerAdded : added) {
+                total += producerAdded.get();
+            }
+            assertEquals(1000, total);
+            assertEquals(1000, batch.getNumberOfTransactions());
+            assertEquals(1000, request.getNumberOfTransactionInFile());
+            assertTrue(batch.isFull());
+
+            request.prepareForDelivery();
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(request.getFile());
+            assertEquals(1000, document.getElementsByTagName("sale").getLength());
+            Element header = (Element) document.getElementsByTagName("batchRequest").item(0);
+            assertEquals("1000", header.getAttribute("numSales"));
+            assertEquals("1000", header.getAttribute("saleAmount"));
+            assertEquals(1, folder.listFiles().length);
+        } finally {
+            producers.shutdownNow();
+            for (File file : folder.listFiles()) {
+                file.delete();
+            }
+            folder.delete();
+        }
+    }
+}
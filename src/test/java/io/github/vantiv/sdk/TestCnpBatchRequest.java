@@ -1,11 +1,19 @@
 package io.github.vantiv.sdk;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.FileNotFoundException;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
@@ -680,4 +688,78 @@ public class TestCnpBatchRequest {
         return applepayType;
     }
 
+    @Test
+    public void testTotalsKeepAccumulatingAcrossHeaderReads() {
+        Sale sale = new Sale();
+        sale.setAmount(25L);
+        cnpBatchRequest.addTransaction(sale);
+        cnpBatchRequest.addTransaction(sale);
+        assertEquals(2, cnpBatchRequest.getBatchRequest().getNumSales().intValue());
+
+        cnpBatchRequest.addTransaction(new Sale() {
+            {
+                setAmount(50L);
+            }
+        });
+        Capture capture = new Capture();
+        capture.setAmount(7L);
+        cnpBatchRequest.addTransaction(capture);
+
+        BatchRequest header = cnpBatchRequest.getBatchRequest();
+        assertEquals(3, header.getNumSales().intValue());
+        assertEquals(100, header.getSaleAmount().intValue());
+        assertEquals(1, header.getNumCaptures().intValue());
+        assertEquals(7, header.getCaptureAmount().intValue());
+        assertEquals(0, header.getNumAuths().intValue());
+        assertEquals(5, cnpBatchRequest.getNumberOfTransactions());
+    }
+
+    @Test
+    public void testAddTransactionAfterCloseFile() throws Exception {
+        Sale sale = new Sale();
+        sale.setAmount(25L);
+        cnpBatchRequest.addTransaction(sale);
+        cnpBatchRequest.closeFile();
+        try {
+            cnpBatchRequest.addTransaction(sale);
+            fail("Expected Exception");
+        } catch (CnpBatchException e) {
+            assertEquals("Transactions cannot be added to a batch once its file is closed.", e.getMessage());
+        }
+        assertEquals(2, cnpBatchRequest.getNumberOfTransactions());
+    }
+
+    @Test
+    public void testCloseFileWaitsForTransactionsBeingMarshalled() throws Exception {
+        final CountDownLatch marshalling = new CountDownLatch(1);
+        final CountDownLatch finishMarshal = new CountDownLatch(1);
+        Marshaller slowMarshaller = Mockito.mock(Marshaller.class);
+        Mockito.doAnswer(invocation -> {
+            marshalling.countDown();
+            finishMarshal.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(slowMarshaller).marshal(Mockito.any(), Mockito.any(OutputStream.class));
+        cnpBatchRequest.setMarshaller(slowMarshaller);
+        final Sale sale = new Sale();
+        sale.setAmount(25L);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<TransactionCodeEnum> added = executor.submit(() -> cnpBatchRequest.addTransaction(sale));
+            assertTrue(marshalling.await(5, TimeUnit.SECONDS));
+            Future<?> closed = executor.submit(() -> {
+                cnpBatchRequest.closeFile();
+                return null;
+            });
+            Thread.sleep(200);
+            assertFalse(closed.isDone());
+
+            finishMarshal.countDown();
+            assertEquals(TransactionCodeEnum.SUCCESS, added.get(5, TimeUnit.SECONDS));
+            closed.get(5, TimeUnit.SECONDS);
+        } finally {
+            finishMarshal.countDown();
+            executor.shutdownNow();
+        }
+    }
 }
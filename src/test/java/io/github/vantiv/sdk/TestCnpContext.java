@@ -1,8 +1,12 @@
 package io.github.vantiv.sdk;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
 
 import io.github.vantiv.sdk.generate.ObjectFactory;
 import org.junit.Test;
@@ -25,4 +29,26 @@ public class TestCnpContext {
         assertSame(factory1, factory2);
     }
 
+    @Test
+    public void testMarshallerPoolReusesReleasedInstances() throws Exception {
+        JAXBObjectPool<Marshaller> pool = new JAXBObjectPool<Marshaller>(new JAXBObjectPool.Factory<Marshaller>() {
+            public Marshaller create() throws JAXBException {
+                return CnpContext.getJAXBContext().createMarshaller();
+            }
+        }, 1);
+
+        Marshaller first = pool.borrow();
+        Marshaller second = pool.borrow();
+        assertNotSame(first, second);
+        assertEquals(2, pool.getMisses());
+
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.getIdleCount());
+
+        assertSame(first, pool.borrow());
+        assertEquals(1, pool.getHits());
+        assertEquals(0, pool.getIdleCount());
+    }
+
 }
@@ -0,0 +1,78 @@
+package io.github.vantiv.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TestCnpLoadGenerator {
+
+    private CnpStandInServer server;
+
+    @After
+    public void after() {
+        if (server != null) {
+            server.close();
+        }
+        CommManager.reset();
+    }
+
+    @Test
+    public void testOpenLoopRunAgainstStandIn() throws Exception {
+        server = new CnpStandInServer(1).setLatency(CnpStandInServer.fixedLatency(1));
+        Properties config = server.configure(new Properties());
+        config.setProperty("loadRate", "40");
+        config.setProperty("loadArrivals", "fixed");
+        config.setProperty("loadWarmupSeconds", "0.5");
+        config.setProperty("loadDurationSeconds", "1");
+        config.setProperty("loadMix", "authorization:3,capture:1");
+        config.setProperty("loadConcurrency", "4");
+
+        CnpLoadGenerator.Report report = new CnpLoadGenerator(config).run();
+
+        assertEquals(40, report.getIntendedRequests());
+        assertEquals(40, report.getTotal().getResponseTime().getCount());
+        assertEquals(60, server.getRequestCount());
+        assertEquals(Collections.emptyMap(), report.getTotal().getErrors());
+        assertEquals(2, report.getTransactions().size());
+        assertEquals(40, report.getTransactions().get("authorization").getResponseTime().getCount()
+                + report.getTransactions().get("capture").getResponseTime().getCount());
+        assertTrue(report.getTotal().getResponseTime().getValueAtPercentile(50) >= 1000);
+        assertTrue(report.getTotal().getResponseTime().getMax() >= report.getTotal().getServiceTime().getMax());
+        assertTrue(report.toString(), report.toString().contains("p99.9 ms"));
+    }
+
+    @Test
+    public void testErrorsAreCountedByType() throws Exception {
+        server = new CnpStandInServer(1).setConnectionLimitRate(1);
+        Properties config = server.configure(new Properties());
+        config.setProperty("loadRate", "20");
+        config.setProperty("loadArrivals", "poisson");
+        config.setProperty("loadWarmupSeconds", "0");
+        config.setProperty("loadDurationSeconds", "0.5");
+        config.setProperty("loadMix", "sale");
+
+        CnpLoadGenerator.Report report = new CnpLoadGenerator(config).run();
+
+        long completed = report.getTotal().getResponseTime().getCount();
+        assertEquals(report.getIntendedRequests(), completed);
+        assertEquals(Collections.singletonMap("CnpConnectionLimitExceededException", completed), report.getTotal().getErrors());
+    }
+
+    @Test
+    public void testUnknownTransactionInMix() {
+        Properties config = new Properties();
+        config.setProperty("loadMix", "authorization:1,refund:1");
+        try {
+            new CnpLoadGenerator(config);
+            fail("Expected Exception");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unknown transaction refund"));
+        }
+    }
+}
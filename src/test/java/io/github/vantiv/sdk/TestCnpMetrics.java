@@ -0,0 +1,144 @@
+package io.github.vantiv.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.github.vantiv.sdk.CnpMetrics.Phase;
+import io.github.vantiv.sdk.generate.Authorization;
+import io.github.vantiv.sdk.generate.OrderSourceType;
+
+public class TestCnpMetrics {
+
+    private static final String AUTHORIZATION_RESPONSE = "<cnpOnlineResponse version='12.0' response='0' message='Valid Format'"
+            + " xmlns='http://www.vantivcnp.com/schema'><authorizationResponse id='1' reportGroup='Default'><cnpTxnId>123</cnpTxnId>"
+            + "<orderId>1</orderId><response>000</response><message>Approved</message></authorizationResponse></cnpOnlineResponse>";
+
+    @After
+    public void after() {
+        CnpMetrics.reset();
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        MetricsHistogram histogram = new MetricsHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        MetricsHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(10000, snapshot.getMax());
+        assertEquals(5000.5, snapshot.getMean(), 0.001);
+        assertWithin(5000, snapshot.getValueAtPercentile(50));
+        assertWithin(9900, snapshot.getValueAtPercentile(99));
+        assertWithin(9990, snapshot.getValueAtPercentile(99.9));
+        assertEquals(10000, snapshot.getValueAtPercentile(100));
+        assertEquals(1, snapshot.getValueAtPercentile(0));
+        assertEquals(0, new MetricsHistogram().snapshot().getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        for (long value = 0; value < 100000; value++) {
+            long bucketValue = MetricsHistogram.bucketValue(MetricsHistogram.bucketIndex(value));
+            assertTrue(value + " counted as " + bucketValue, bucketValue <= value && value - bucketValue <= value / 64);
+        }
+    }
+
+    @Test
+    public void testOnlineRequestsAreRecorded() {
+        List<CnpMetrics.Sample> exported = Collections.synchronizedList(new ArrayList<CnpMetrics.Sample>());
+        CnpMetrics.Exporter exporter = exported::add;
+        CnpMetrics.addExporter(exporter);
+        try {
+            Properties config = new Properties();
+            config.setProperty("url", "http://in-memory.example.com/online");
+            config.setProperty("metrics", "true");
+            new CnpOnline(config, InMemoryTransport.fixedResponse(AUTHORIZATION_RESPONSE)).authorize(authorization());
+            new CnpOnline(config, InMemoryTransport.fixedResponse(AUTHORIZATION_RESPONSE)).authorize(authorization());
+            try {
+                new CnpOnline(config, new InMemoryTransport((url, request) -> {
+                    throw new ConnectException("Connection refused");
+                })).authorize(authorization());
+                fail("Expected Exception");
+            } catch (CnpOnlineException e) {
+                assertEquals("Exception connection to Vantiv eCommerce", e.getMessage());
+            }
+        } finally {
+            CnpMetrics.removeExporter(exporter);
+        }
+
+        CnpMetrics.TransactionMetrics metrics = CnpMetrics.getTransactionMetrics().get("authorization");
+        assertEquals(3, metrics.getLatency(Phase.TOTAL).getCount());
+        assertEquals(3, metrics.getLatency(Phase.MARSHAL).getCount());
+        assertEquals(2, metrics.getLatency(Phase.UNMARSHAL).getCount());
+        assertEquals(2, metrics.getResponseBytes().getCount());
+        assertEquals(AUTHORIZATION_RESPONSE.length(), metrics.getResponseBytes().getMax());
+        assertEquals(Collections.singletonMap("0", 2L), metrics.getResponseCodeCounts());
+        assertEquals(Collections.singletonMap(ConnectException.class.getName(), 1L), metrics.getExceptionCounts());
+
+        assertEquals(3, exported.size());
+        CnpMetrics.Sample sample = exported.get(0);
+        assertEquals("authorization", sample.getTransactionType());
+        assertEquals("0", sample.getResponseCode());
+        assertNull(sample.getFailure());
+        assertTrue(sample.getRequestBytes() > 0);
+        assertTrue(sample.getPhaseNanos(Phase.TOTAL) >= sample.getPhaseNanos(Phase.MARSHAL) + sample.getPhaseNanos(Phase.UNMARSHAL));
+        assertNull(exported.get(2).getResponseCode());
+    }
+
+    @Test
+    public void testRecordedWhenNoSiteCanBePicked() {
+        List<CnpMetrics.Sample> exported = Collections.synchronizedList(new ArrayList<CnpMetrics.Sample>());
+        CnpMetrics.Exporter exporter = exported::add;
+        CnpMetrics.addExporter(exporter);
+        try {
+            Properties config = new Properties();
+            config.setProperty("url", "http://in-memory.example.com/online");
+            config.setProperty("metrics", "true");
+            config.setProperty("multiSite", "true");
+            config.setProperty("multiSiteUrl1", "http://in-memory.example.com/site1");
+            config.setProperty("multiSiteErrorThreshold", "many");
+            try {
+                new Communication(InMemoryTransport.fixedResponse(AUTHORIZATION_RESPONSE)).requestToServer("<request/>", config);
+                fail("Expected Exception");
+            } catch (NumberFormatException expected) {
+            }
+        } finally {
+            CnpMetrics.removeExporter(exporter);
+        }
+
+        assertEquals(1, exported.size());
+        assertTrue(exported.get(0).getFailure() instanceof NumberFormatException);
+    }
+
+    @Test
+    public void testNothingRecordedWhenDisabled() {
+        Properties config = new Properties();
+        config.setProperty("url", "http://in-memory.example.com/online");
+        new CnpOnline(config, InMemoryTransport.fixedResponse(AUTHORIZATION_RESPONSE)).authorize(authorization());
+        assertTrue(CnpMetrics.getTransactionMetrics().isEmpty());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(expected + " but was " + actual, Math.abs(expected - actual) <= expected / 64);
+    }
+
+    private static Authorization authorization() {
+        Authorization authorization = new Authorization();
+        authorization.setOrderId("1");
+        authorization.setAmount(100L);
+        authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+        return authorization;
+    }
+}
@@ -3,20 +3,30 @@ package io.github.vantiv.sdk;
 import io.github.vantiv.sdk.generate.*;
 import org.junit.Before;
 import org.junit.Test;
+import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.xml.sax.InputSource;
 
 import javax.xml.bind.JAXBElement;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.math.BigInteger;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.matches;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -29,6 +39,27 @@ public class TestCnpOnline {
 		cnp = new CnpOnline();
 	}
 
+	/* Matches a request entity whose marshalled xml, as it would be written to the wire, contains the regex */
+	static CnpRequestEntity requestMatching(String regex) {
+		Pattern pattern = Pattern.compile(regex);
+		return argThat(entity -> {
+			try {
+				return pattern.matcher(EntityUtils.toString(entity, "UTF-8")).find();
+			} catch (IOException | ParseException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	/* Unmarshals a canned response the same way Communication does with the response stream */
+	static CnpOnlineResponse responseFrom(String xml) {
+		try {
+			return Communication.unmarshalResponse(new InputSource(new StringReader(xml)));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 
 	@Test
 	public void testAuth() throws Exception {
@@ -48,10 +79,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		AuthorizationResponse authorize = cnp.authorize(authorization);
 		assertEquals(123L, authorize.getCnpTxnId());
@@ -87,10 +118,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                 .requestToServer(
-                        matches(".*?<cnpOnlineRequest.*?<authorization.*?<secondaryAmount>10</secondaryAmount>.*?<applepay>.*?<data>user</data>.*?</applepay>.*?<wallet>.*?<walletSourceTypeId>123</walletSourceTypeId>.*?</wallet>.*?</authorization>.*?"),
+                        requestMatching(".*?<cnpOnlineRequest.*?<authorization.*?<secondaryAmount>10</secondaryAmount>.*?<applepay>.*?<data>user</data>.*?</applepay>.*?<wallet>.*?<walletSourceTypeId>123</walletSourceTypeId>.*?</wallet>.*?</authorization>.*?"),
                         any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><applepayResponse><applicationPrimaryAccountNumber>123455</applicationPrimaryAccountNumber><transactionAmount>106</transactionAmount></applepayResponse><location>sandbox</location></authorizationResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><applepayResponse><applicationPrimaryAccountNumber>123455</applicationPrimaryAccountNumber><transactionAmount>106</transactionAmount></applepayResponse><location>sandbox</location></authorizationResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         AuthorizationResponse authorize = cnp.authorize(authorization);
         assertEquals(123L, authorize.getCnpTxnId());
@@ -116,10 +147,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?merchantId=\"9001\".*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"9001\".*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		CnpOnlineRequest overrides = new CnpOnlineRequest();
 		overrides.setMerchantId("9001");
@@ -140,10 +171,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<authReversal.*?<cnpTxnId>12345678000</cnpTxnId>.*?</authReversal>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<authReversal.*?<cnpTxnId>12345678000</cnpTxnId>.*?</authReversal>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authReversalResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authReversalResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authReversalResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authReversalResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		AuthReversalResponse authreversal = cnp.authReversal(reversal);
 		assertEquals(123L, authreversal.getCnpTxnId());
@@ -162,10 +193,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?merchantId=\"54321\".*?<authReversal.*?<cnpTxnId>12345678000</cnpTxnId>.*?</authReversal>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"54321\".*?<authReversal.*?<cnpTxnId>12345678000</cnpTxnId>.*?</authReversal>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.11' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authReversalResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authReversalResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.11' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authReversalResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authReversalResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		CnpOnlineRequest overrides = new CnpOnlineRequest();
 		overrides.setMerchantId("54321");
@@ -193,10 +224,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		AuthorizationResponse authorize = cnp.authorize(authorization);
 		assertEquals(123L, authorize.getCnpTxnId());
@@ -224,10 +255,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		AuthorizationResponse authorize = cnp.authorize(authorization);
 		assertEquals(123L, authorize.getCnpTxnId());
@@ -255,10 +286,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		AuthorizationResponse authorize = cnp.authorize(authorization);
 		assertEquals(123L, authorize.getCnpTxnId());
@@ -278,10 +309,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<capture.*?<cnpTxnId>123456000</cnpTxnId>.*?</capture>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<capture.*?<cnpTxnId>123456000</cnpTxnId>.*?</capture>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><captureResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></captureResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><captureResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></captureResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		CaptureResponse captureresponse = cnp.capture(capture);
 		assertEquals(123L, captureresponse.getCnpTxnId());
@@ -299,10 +330,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<password>supersecret</password>.*?<capture.*?<cnpTxnId>123456000</cnpTxnId>.*?</capture>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<password>supersecret</password>.*?<capture.*?<cnpTxnId>123456000</cnpTxnId>.*?</capture>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><captureResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></captureResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><captureResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></captureResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		CnpOnlineRequest overrides = new CnpOnlineRequest();
 		overrides.setAuthentication(new Authentication());
@@ -337,10 +368,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-							matches(".*?<cnpOnlineRequest.*?<captureGivenAuth.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</captureGivenAuth>.*?"),
+							requestMatching(".*?<cnpOnlineRequest.*?<captureGivenAuth.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</captureGivenAuth>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><captureGivenAuthResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></captureGivenAuthResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><captureGivenAuthResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></captureGivenAuthResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		CaptureGivenAuthResponse capturegivenauthresponse = cnp.captureGivenAuth(capturegivenauth);
 		assertEquals(123L, capturegivenauthresponse.getCnpTxnId());
@@ -370,10 +401,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-							matches(".*?<cnpOnlineRequest.*?<user>neweruser</user>.*?<captureGivenAuth.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</captureGivenAuth>.*?"),
+							requestMatching(".*?<cnpOnlineRequest.*?<user>neweruser</user>.*?<captureGivenAuth.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</captureGivenAuth>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><captureGivenAuthResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></captureGivenAuthResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><captureGivenAuthResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></captureGivenAuthResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		CnpOnlineRequest overrides = new CnpOnlineRequest();
 		overrides.setAuthentication(new Authentication());
@@ -409,10 +440,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<captureGivenAuth.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</captureGivenAuth>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<captureGivenAuth.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</captureGivenAuth>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><captureGivenAuthResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></captureGivenAuthResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><captureGivenAuthResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></captureGivenAuthResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		CaptureGivenAuthResponse capturegivenauthresponse = cnp.captureGivenAuth(capturegivenauth);
 		assertEquals(123L, capturegivenauthresponse.getCnpTxnId());
@@ -438,10 +469,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<credit.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</credit>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<credit.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</credit>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><creditResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></creditResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><creditResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></creditResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		CreditResponse creditresponse = cnp.credit(credit);
 		assertEquals(123L, creditresponse.getCnpTxnId());
@@ -466,10 +497,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<credit.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</credit>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<credit.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</credit>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><creditResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></creditResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><creditResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></creditResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		CreditResponse creditresponse = cnp.credit(credit);
 		assertEquals(123L, creditresponse.getCnpTxnId());
@@ -488,10 +519,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<echeckCredit.*?<cnpTxnId>123456789101112</cnpTxnId>.*?<secondaryAmount>10</secondaryAmount>.*?</echeckCredit>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<echeckCredit.*?<cnpTxnId>123456789101112</cnpTxnId>.*?<secondaryAmount>10</secondaryAmount>.*?</echeckCredit>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><echeckCreditResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></echeckCreditResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><echeckCreditResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></echeckCreditResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		EcheckCreditResponse echeckcreditresponse = cnp.echeckCredit(echeckcredit);
 		assertEquals(123L, echeckcreditresponse.getCnpTxnId());
@@ -507,10 +538,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<echeckRedeposit.*?<cnpTxnId>123456</cnpTxnId>.*?</echeckRedeposit>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<echeckRedeposit.*?<cnpTxnId>123456</cnpTxnId>.*?</echeckRedeposit>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><echeckRedepositResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></echeckRedepositResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><echeckRedepositResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></echeckRedepositResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		EcheckRedepositResponse echeckredepositresponse = cnp.echeckRedeposit(echeckredeposit);
 		assertEquals(123L, echeckredepositresponse.getCnpTxnId());
@@ -542,10 +573,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<echeckSale.*?<secondaryAmount>10</secondaryAmount>.*?<echeck>.*?<accNum>12345657890</accNum>.*?</echeck>.*?</echeckSale>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<echeckSale.*?<secondaryAmount>10</secondaryAmount>.*?<echeck>.*?<accNum>12345657890</accNum>.*?</echeck>.*?</echeckSale>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><echeckSalesResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></echeckSalesResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><echeckSalesResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></echeckSalesResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		EcheckSalesResponse echecksaleresponse = cnp.echeckSale(echecksale);
 		assertEquals(123L, echecksaleresponse.getCnpTxnId());
@@ -575,10 +606,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<echeckVerification.*?<echeck>.*?<accNum>12345657890</accNum>.*?</echeck>.*?</echeckVerification>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<echeckVerification.*?<echeck>.*?<accNum>12345657890</accNum>.*?</echeck>.*?</echeckVerification>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><echeckVerificationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></echeckVerificationResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><echeckVerificationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></echeckVerificationResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		EcheckVerificationResponse echeckverificationresponse = cnp.echeckVerification(echeckverification);
 		assertEquals(123L, echeckverificationresponse.getCnpTxnId());
@@ -602,10 +633,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<forceCapture.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</forceCapture>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<forceCapture.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</forceCapture>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><forceCaptureResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></forceCaptureResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><forceCaptureResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></forceCaptureResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		ForceCaptureResponse forcecaptureresponse = cnp.forceCapture(forcecapture);
 		assertEquals(123L, forcecaptureresponse.getCnpTxnId());
@@ -631,10 +662,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<forceCapture.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</forceCapture>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<forceCapture.*?<secondaryAmount>10</secondaryAmount>.*?<card>.*?<number>4100000000000001</number>.*?</card>.*?</forceCapture>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><forceCaptureResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></forceCaptureResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><forceCaptureResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></forceCaptureResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		ForceCaptureResponse forcecaptureresponse = cnp.forceCapture(forcecapture);
 		assertEquals(123L, forcecaptureresponse.getCnpTxnId());
@@ -659,10 +690,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<sale.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</sale>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<sale.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</sale>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></saleResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></saleResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		SaleResponse saleresponse = cnp.sale(sale);
 		assertEquals(123L, saleresponse.getCnpTxnId());
@@ -686,7 +717,7 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<sale reportGroup=\"Default Report Group\">"
+								requestMatching(".*?<cnpOnlineRequest.*?<sale reportGroup=\"Default Report Group\">"
 										+ "<cnpTxnId>123456</cnpTxnId>"
 										+ "<orderId>12344</orderId>"
 										+ "<amount>106</amount>"
@@ -699,8 +730,8 @@ public class TestCnpOnline {
 										+ "</sale>"
 										+ "</cnpOnlineRequest>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></saleResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></saleResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		SaleResponse saleresponse = cnp.sale(sale);
 		assertEquals(123L, saleresponse.getCnpTxnId());
@@ -728,7 +759,7 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<sale reportGroup=\"Default Report Group\">"
+								requestMatching(".*?<cnpOnlineRequest.*?<sale reportGroup=\"Default Report Group\">"
 										+ "<cnpTxnId>123456</cnpTxnId>"
 										+ "<orderId>12344</orderId>"
 										+ "<amount>106</amount>"
@@ -745,8 +776,8 @@ public class TestCnpOnline {
 										+ "</sale>"
 										+ "</cnpOnlineRequest>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></saleResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></saleResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		SaleResponse saleresponse = cnp.sale(sale);
 		assertEquals(123L, saleresponse.getCnpTxnId());
@@ -770,10 +801,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<sale.*?<card>.*?<number>4100100000000002</number>.*?</card>.*?</sale>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<sale.*?<card>.*?<number>4100100000000002</number>.*?</card>.*?</sale>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='12.11' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><accountUpdater><accountUpdateSource>R</accountUpdateSource></accountUpdater><location>sandbox</location></saleResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='12.11' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><accountUpdater><accountUpdateSource>R</accountUpdateSource></accountUpdater><location>sandbox</location></saleResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		SaleResponse saleresponse = cnp.sale(sale);
 		assertEquals(123L, saleresponse.getCnpTxnId());
@@ -798,10 +829,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<sale.*?<card>.*?<number>4100100000000002</number>.*?</card>.*?</sale>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<sale.*?<card>.*?<number>4100100000000002</number>.*?</card>.*?</sale>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='12.11' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><accountUpdater><accountUpdateSource>N</accountUpdateSource></accountUpdater><location>sandbox</location></saleResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='12.11' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><accountUpdater><accountUpdateSource>N</accountUpdateSource></accountUpdater><location>sandbox</location></saleResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		SaleResponse saleresponse = cnp.sale(sale);
 		assertEquals(123L, saleresponse.getCnpTxnId());
@@ -838,10 +869,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<sale.*?<secondaryAmount>10</secondaryAmount>.*?<applepay>.*?<data>user</data>.*?</applepay>.*?<wallet>.*?<walletSourceTypeId>123</walletSourceTypeId>.*?</wallet>.*?</sale>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<sale.*?<secondaryAmount>10</secondaryAmount>.*?<applepay>.*?<data>user</data>.*?</applepay>.*?<wallet>.*?<walletSourceTypeId>123</walletSourceTypeId>.*?</wallet>.*?</sale>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><applepayResponse><applicationPrimaryAccountNumber>123455</applicationPrimaryAccountNumber></applepayResponse><location>sandbox</location></saleResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><applepayResponse><applicationPrimaryAccountNumber>123455</applicationPrimaryAccountNumber></applepayResponse><location>sandbox</location></saleResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         SaleResponse saleresponse = cnp.sale(sale);
         assertEquals(123L, saleresponse.getCnpTxnId());
@@ -867,10 +898,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<sale.*?<card>.*?<number>4100100000000002</number>.*?</card>.*?</sale>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<sale.*?<card>.*?<number>4100100000000002</number>.*?</card>.*?</sale>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='12.11' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><accountUpdater><accountUpdateSource>N</accountUpdateSource></accountUpdater><location>sandbox</location></saleResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='12.11' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><accountUpdater><accountUpdateSource>N</accountUpdateSource></accountUpdater><location>sandbox</location></saleResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		SaleResponse saleresponse = cnp.sale(sale);
 		assertEquals(123L, saleresponse.getCnpTxnId());
@@ -889,10 +920,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<registerTokenRequest.*?<accountNumber>1233456789103801</accountNumber>.*?</registerTokenRequest>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<registerTokenRequest.*?<accountNumber>1233456789103801</accountNumber>.*?</registerTokenRequest>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><registerTokenResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></registerTokenResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><registerTokenResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></registerTokenResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		RegisterTokenResponse registertokenresponse = cnp.registerToken(token);
 		assertEquals(123L, registertokenresponse.getCnpTxnId());
@@ -919,10 +950,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<registerTokenRequest.*?<applepay>.*?<data>user</data>.*?</applepay>.*?</registerTokenRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<registerTokenRequest.*?<applepay>.*?<data>user</data>.*?</applepay>.*?</registerTokenRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><registerTokenResponse><cnpTxnId>123</cnpTxnId><applepayResponse><applicationPrimaryAccountNumber>123455</applicationPrimaryAccountNumber></applepayResponse><location>sandbox</location></registerTokenResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><registerTokenResponse><cnpTxnId>123</cnpTxnId><applepayResponse><applicationPrimaryAccountNumber>123455</applicationPrimaryAccountNumber></applepayResponse><location>sandbox</location></registerTokenResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         RegisterTokenResponse registertokenresponse = cnp.registerToken(token);
         assertEquals(123L, registertokenresponse.getCnpTxnId());
@@ -948,10 +979,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='1' message='Error validating xml data against the schema' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='1' message='Error validating xml data against the schema' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		try{
 		cnp.authorize(authorization);
@@ -978,10 +1009,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"no xml");
+				.thenAnswer(invocation -> responseFrom(
+						"no xml"));
 		cnp.setCommunication(mockedCommunication);
 		try{
 		cnp.authorize(authorization);
@@ -1007,10 +1038,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<authorization.*? reportGroup=\"Default Report Group\">.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<authorization.*? reportGroup=\"Default Report Group\">.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse reportGroup='Default Report Group'><location>sandbox</location></authorizationResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse reportGroup='Default Report Group'><location>sandbox</location></authorizationResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		AuthorizationResponse authorize = cnp.authorize(authorization);
 		assertEquals("Default Report Group", authorize.getReportGroup());
@@ -1036,10 +1067,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?loggedInUser=\"avig\".*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?loggedInUser=\"avig\".*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse reportGroup='Default Report Group'><location>sandbox</location></authorizationResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse reportGroup='Default Report Group'><location>sandbox</location></authorizationResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		AuthorizationResponse authorize = cnp.authorize(authorization);
 		assertEquals("Default Report Group", authorize.getReportGroup());
@@ -1056,10 +1087,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<echeckVoid.*?<cnpTxnId>12345</cnpTxnId>.*?</echeckVoid>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<echeckVoid.*?<cnpTxnId>12345</cnpTxnId>.*?</echeckVoid>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><echeckVoidResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></echeckVoidResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><echeckVoidResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></echeckVoidResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		EcheckVoidResponse echeckvoidresponse = cnp.echeckVoid(echeckvoid);
 		assertEquals(123L, echeckvoidresponse.getCnpTxnId());
@@ -1088,10 +1119,10 @@ public class TestCnpOnline {
 		when(
 				mockedCommunication
 						.requestToServer(
-								matches(".*?<cnpOnlineRequest.*?<authorization.*?<dob>1980-04-14</dob>.*?</authorization>.*?"),
+								requestMatching(".*?<cnpOnlineRequest.*?<authorization.*?<dob>1980-04-14</dob>.*?</authorization>.*?"),
 								any(Properties.class)))
-				.thenReturn(
-						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>");
+				.thenReturn(responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>"));
 		cnp.setCommunication(mockedCommunication);
 		AuthorizationResponse authorize = cnp.authorize(authorization);
 		assertEquals(123L, authorize.getCnpTxnId());
@@ -1104,10 +1135,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                any(String.class),
+                                any(CnpRequestEntity.class),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version=\"1.0\" xmlns=\"http://www.vantivcnp.com/schema/online\" response=\"1\" message=\"System Error - Call Cnp &amp; Co.\"></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version=\"1.0\" xmlns=\"http://www.vantivcnp.com/schema/online\" response=\"1\" message=\"System Error - Call Cnp &amp; Co.\"></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
 
 
@@ -1135,10 +1166,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<cancelSubscription><subscriptionId>12345</subscriptionId></cancelSubscription></cnpOnlineRequest>*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<cancelSubscription><subscriptionId>12345</subscriptionId></cancelSubscription></cnpOnlineRequest>*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><cancelSubscriptionResponse><subscriptionId>12345</subscriptionId></cancelSubscriptionResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><cancelSubscriptionResponse><subscriptionId>12345</subscriptionId></cancelSubscriptionResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CancelSubscriptionResponse cancelResponse = cnp.cancelSubscription(cancel);
         assertEquals(12345L, cancelResponse.getSubscriptionId());
@@ -1153,10 +1184,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"9001\".*?<cancelSubscription><subscriptionId>12345</subscriptionId></cancelSubscription></cnpOnlineRequest>*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"9001\".*?<cancelSubscription><subscriptionId>12345</subscriptionId></cancelSubscription></cnpOnlineRequest>*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><cancelSubscriptionResponse><subscriptionId>12345</subscriptionId></cancelSubscriptionResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><cancelSubscriptionResponse><subscriptionId>12345</subscriptionId></cancelSubscriptionResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("9001");
@@ -1188,10 +1219,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<updateSubscription><subscriptionId>12345</subscriptionId><planCode>abcdefg</planCode><billToAddress><name>Greg Dake</name><city>Lowell</city><state>MA</state><email>sdksupport@cnp.com</email></billToAddress><card><type>VI</type><number>4100000000000001</number><expDate>1215</expDate></card><billingDate>2013-08-07</billingDate></updateSubscription></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<updateSubscription><subscriptionId>12345</subscriptionId><planCode>abcdefg</planCode><billToAddress><name>Greg Dake</name><city>Lowell</city><state>MA</state><email>sdksupport@cnp.com</email></billToAddress><card><type>VI</type><number>4100000000000001</number><expDate>1215</expDate></card><billingDate>2013-08-07</billingDate></updateSubscription></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><updateSubscriptionResponse><subscriptionId>12345</subscriptionId></updateSubscriptionResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><updateSubscriptionResponse><subscriptionId>12345</subscriptionId></updateSubscriptionResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         UpdateSubscriptionResponse updateResponse = cnp.updateSubscription(update);
         assertEquals(12345L, updateResponse.getSubscriptionId());
@@ -1221,10 +1252,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<updateSubscription><subscriptionId>12345</subscriptionId><planCode>abcdefg</planCode><billToAddress><name>Greg Dake</name><city>Lowell</city><state>MA</state><email>sdksupport@cnp.com</email></billToAddress><card><type>VI</type><number>4100000000000001</number><expDate>1215</expDate></card><billingDate>2013-08-07</billingDate></updateSubscription></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<updateSubscription><subscriptionId>12345</subscriptionId><planCode>abcdefg</planCode><billToAddress><name>Greg Dake</name><city>Lowell</city><state>MA</state><email>sdksupport@cnp.com</email></billToAddress><card><type>VI</type><number>4100000000000001</number><expDate>1215</expDate></card><billingDate>2013-08-07</billingDate></updateSubscription></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><updateSubscriptionResponse><subscriptionId>12345</subscriptionId></updateSubscriptionResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><updateSubscriptionResponse><subscriptionId>12345</subscriptionId></updateSubscriptionResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1242,10 +1273,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<updatePlan><planCode>abc</planCode><active>true</active></updatePlan></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<updatePlan><planCode>abc</planCode><active>true</active></updatePlan></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><updatePlanResponse><planCode>abc</planCode></updatePlanResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><updatePlanResponse><planCode>abc</planCode></updatePlanResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         UpdatePlanResponse updateResponse = cnp.updatePlan(update);
         assertEquals("abc", updateResponse.getPlanCode());
@@ -1261,10 +1292,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<updatePlan><planCode>abc</planCode><active>true</active></updatePlan></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<updatePlan><planCode>abc</planCode><active>true</active></updatePlan></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><updatePlanResponse><planCode>abc</planCode></updatePlanResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.20' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><updatePlanResponse><planCode>abc</planCode></updatePlanResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1282,10 +1313,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<createPlan><planCode>abc</planCode><active>true</active></createPlan></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<createPlan><planCode>abc</planCode><active>true</active></createPlan></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><createPlanResponse><planCode>abc</planCode></createPlanResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><createPlanResponse><planCode>abc</planCode></createPlanResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CreatePlanResponse createResponse = cnp.createPlan(create);
         assertEquals("abc", createResponse.getPlanCode());
@@ -1301,10 +1332,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<createPlan><planCode>abc</planCode><active>true</active></createPlan></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<createPlan><planCode>abc</planCode><active>true</active></createPlan></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><createPlanResponse><planCode>abc</planCode></createPlanResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><createPlanResponse><planCode>abc</planCode></createPlanResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1321,10 +1352,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<activate reportGroup=\"Default Report Group\"><amount>100</amount></activate></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<activate reportGroup=\"Default Report Group\"><amount>100</amount></activate></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><activateResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></activateResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><activateResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></activateResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         ActivateResponse response = cnp.activate(activate);
         assertEquals(123456L, response.getCnpTxnId());
@@ -1340,10 +1371,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<activate reportGroup=\"Default Report Group\"><amount>100</amount></activate></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<activate reportGroup=\"Default Report Group\"><amount>100</amount></activate></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><activateResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></activateResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><activateResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></activateResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1361,10 +1392,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<deactivate reportGroup=\"Default Report Group\"><orderId>123</orderId></deactivate></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<deactivate reportGroup=\"Default Report Group\"><orderId>123</orderId></deactivate></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><deactivateResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></deactivateResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><deactivateResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></deactivateResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         DeactivateResponse response = cnp.deactivate(deactivate);
         assertEquals(123456L, response.getCnpTxnId());
@@ -1380,10 +1411,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<deactivate reportGroup=\"Default Report Group\"><orderId>123</orderId></deactivate></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<deactivate reportGroup=\"Default Report Group\"><orderId>123</orderId></deactivate></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><deactivateResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></deactivateResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><deactivateResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></deactivateResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1401,10 +1432,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<load reportGroup=\"Default Report Group\"><orderId>123</orderId></load></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<load reportGroup=\"Default Report Group\"><orderId>123</orderId></load></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><loadResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></loadResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><loadResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></loadResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         LoadResponse response = cnp.load(load);
         assertEquals(123456L, response.getCnpTxnId());
@@ -1420,10 +1451,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<load reportGroup=\"Default Report Group\"><orderId>123</orderId></load></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<load reportGroup=\"Default Report Group\"><orderId>123</orderId></load></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><loadResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></loadResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><loadResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></loadResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1441,10 +1472,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<unload reportGroup=\"Default Report Group\"><orderId>123</orderId></unload></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<unload reportGroup=\"Default Report Group\"><orderId>123</orderId></unload></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><unloadResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></unloadResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><unloadResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></unloadResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         UnloadResponse response = cnp.unload(unload);
         assertEquals(123456L, response.getCnpTxnId());
@@ -1460,10 +1491,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<unload reportGroup=\"Default Report Group\"><orderId>123</orderId></unload></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<unload reportGroup=\"Default Report Group\"><orderId>123</orderId></unload></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><unloadResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></unloadResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><unloadResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></unloadResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1481,10 +1512,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<balanceInquiry reportGroup=\"Default Report Group\"><orderId>123</orderId></balanceInquiry></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<balanceInquiry reportGroup=\"Default Report Group\"><orderId>123</orderId></balanceInquiry></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><balanceInquiryResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></balanceInquiryResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><balanceInquiryResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></balanceInquiryResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         BalanceInquiryResponse response = cnp.balanceInquiry(balanceInquiry);
         assertEquals(123456L, response.getCnpTxnId());
@@ -1500,10 +1531,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<balanceInquiry reportGroup=\"Default Report Group\"><orderId>123</orderId></balanceInquiry></cnpOnlineRequest>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?<balanceInquiry reportGroup=\"Default Report Group\"><orderId>123</orderId></balanceInquiry></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><balanceInquiryResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></balanceInquiryResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><balanceInquiryResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></balanceInquiryResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1534,7 +1565,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<activateReversal reportGroup=\"Default Report Group\" id=\"id\">"
+                                requestMatching(".*?<cnpOnlineRequest.*?<activateReversal reportGroup=\"Default Report Group\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<card>"
                                 		+ "<type>GC</type>"
@@ -1550,8 +1581,8 @@ public class TestCnpOnline {
                                 		+ "</activateReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><activateReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></activateReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><activateReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></activateReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         ActivateReversalResponse response = cnp.activateReversal(activateReversal);
         assertEquals(123456L, response.getCnpTxnId());
@@ -1567,15 +1598,15 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
                                 		+ "<activateReversal reportGroup=\"Default Report Group\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<originalSystemTraceId>0</originalSystemTraceId>"
                                 		+ "</activateReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><activateReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></activateReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><activateReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></activateReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1606,7 +1637,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<deactivateReversal reportGroup=\"Default Report Group\" id=\"id\">"
+                                requestMatching(".*?<cnpOnlineRequest.*?<deactivateReversal reportGroup=\"Default Report Group\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<card>"
                                 		+ "<type>GC</type>"
@@ -1622,8 +1653,8 @@ public class TestCnpOnline {
                                 		+ "</deactivateReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><deactivateReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></deactivateReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><deactivateReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></deactivateReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         DeactivateReversalResponse response = cnp.deactivateReversal(deactivateReversal);
         assertEquals(123456L, response.getCnpTxnId());
@@ -1639,15 +1670,15 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest merchantId=\"905\" merchantSdk=.*version=\".*?\" xmlns=\"http://www.vantivcnp.com/schema\">.*?"
+                                requestMatching(".*?<cnpOnlineRequest merchantId=\"905\" merchantSdk=.*version=\".*?\" xmlns=\"http://www.vantivcnp.com/schema\">.*?"
                                 		+ "<deactivateReversal reportGroup=\"Default Report Group\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<originalSystemTraceId>0</originalSystemTraceId>"
                                 		+ "</deactivateReversal"
                                 		+ "></cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='12.9' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><deactivateReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></deactivateReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='12.9' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><deactivateReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></deactivateReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1679,7 +1710,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<loadReversal reportGroup=\"Default Report Group\" id=\"id\">"
+                                requestMatching(".*?<cnpOnlineRequest.*?<loadReversal reportGroup=\"Default Report Group\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<card>"
                                 		+ "<type>GC</type>"
@@ -1696,8 +1727,8 @@ public class TestCnpOnline {
                                 		+ "</loadReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><loadReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></loadReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><loadReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></loadReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         LoadReversalResponse response = cnp.loadReversal(loadReversal);
         assertEquals(123456L, response.getCnpTxnId());
@@ -1713,15 +1744,15 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
                                 		+ "<loadReversal reportGroup=\"Default Report Group\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<originalSystemTraceId>0</originalSystemTraceId>"
                                 		+ "</loadReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><loadReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></loadReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><loadReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></loadReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1752,7 +1783,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<unloadReversal reportGroup=\"Default Report Group\" id=\"id\">"
+                                requestMatching(".*?<cnpOnlineRequest.*?<unloadReversal reportGroup=\"Default Report Group\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<card>"
                                 		+ "<type>GC</type>"
@@ -1768,8 +1799,8 @@ public class TestCnpOnline {
                                 		+ "</unloadReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><unloadReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></unloadReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><unloadReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></unloadReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         UnloadReversalResponse response = cnp.unloadReversal(unloadReversal);
         assertEquals(123456L, response.getCnpTxnId());
@@ -1785,15 +1816,15 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
                                 		+ "<unloadReversal reportGroup=\"Default Report Group\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<originalSystemTraceId>0</originalSystemTraceId>"
                                 		+ "</unloadReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><unloadReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></unloadReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><unloadReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></unloadReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1828,7 +1859,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<refundReversal reportGroup=\"rptGrp\" id=\"id\">"
+                                requestMatching(".*?<cnpOnlineRequest.*?<refundReversal reportGroup=\"rptGrp\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<card>"
                                 		+ "<track>track data goes here</track>"
@@ -1845,8 +1876,8 @@ public class TestCnpOnline {
                                 		+ "</refundReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><refundReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></refundReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><refundReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></refundReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         RefundReversalResponse response = cnp.refundReversal(refundReversal);
         assertEquals(123456L, response.getCnpTxnId());
@@ -1862,15 +1893,15 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
                                 		+ "<refundReversal reportGroup=\"Default Report Group\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<originalSystemTraceId>0</originalSystemTraceId>"
                                 		+ "</refundReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><refundReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></refundReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><refundReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></refundReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1904,7 +1935,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<depositReversal reportGroup=\"Planets\" id=\"id\">"
+                                requestMatching(".*?<cnpOnlineRequest.*?<depositReversal reportGroup=\"Planets\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<card>"
                                 		+ "<type>GC</type>"
@@ -1921,8 +1952,8 @@ public class TestCnpOnline {
                                 		+ "</depositReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><depositReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></depositReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><depositReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></depositReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         DepositReversalResponse response = cnp.depositReversal(depositReversal);
         assertEquals(123456L, response.getCnpTxnId());
@@ -1938,15 +1969,15 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
                                 		+ "<depositReversal reportGroup=\"Default Report Group\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<originalSystemTraceId>0</originalSystemTraceId>"
                                 		+ "</depositReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><depositReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></depositReversalResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='8.21' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><depositReversalResponse><cnpTxnId>123456</cnpTxnId><location>sandbox</location></depositReversalResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -1980,7 +2011,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<giftCardAuthReversal reportGroup=\"rptGrp\" id=\"id\">"
+                                requestMatching(".*?<cnpOnlineRequest.*?<giftCardAuthReversal reportGroup=\"rptGrp\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<card>"
                                 		+ "<type>GC</type>"
@@ -1997,7 +2028,7 @@ public class TestCnpOnline {
                                 		+ "</giftCardAuthReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
+                .thenReturn(responseFrom(
                         "<cnpOnlineResponse version=\"12.0\" xmlns=\"http://www.vantivcnp.com/schema\" response=\"0\" message=\"Valid Format\">"
                         + "<giftCardAuthReversalResponse id=\"id\" reportGroup=\"rptGrp\">"
                         + "<cnpTxnId>21825673457518565</cnpTxnId>"
@@ -2011,7 +2042,7 @@ public class TestCnpOnline {
                         + "<systemTraceId>0</systemTraceId>"
                         + "</giftCardResponse>"
                         + "</giftCardAuthReversalResponse>"
-                        + "</cnpOnlineResponse>");
+                        + "</cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         GiftCardAuthReversalResponse response = cnp.giftCardAuthReversal(gcAuthReversal);
         assertEquals(21825673457518565L, response.getCnpTxnId());
@@ -2043,7 +2074,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
+                                requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
                                 		+ "<giftCardAuthReversal reportGroup=\"rptGrp\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<card>"
@@ -2061,7 +2092,7 @@ public class TestCnpOnline {
                                 		+ "</giftCardAuthReversal>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
+                .thenReturn(responseFrom(
                         "<cnpOnlineResponse version=\"12.0\" xmlns=\"http://www.vantivcnp.com/schema\" response=\"0\" message=\"Valid Format\">"
                         + "<giftCardAuthReversalResponse id=\"id\" reportGroup=\"rptGrp\">"
                         + "<cnpTxnId>21825673457518565</cnpTxnId>"
@@ -2075,7 +2106,7 @@ public class TestCnpOnline {
                         + "<systemTraceId>0</systemTraceId>"
                         + "</giftCardResponse>"
                         + "</giftCardAuthReversalResponse>"
-                        + "</cnpOnlineResponse>");
+                        + "</cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -2108,7 +2139,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<giftCardCapture reportGroup=\"rptGrp\" id=\"id\">"
+                                requestMatching(".*?<cnpOnlineRequest.*?<giftCardCapture reportGroup=\"rptGrp\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<captureAmount>2434</captureAmount>"
                                 		+ "<card>"
@@ -2124,7 +2155,7 @@ public class TestCnpOnline {
                                 		+ "</giftCardCapture>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
+                .thenReturn(responseFrom(
                         "<cnpOnlineResponse version=\"12.0\" xmlns=\"http://www.vantivcnp.com/schema\" response=\"0\" message=\"Valid Format\">"
                         + "<giftCardCaptureResponse id=\"id\" reportGroup=\"rptGrp\">"
                         + "<cnpTxnId>21825673457518565</cnpTxnId>"
@@ -2138,7 +2169,7 @@ public class TestCnpOnline {
                         + "<systemTraceId>0</systemTraceId>"
                         + "</giftCardResponse>"
                         + "</giftCardCaptureResponse>"
-                        + "</cnpOnlineResponse>");
+                        + "</cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         GiftCardCaptureResponse response = cnp.giftCardCapture(gcCapture);
         assertEquals(21825673457518565L, response.getCnpTxnId());
@@ -2169,7 +2200,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                        		matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
+                        		requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
                         				+ "<giftCardCapture reportGroup=\"rptGrp\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<captureAmount>2434</captureAmount>"
@@ -2186,7 +2217,7 @@ public class TestCnpOnline {
                                 		+ "</giftCardCapture>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
+                .thenReturn(responseFrom(
                 		"<cnpOnlineResponse version=\"12.0\" xmlns=\"http://www.vantivcnp.com/schema\" response=\"0\" message=\"Valid Format\">"
                                 + "<giftCardCaptureResponse id=\"id\" reportGroup=\"rptGrp\">"
                                 + "<cnpTxnId>21825673457518565</cnpTxnId>"
@@ -2200,7 +2231,7 @@ public class TestCnpOnline {
                                 + "<systemTraceId>0</systemTraceId>"
                                 + "</giftCardResponse>"
                                 + "</giftCardCaptureResponse>"
-                                + "</cnpOnlineResponse>");
+                                + "</cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -2229,7 +2260,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<giftCardCredit reportGroup=\"rptGrp\" id=\"id\">"
+                                requestMatching(".*?<cnpOnlineRequest.*?<giftCardCredit reportGroup=\"rptGrp\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<creditAmount>3399</creditAmount>"
                                 		+ "<card>"
@@ -2242,7 +2273,7 @@ public class TestCnpOnline {
                                 		+ "</giftCardCredit>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
+                .thenReturn(responseFrom(
                         "<cnpOnlineResponse version=\"12.0\" xmlns=\"http://www.vantivcnp.com/schema\" response=\"0\" message=\"Valid Format\">"
                         + "<giftCardCreditResponse id=\"id\" reportGroup=\"rptGrp\">"
                         + "<cnpTxnId>21825673457518565</cnpTxnId>"
@@ -2256,7 +2287,7 @@ public class TestCnpOnline {
                         + "<systemTraceId>0</systemTraceId>"
                         + "</giftCardResponse>"
                         + "</giftCardCreditResponse>"
-                        + "</cnpOnlineResponse>");
+                        + "</cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         GiftCardCreditResponse response = cnp.giftCardCredit(gcCredit);
         assertEquals(21825673457518565L, response.getCnpTxnId());
@@ -2283,7 +2314,7 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                        		matches(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
+                        		requestMatching(".*?<cnpOnlineRequest.*?merchantId=\"905\".*?"
                         				+ "<giftCardCredit reportGroup=\"rptGrp\" id=\"id\">"
                                 		+ "<cnpTxnId>123</cnpTxnId>"
                                 		+ "<creditAmount>3399</creditAmount>"
@@ -2297,7 +2328,7 @@ public class TestCnpOnline {
                                 		+ "</giftCardCredit>"
                                 		+ "</cnpOnlineRequest>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
+                .thenReturn(responseFrom(
                 		"<cnpOnlineResponse version=\"12.0\" xmlns=\"http://www.vantivcnp.com/schema\" response=\"0\" message=\"Valid Format\">"
                                 + "<giftCardCreditResponse id=\"id\" reportGroup=\"rptGrp\">"
                                 + "<cnpTxnId>21825673457518565</cnpTxnId>"
@@ -2311,7 +2342,7 @@ public class TestCnpOnline {
                                 + "<systemTraceId>0</systemTraceId>"
                                 + "</giftCardResponse>"
                                 + "</giftCardCreditResponse>"
-                                + "</cnpOnlineResponse>");
+                                + "</cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         CnpOnlineRequest overrides = new CnpOnlineRequest();
         overrides.setMerchantId("905");
@@ -2353,10 +2384,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<sale.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?<createAddOn>.*?</createAddOn>.*?</sale>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<sale.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?<createAddOn>.*?</createAddOn>.*?</sale>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></saleResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><saleResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></saleResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);
         SaleResponse saleresponse = cnp.sale(sale);
         assertEquals(123L, saleresponse.getCnpTxnId());
@@ -2373,8 +2404,8 @@ public class TestCnpOnline {
         queryTransaction.setOrigActionType(ActionTypeEnum.A);
         
         Communication mockedComm = mock (Communication.class);
-        when(mockedComm.requestToServer(matches(".*?<cnpOnlineRequest.*?<queryTransaction.*id=\"1234\".*?customerId=\"customerId\".*?<origId>org1</origId>.*?<origActionType>A</origActionType>.*?"),
-                any(Properties.class))).thenReturn("<cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><queryTransactionResponse id='1234' customerId='customerId'> <response>150</response> <responseTime>2015-04-14T12:37:26</responseTime> <message>Original transaction not found</message><matchCount>0</matchCount><location>sandbox</location></queryTransactionResponse></cnpOnlineResponse>");
+        when(mockedComm.requestToServer(requestMatching(".*?<cnpOnlineRequest.*?<queryTransaction.*id=\"1234\".*?customerId=\"customerId\".*?<origId>org1</origId>.*?<origActionType>A</origActionType>.*?"),
+                any(Properties.class), any())).thenReturn(responseFrom("<cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><queryTransactionResponse id='1234' customerId='customerId'> <response>150</response> <responseTime>2015-04-14T12:37:26</responseTime> <message>Original transaction not found</message><matchCount>0</matchCount><location>sandbox</location></queryTransactionResponse></cnpOnlineResponse>"));
         
         cnp.setCommunication(mockedComm);
         TransactionTypeWithReportGroup response = cnp.queryTransaction(queryTransaction);
@@ -2394,10 +2425,10 @@ public class TestCnpOnline {
         queryTransaction.setOrigActionType(ActionTypeEnum.A);
 
         Communication mockedComm = mock (Communication.class); 
-        when(mockedComm.requestToServer(matches(".*?<cnpOnlineRequest.*?<queryTransaction.*id=\"findId\".*?customerId=\"customerId\".*?<origId>org1</origId>.*?<origActionType>A</origActionType>.*?"),
-                any(Properties.class))).thenReturn("<cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><queryTransactionResponse id='findId' customerId='customerId'> <response>150</response> <responseTime>2015-04-14T12:37:26</responseTime> " +
+        when(mockedComm.requestToServer(requestMatching(".*?<cnpOnlineRequest.*?<queryTransaction.*id=\"findId\".*?customerId=\"customerId\".*?<origId>org1</origId>.*?<origActionType>A</origActionType>.*?"),
+                any(Properties.class), any())).thenReturn(responseFrom("<cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><queryTransactionResponse id='findId' customerId='customerId'> <response>150</response> <responseTime>2015-04-14T12:37:26</responseTime> " +
                 		"<message>Original transaction found</message><matchCount>1</matchCount>" +
-                		"<results_max10> <authorizationResponse id=\"findId\" > <cnpTxnId>1111111</cnpTxnId> <orderId>150306_auth</orderId> <response>000</response><responseTime>2015-04-14T12:37:23</responseTime><postDate>2015-04-14</postDate><message>Approved</message></authorizationResponse></results_max10><location>sandbox</location></queryTransactionResponse></cnpOnlineResponse>");
+                		"<results_max10> <authorizationResponse id=\"findId\" > <cnpTxnId>1111111</cnpTxnId> <orderId>150306_auth</orderId> <response>000</response><responseTime>2015-04-14T12:37:23</responseTime><postDate>2015-04-14</postDate><message>Approved</message></authorizationResponse></results_max10><location>sandbox</location></queryTransactionResponse></cnpOnlineResponse>"));
         
         cnp.setCommunication(mockedComm);
         TransactionTypeWithReportGroup response = cnp.queryTransaction(queryTransaction);
@@ -2422,8 +2453,8 @@ public class TestCnpOnline {
         queryTransaction.setOrigActionType(ActionTypeEnum.A);
         
         Communication mockedComm = mock (Communication.class);
-        when(mockedComm.requestToServer(matches(".*?<cnpOnlineRequest.*?<queryTransaction.*id=\"1234\".*?customerId=\"customerId\".*?<origId>org1</origId>.*?<origActionType>A</origActionType>.*?"),
-                any(Properties.class))).thenReturn("<cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><queryTransactionUnavailableResponse id='1234' customerId='customerId'><cnpTxnId>123456</cnpTxnId> <response>123</response> <message>Sample message</message><location>sandbox</location></queryTransactionUnavailableResponse></cnpOnlineResponse>");
+        when(mockedComm.requestToServer(requestMatching(".*?<cnpOnlineRequest.*?<queryTransaction.*id=\"1234\".*?customerId=\"customerId\".*?<origId>org1</origId>.*?<origActionType>A</origActionType>.*?"),
+                any(Properties.class), any())).thenReturn(responseFrom("<cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><queryTransactionUnavailableResponse id='1234' customerId='customerId'><cnpTxnId>123456</cnpTxnId> <response>123</response> <message>Sample message</message><location>sandbox</location></queryTransactionUnavailableResponse></cnpOnlineResponse>"));
         
         cnp.setCommunication(mockedComm);
         TransactionTypeWithReportGroup response =cnp.queryTransaction(queryTransaction);
@@ -2434,6 +2465,161 @@ public class TestCnpOnline {
 		assertEquals("sandbox", unavailableResponse.getLocation());
     }
     
+    /* Answers a queryTransaction for findId with the given response code, or fails when the site is down */
+    private static InMemoryTransport.Responder querySites(String site1Response, String site2Response) {
+        return (url, request) -> {
+            String code = url.endsWith("site1") ? site1Response : site2Response;
+            if (code == null) {
+                throw new java.net.ConnectException("Connection refused to " + url);
+            }
+            return ("<cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'>"
+                    + "<queryTransactionResponse id='findId' customerId='customerId'><response>" + code + "</response>"
+                    + "<responseTime>2015-04-14T12:37:26</responseTime><message>" + url + "</message><matchCount>0</matchCount>"
+                    + "</queryTransactionResponse></cnpOnlineResponse>").getBytes("UTF-8");
+        };
+    }
+
+    private static TransactionTypeWithReportGroup queryBothSites(InMemoryTransport.Responder responder, Properties config) {
+        config.setProperty("multiSiteUrl1", "http://in-memory.example.com/site1");
+        config.setProperty("multiSiteUrl2", "http://in-memory.example.com/site2");
+        QueryTransaction queryTransaction = new QueryTransaction();
+        queryTransaction.setId("findId");
+        queryTransaction.setOrigId("org1");
+        queryTransaction.setOrigActionType(ActionTypeEnum.A);
+        return new CnpOnline(config, new InMemoryTransport(responder)).queryTransaction(queryTransaction);
+    }
+
+    @Test
+    public void testQueryTransactionTakesDefinitiveSite() {
+        Properties config = new Properties();
+        config.setProperty("url", "http://in-memory.example.com/online");
+        QueryTransactionResponse response = (QueryTransactionResponse) queryBothSites(querySites("151", "150"), config);
+        assertEquals("150", response.getResponse());
+        assertEquals("http://in-memory.example.com/site2", response.getMessage());
+        // the caller's configuration is left alone
+        assertEquals("http://in-memory.example.com/online", config.getProperty("url"));
+
+        config.setProperty("queryTransactionHedgeMillis", "10000");
+        response = (QueryTransactionResponse) queryBothSites(querySites("150", "151"), config);
+        assertEquals("http://in-memory.example.com/site1", response.getMessage());
+        // site 1 said not found, so site 2 is asked right away rather than after the hedge delay
+        long start = System.currentTimeMillis();
+        response = (QueryTransactionResponse) queryBothSites(querySites("151", "150"), config);
+        assertEquals("http://in-memory.example.com/site2", response.getMessage());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test
+    public void testQueryTransactionNotFoundWithSiteUnavailable() {
+        QueryTransactionResponse response = (QueryTransactionResponse) queryBothSites(querySites(null, "151"), new Properties());
+        assertEquals("151", response.getResponse());
+        assertEquals("Original transaction not found in http://in-memory.example.com/site2. Site unavailable : http://in-memory.example.com/site1",
+                response.getMessage());
+
+        try {
+            queryBothSites(querySites(null, null), new Properties());
+            fail("Expected Exception");
+        } catch (CnpOnlineException e) {
+            assertEquals("Original transaction not found - Site/s unavailable", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testQueryTransactionCancelsSlowerSites() throws Exception {
+        CompletableFuture<CnpTransport.Response> site1Request = new CompletableFuture<CnpTransport.Response>();
+        InMemoryTransport transport = new InMemoryTransport(querySites(null, "150")) {
+            @Override
+            public CompletableFuture<CnpTransport.Response> sendAsync(String url, byte[] body, String contentType, Properties configuration) {
+                // site 1 never answers
+                return url.endsWith("site1") ? site1Request : super.sendAsync(url, body, contentType, configuration);
+            }
+        };
+        Properties config = new Properties();
+        config.setProperty("multiSiteUrl1", "http://in-memory.example.com/site1");
+        config.setProperty("multiSiteUrl2", "http://in-memory.example.com/site2");
+        QueryTransaction queryTransaction = new QueryTransaction();
+        queryTransaction.setId("findId");
+        queryTransaction.setOrigId("org1");
+        queryTransaction.setOrigActionType(ActionTypeEnum.A);
+        QueryTransactionResponse response = (QueryTransactionResponse) new CnpOnlineAsync(config, transport)
+                .queryTransaction(queryTransaction).get(5, TimeUnit.SECONDS);
+        assertEquals("http://in-memory.example.com/site2", response.getMessage());
+        assertTrue(site1Request.isCancelled());
+    }
+
+    @Test
+    public void testQueryTransactionSendsBlockingRequests() {
+        InMemoryTransport transport = new InMemoryTransport(querySites("151", "150")) {
+            @Override
+            public CompletableFuture<CnpTransport.Response> sendAsync(String url, byte[] body, String contentType, Properties configuration) {
+                throw new AssertionError("a blocking queryTransaction went async");
+            }
+        };
+        Properties config = new Properties();
+        config.setProperty("multiSiteUrl1", "http://in-memory.example.com/site1");
+        config.setProperty("multiSiteUrl2", "http://in-memory.example.com/site2");
+        QueryTransaction queryTransaction = new QueryTransaction();
+        queryTransaction.setId("findId");
+        queryTransaction.setOrigId("org1");
+        queryTransaction.setOrigActionType(ActionTypeEnum.A);
+        QueryTransactionResponse response = (QueryTransactionResponse) new CnpOnline(config, transport).queryTransaction(queryTransaction);
+        assertEquals("http://in-memory.example.com/site2", response.getMessage());
+    }
+
+    @Test
+    public void testQueryTransactionWaitIsBounded() {
+        CountDownLatch release = new CountDownLatch(1);
+        Properties config = new Properties();
+        config.setProperty("url", "http://in-memory.example.com/online");
+        config.setProperty("timeout", "200");
+        CnpOnline cnp = new CnpOnline(config, new InMemoryTransport((url, request) -> {
+            // a site that ignores the timeout
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new java.net.ConnectException("Connection refused to " + url);
+        }));
+        QueryTransaction queryTransaction = new QueryTransaction();
+        queryTransaction.setId("findId");
+        queryTransaction.setOrigId("org1");
+        queryTransaction.setOrigActionType(ActionTypeEnum.A);
+        long start = System.currentTimeMillis();
+        try {
+            cnp.queryTransaction(queryTransaction);
+            fail("Expected Exception");
+        } catch (CnpOnlineException e) {
+            assertEquals("Timed out waiting for the query transaction response", e.getMessage());
+        } finally {
+            release.countDown();
+        }
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test
+    public void testQueryTransactionWithinConcurrencyLimit() {
+        Properties config = new Properties();
+        config.setProperty("url", "http://in-memory.example.com/query-limit");
+        config.setProperty("adaptiveConcurrency", "true");
+        config.setProperty("concurrencyLimitInitial", "8");
+        CnpOnline cnp = new CnpOnline(config, InMemoryTransport.fixedResponse(
+                "<cnpOnlineResponse version='12.0' response='4' message='Connection limit exceeded' xmlns='http://www.vantivcnp.com/schema'/>"));
+        QueryTransaction queryTransaction = new QueryTransaction();
+        queryTransaction.setId("findId");
+        queryTransaction.setOrigId("org1");
+        queryTransaction.setOrigActionType(ActionTypeEnum.A);
+        try {
+            cnp.queryTransaction(queryTransaction);
+            fail("Expected Exception");
+        } catch (CnpConnectionLimitExceededException e) {
+            assertEquals("Connection limit exceeded", e.getMessage());
+        }
+        // the site's refusal reached the limiter
+        assertEquals(4, ConcurrencyLimiter.instance(config).getLimit());
+        assertEquals(0, ConcurrencyLimiter.instance(config).getInFlight());
+    }
+
 	@Test
     public void testFraudCheck() throws Exception{
         FraudCheck fraudCheck = new FraudCheck();
@@ -2448,10 +2634,10 @@ public class TestCnpOnline {
         when(
                 mockedCommunication
                         .requestToServer(
-                                matches(".*?<cnpOnlineRequest.*?<fraudCheck.*?<advancedFraudChecks>.*?</advancedFraudChecks>.*?</fraudCheck>.*?"),
+                                requestMatching(".*?<cnpOnlineRequest.*?<fraudCheck.*?<advancedFraudChecks>.*?</advancedFraudChecks>.*?</fraudCheck>.*?"),
                                 any(Properties.class)))
-                .thenReturn(
-                        "<cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><fraudCheckResponse id='' reportGroup='Default Report Group' customerId=''><cnpTxnId>602413782865196123</cnpTxnId><response>123</response><responseTime>2016-07-11T15:12:34</responseTime><message>Call Discover</message><advancedFraudResults><deviceReviewStatus>pass</deviceReviewStatus><deviceReputationScore>42</deviceReputationScore><triggeredRule>triggered_rule_1</triggeredRule><triggeredRule>triggered_rule_2</triggeredRule><triggeredRule>triggered_rule_3</triggeredRule><triggeredRule>triggered_rule_4</triggeredRule><triggeredRule>triggered_rule_5</triggeredRule></advancedFraudResults><location>sandbox</location></fraudCheckResponse></cnpOnlineResponse>");
+                .thenReturn(responseFrom(
+                        "<cnpOnlineResponse version='12.0' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><fraudCheckResponse id='' reportGroup='Default Report Group' customerId=''><cnpTxnId>602413782865196123</cnpTxnId><response>123</response><responseTime>2016-07-11T15:12:34</responseTime><message>Call Discover</message><advancedFraudResults><deviceReviewStatus>pass</deviceReviewStatus><deviceReputationScore>42</deviceReputationScore><triggeredRule>triggered_rule_1</triggeredRule><triggeredRule>triggered_rule_2</triggeredRule><triggeredRule>triggered_rule_3</triggeredRule><triggeredRule>triggered_rule_4</triggeredRule><triggeredRule>triggered_rule_5</triggeredRule></advancedFraudResults><location>sandbox</location></fraudCheckResponse></cnpOnlineResponse>"));
         cnp.setCommunication(mockedCommunication);        
         
         FraudCheckResponse fraudCheckResponse = cnp.fraudCheck(fraudCheck);
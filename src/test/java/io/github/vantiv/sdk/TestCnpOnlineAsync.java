@@ -0,0 +1,121 @@
+package io.github.vantiv.sdk;
+
+import io.github.vantiv.sdk.generate.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestCnpOnlineAsync {
+
+	private CnpOnlineAsync cnp;
+
+	@Before
+	public void before() throws Exception {
+		cnp = new CnpOnlineAsync();
+	}
+
+	@Test
+	public void testAuth() throws Exception {
+		Authorization authorization = new Authorization();
+		authorization.setReportGroup("Planets");
+		authorization.setOrderId("12344");
+		authorization.setAmount(106L);
+		authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+		CardType card = new CardType();
+		card.setType(MethodOfPaymentTypeEnum.VI);
+		card.setNumber("4100000000000002");
+		card.setExpDate("1210");
+		authorization.setCard(card);
+
+		Communication mockedCommunication = mock(Communication.class);
+		when(
+				mockedCommunication
+						.requestToServerAsync(
+								TestCnpOnline.requestMatching(".*?<cnpOnlineRequest.*?<authorization.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</authorization>.*?"),
+								any(Properties.class)))
+				.thenReturn(CompletableFuture.completedFuture(TestCnpOnline.responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></authorizationResponse></cnpOnlineResponse>")));
+		cnp.setCommunication(mockedCommunication);
+		AuthorizationResponse authorize = cnp.authorize(authorization).get();
+		assertEquals(123L, authorize.getCnpTxnId());
+		assertEquals("sandbox", authorize.getLocation());
+	}
+
+	@Test
+	public void testSale() throws Exception {
+		Sale sale = new Sale();
+		sale.setAmount(106L);
+		sale.setCnpTxnId(123456L);
+		sale.setOrderId("12344");
+		sale.setOrderSource(OrderSourceType.ECOMMERCE);
+		CardType card = new CardType();
+		card.setType(MethodOfPaymentTypeEnum.VI);
+		card.setNumber("4100000000000002");
+		card.setExpDate("1210");
+		sale.setCard(card);
+
+		Communication mockedCommunication = mock(Communication.class);
+		when(
+				mockedCommunication
+						.requestToServerAsync(
+								TestCnpOnline.requestMatching(".*?<cnpOnlineRequest.*?<sale.*?<card>.*?<number>4100000000000002</number>.*?</card>.*?</sale>.*?"),
+								any(Properties.class)))
+				.thenReturn(CompletableFuture.completedFuture(TestCnpOnline.responseFrom(
+						"<cnpOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.vantivcnp.com/schema/online'><saleResponse><cnpTxnId>123</cnpTxnId><location>sandbox</location></saleResponse></cnpOnlineResponse>")));
+		cnp.setCommunication(mockedCommunication);
+		SaleResponse saleResponse = cnp.sale(sale).get();
+		assertEquals(123L, saleResponse.getCnpTxnId());
+		assertEquals("sandbox", saleResponse.getLocation());
+	}
+
+	@Test
+	public void testConnectionLimitCompletesExceptionally() throws Exception {
+		Capture capture = new Capture();
+		capture.setCnpTxnId(123456000L);
+		capture.setAmount(106L);
+
+		Communication mockedCommunication = mock(Communication.class);
+		when(mockedCommunication.requestToServerAsync(any(CnpRequestEntity.class), any(Properties.class)))
+				.thenReturn(CompletableFuture.completedFuture(TestCnpOnline.responseFrom(
+						"<cnpOnlineResponse version='8.10' response='4' message='Connection limit exceeded' xmlns='http://www.vantivcnp.com/schema'></cnpOnlineResponse>")));
+		cnp.setCommunication(mockedCommunication);
+		try {
+			cnp.capture(capture).get();
+			fail("Expected Exception");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof CnpConnectionLimitExceededException);
+			assertEquals("Connection limit exceeded", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void testUnexpectedResponseCompletesExceptionally() throws Exception {
+		Properties config = new Properties();
+		config.setProperty("url", "http://in-memory.example.com/online");
+		// a schema element other than cnpOnlineResponse fails to unmarshal with a RuntimeException
+		cnp = new CnpOnlineAsync(config, InMemoryTransport.fixedResponse(
+				"<authorizationResponse xmlns='http://www.vantivcnp.com/schema'><cnpTxnId>123</cnpTxnId></authorizationResponse>"));
+		Authorization authorization = new Authorization();
+		authorization.setOrderId("1");
+		authorization.setAmount(100L);
+		authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+		try {
+			cnp.authorize(authorization).get(5, TimeUnit.SECONDS);
+			fail("Expected Exception");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RuntimeException);
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+package io.github.vantiv.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.Test;
+
+import io.github.vantiv.sdk.generate.Authentication;
+import io.github.vantiv.sdk.generate.Authorization;
+import io.github.vantiv.sdk.generate.CardType;
+import io.github.vantiv.sdk.generate.CnpOnlineRequest;
+
+public class TestCnpRequestEntity {
+
+    @Test
+    public void testStubRemovalMatchesRegex() throws Exception {
+        String[] samples = {
+                "<a><b/><c>text</c><d /><e\t/></a>",
+                "<a><b x=\"1\"/><b1/><c></c></a>",
+                "<<b/>< b/><b/ ><b/",
+                "<name>café <x/> ü</name><y/>",
+                "no tags at all",
+        };
+        for (String sample : samples) {
+            String expected = sample.replaceAll("<[A-Za-z]+\\s*/>", "");
+            byte[] bytes = sample.getBytes(StandardCharsets.UTF_8);
+            for (int chunk = 1; chunk <= bytes.length; chunk++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                CnpRequestEntity.StubRemovingOutputStream stubRemoving = new CnpRequestEntity.StubRemovingOutputStream(out);
+                for (int off = 0; off < bytes.length; off += chunk) {
+                    stubRemoving.write(bytes, off, Math.min(chunk, bytes.length - off));
+                }
+                stubRemoving.finish();
+                assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void testWriteToWithAndWithoutStubs() throws Exception {
+        CnpOnlineRequest request = new CnpOnlineRequest();
+        request.setMerchantId("101");
+        request.setVersion("12.37");
+        request.setAuthentication(new Authentication());
+        Authorization authorization = new Authorization();
+        authorization.setId("id");
+        authorization.setOrderId("12344");
+        authorization.setAmount(106L);
+        authorization.setCard(new CardType());
+        request.setTransaction(CnpContext.getObjectFactory().createAuthorization(authorization));
+
+        String withStubs = EntityUtils.toString(new CnpRequestEntity(request, false), "UTF-8");
+        String withoutStubs = EntityUtils.toString(new CnpRequestEntity(request, true), "UTF-8");
+        assertTrue(withStubs.contains("<card/>"));
+        assertFalse(withoutStubs.contains("<card/>"));
+        assertEquals(withStubs.replaceAll("<[A-Za-z]+\\s*/>", ""), withoutStubs);
+    }
+}
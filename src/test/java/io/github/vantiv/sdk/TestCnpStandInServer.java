@@ -0,0 +1,166 @@
+package io.github.vantiv.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlElementDecl;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.github.vantiv.sdk.generate.Authorization;
+import io.github.vantiv.sdk.generate.AuthorizationResponse;
+import io.github.vantiv.sdk.generate.CnpOnlineRequest;
+import io.github.vantiv.sdk.generate.CnpOnlineResponse;
+import io.github.vantiv.sdk.generate.ObjectFactory;
+import io.github.vantiv.sdk.generate.OrderSourceType;
+import io.github.vantiv.sdk.generate.RecurringTransactionType;
+import io.github.vantiv.sdk.generate.TransactionType;
+
+public class TestCnpStandInServer {
+
+    private CnpStandInServer server;
+
+    @After
+    public void after() {
+        if (server != null) {
+            server.close();
+        }
+        CommManager.reset();
+    }
+
+    @Test
+    public void testEveryTransactionGetsSchemaValidResponse() throws Exception {
+        server = new CnpStandInServer(1);
+        Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+                .newSchema(new File("src/main/xsd/cnpOnline_v" + Versions.XML_VERSION + ".xsd"));
+        List<String> invalid = new ArrayList<String>();
+        int checked = 0;
+        for (Method method : ObjectFactory.class.getMethods()) {
+            XmlElementDecl declaration = method.getAnnotation(XmlElementDecl.class);
+            if (declaration == null || !(declaration.substitutionHeadName().equals("transaction")
+                    || declaration.substitutionHeadName().equals("recurringTransaction"))) {
+                continue;
+            }
+            Object transaction = method.getParameterTypes()[0].getConstructor().newInstance();
+            CnpOnlineRequest request = new CnpOnlineRequest();
+            if (transaction instanceof TransactionType) {
+                ((TransactionType) transaction).setId("id" + checked);
+                request.setTransaction(element(method.invoke(new ObjectFactory(), transaction), TransactionType.class));
+            }
+            else {
+                request.setRecurringTransaction(element(method.invoke(new ObjectFactory(), transaction), RecurringTransactionType.class));
+            }
+            CnpOnlineResponse response = server.respond(request);
+            if (!"0".equals(response.getResponse())) {
+                assertEquals(declaration.name(), "Error validating xml data against the schema", response.getMessage());
+                continue;
+            }
+            String xml = marshal(response);
+            Validator validator = schema.newValidator();
+            try {
+                validator.validate(new StreamSource(new StringReader(xml)));
+            } catch (Exception e) {
+                invalid.add(declaration.name() + ": " + e.getMessage());
+            }
+            checked++;
+        }
+        assertTrue(checked > 60);
+        assertEquals(new ArrayList<String>(), invalid);
+    }
+
+    /* The element an ObjectFactory method created, typed by the substitution group it belongs to */
+    private static <T> JAXBElement<? extends T> element(Object created, Class<T> valueType) {
+        JAXBElement<?> element = (JAXBElement<?>) created;
+        return copy(element, element.getDeclaredType().asSubclass(valueType));
+    }
+
+    private static <T> JAXBElement<T> copy(JAXBElement<?> element, Class<T> declaredType) {
+        return new JAXBElement<T>(element.getName(), declaredType, element.getScope(), declaredType.cast(element.getValue()));
+    }
+
+    @Test
+    public void testAuthorizeAgainstStandIn() throws Exception {
+        server = new CnpStandInServer(1).setLatency(CnpStandInServer.uniformLatency(1, 5));
+        CnpOnline cnp = new CnpOnline(server.configure(new Properties()));
+
+        AuthorizationResponse response = cnp.authorize(authorization());
+        assertEquals("000", response.getResponse());
+        assertEquals("order-1", response.getOrderId());
+        assertEquals("auth-1", response.getId());
+        assertTrue(response.getCnpTxnId() > 0);
+        assertEquals(1, server.getRequestCount());
+
+        server.setConnectionLimitRate(1);
+        try {
+            cnp.authorize(authorization());
+            fail("Expected Exception");
+        } catch (CnpConnectionLimitExceededException e) {
+            assertEquals("Connection limit exceeded", e.getMessage());
+        }
+
+        server.setErrorRate(1);
+        try {
+            cnp.authorize(authorization());
+            fail("Expected Exception");
+        } catch (CnpOnlineException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("500"));
+        }
+    }
+
+    @Test
+    public void testSiteOutage() throws Exception {
+        server = new CnpStandInServer(2);
+        Properties config = server.configure(new Properties());
+        assertEquals("true", config.getProperty("multiSite"));
+        config.setProperty("multiSite", "false");
+        CnpOnline cnp = new CnpOnline(config);
+
+        server.setSiteAvailable(0, false);
+        try {
+            cnp.authorize(authorization());
+            fail("Expected Exception");
+        } catch (CnpOnlineException e) {
+            assertEquals("Exception connection to Vantiv eCommerce", e.getMessage());
+        }
+        server.setSiteAvailable(0, true);
+        assertNotNull(cnp.authorize(authorization()).getCnpTxnId());
+    }
+
+    private static Authorization authorization() {
+        Authorization authorization = new Authorization();
+        authorization.setId("auth-1");
+        authorization.setOrderId("order-1");
+        authorization.setAmount(100L);
+        authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+        return authorization;
+    }
+
+    private static String marshal(CnpOnlineResponse response) throws Exception {
+        Marshaller marshaller = CnpContext.getMarshallerPool().borrow();
+        try {
+            StringWriter writer = new StringWriter();
+            marshaller.marshal(response, writer);
+            return writer.toString();
+        } finally {
+            CnpContext.getMarshallerPool().release(marshaller);
+        }
+    }
+}
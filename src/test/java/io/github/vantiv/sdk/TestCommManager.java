@@ -3,11 +3,15 @@ package io.github.vantiv.sdk;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import org.junit.Test;
@@ -35,9 +39,41 @@ public class TestCommManager {
 	    config2.put("multiSite", "false");
 	    config2.put("printMultiSiteDebug", "true");
 	    CommManager cmg2 = CommManager.instance(config2);
-	    assertEquals(legacyUrl, cmg2.legacyUrl);  // should be same manager as previous
+	    assertEquals("https://nowhere.com", cmg2.legacyUrl);  // a different url gets its own manager
+	    assertEquals(legacyUrl, cmg.legacyUrl);
+
+	    Properties config3 = new Properties();
+	    config3.putAll(config);
+	    assertSame(cmg, CommManager.instance(config3));  // the same url configuration shares a manager
 	}
 
+    @Test
+    public void testInstancesKeepIndependentFailoverState() throws Exception {
+        Properties config = new Properties();
+        config.put("url", legacyUrl);
+        config.put("multiSite", "true");
+        config.put("multiSiteUrl1", site1Url);
+        config.put("multiSiteUrl2", site2Url);
+        config.put("multiSiteErrorThreshold", "2");
+        Properties otherConfig = new Properties();
+        otherConfig.putAll(config);
+        otherConfig.put("multiSiteUrl2", "https://multisite3.com");
+        CommManager.reset();
+        CommManager cmg = CommManager.instance(config);
+        CommManager other = CommManager.instance(otherConfig);
+        assertNotSame(cmg, other);
+
+        RequestTarget rt1 = cmg.findUrl();
+        cmg.reportResult(rt1, CommManager.REQUEST_RESULT_CONNECTION_FAILED, 0);
+        cmg.reportResult(cmg.findUrl(), CommManager.REQUEST_RESULT_CONNECTION_FAILED, 0);
+        assertFalse(cmg.findUrl().getUrl().equals(rt1.getUrl()));
+        assertEquals(0, other.getErrorCount());
+
+        // a failure reported for the site we switched away from is not held against the new one
+        cmg.reportResult(rt1, CommManager.REQUEST_RESULT_CONNECTION_FAILED, 0);
+        assertEquals(0, cmg.getErrorCount());
+    }
+
     @Test
     public void testInstanceMultiSite() throws Exception {
         Properties config = new Properties();
@@ -130,7 +166,7 @@ public class TestCommManager {
         assertNotNull(cmg);
         assertTrue(cmg.doMultiSite);
         RequestTarget rt = cmg.findUrl();
-        assertEquals(cmg.multiSiteUrls.get(cmg.currentMultiSiteUrlIndex), rt.getUrl());
+        assertEquals(cmg.multiSiteUrls.get(cmg.getCurrentMultiSiteUrlIndex()), rt.getUrl());
         assertTrue(rt.getUrl().equals(site1Url) || rt.getUrl().equals(site2Url));
     }
 
@@ -152,7 +188,7 @@ public class TestCommManager {
         assertEquals(cmg.multiSiteThreshold, 3);
 
         RequestTarget rt1 = cmg.findUrl();
-        assertEquals(cmg.multiSiteUrls.get(cmg.currentMultiSiteUrlIndex), rt1.getUrl());
+        assertEquals(cmg.multiSiteUrls.get(cmg.getCurrentMultiSiteUrlIndex()), rt1.getUrl());
         cmg.reportResult(rt1, CommManager.REQUEST_RESULT_RESPONSE_TIMEOUT, 0);
         RequestTarget rt2 = cmg.findUrl();
         assertEquals(rt1.getUrl(), rt2.getUrl());
@@ -160,7 +196,7 @@ public class TestCommManager {
         RequestTarget rt3 = cmg.findUrl();
         assertEquals(rt1.getUrl(), rt3.getUrl());
         cmg.reportResult(rt3, CommManager.REQUEST_RESULT_RESPONSE_TIMEOUT, 0);
-        assertEquals(cmg.errorCount, 3);
+        assertEquals(cmg.getErrorCount(), 3);
 
         RequestTarget rt4 = cmg.findUrl();
         assertFalse(rt4.getUrl().equals(rt1.getUrl()));
@@ -184,7 +220,7 @@ public class TestCommManager {
         assertEquals(cmg.multiSiteThreshold, 3);
 
         RequestTarget rt1 = cmg.findUrl();
-        assertEquals(cmg.multiSiteUrls.get(cmg.currentMultiSiteUrlIndex), rt1.getUrl());
+        assertEquals(cmg.multiSiteUrls.get(cmg.getCurrentMultiSiteUrlIndex()), rt1.getUrl());
         cmg.reportResult(rt1, CommManager.REQUEST_RESULT_RESPONSE_TIMEOUT, 0);
         RequestTarget rt2 = cmg.findUrl();
         assertEquals(rt1.getUrl(), rt2.getUrl());
@@ -192,13 +228,13 @@ public class TestCommManager {
         RequestTarget rt3 = cmg.findUrl();
         assertEquals(rt1.getUrl(), rt3.getUrl());
         cmg.reportResult(rt3, CommManager.REQUEST_RESULT_RESPONSE_TIMEOUT, 0);
-        assertEquals(cmg.errorCount, 3);
+        assertEquals(cmg.getErrorCount(), 3);
 
         RequestTarget rt4 = cmg.findUrl();
         assertFalse(rt4.getUrl().equals(rt1.getUrl()));
 
         RequestTarget rt10 = cmg.findUrl();
-        assertEquals(cmg.multiSiteUrls.get(cmg.currentMultiSiteUrlIndex), rt10.getUrl());
+        assertEquals(cmg.multiSiteUrls.get(cmg.getCurrentMultiSiteUrlIndex()), rt10.getUrl());
         cmg.reportResult(rt10, CommManager.REQUEST_RESULT_RESPONSE_RECEIVED, 401);
         RequestTarget rt11 = cmg.findUrl();
         assertEquals(rt10.getUrl(), rt11.getUrl());
@@ -206,7 +242,7 @@ public class TestCommManager {
         RequestTarget rt12 = cmg.findUrl();
         assertEquals(rt11.getUrl(), rt12.getUrl());
         cmg.reportResult(rt12, CommManager.REQUEST_RESULT_RESPONSE_TIMEOUT, 0);
-        assertEquals(cmg.errorCount, 3);
+        assertEquals(cmg.getErrorCount(), 3);
 
         RequestTarget rt13 = cmg.findUrl();
         assertFalse(rt13.getUrl().equals(rt11.getUrl()));
@@ -231,17 +267,17 @@ public class TestCommManager {
         assertEquals(cmg.multiSiteThreshold, 3);
 
         RequestTarget rt1 = cmg.findUrl();
-        assertEquals(cmg.multiSiteUrls.get(cmg.currentMultiSiteUrlIndex), rt1.getUrl());
+        assertEquals(cmg.multiSiteUrls.get(cmg.getCurrentMultiSiteUrlIndex()), rt1.getUrl());
         cmg.reportResult(rt1, CommManager.REQUEST_RESULT_RESPONSE_TIMEOUT, 0);
         RequestTarget rt2 = cmg.findUrl();
         assertEquals(rt1.getUrl(), rt2.getUrl());
         cmg.reportResult(rt2, CommManager.REQUEST_RESULT_RESPONSE_RECEIVED, 200);
-        assertEquals(0, cmg.errorCount);
+        assertEquals(0, cmg.getErrorCount());
         
         RequestTarget rt3 = cmg.findUrl();
         assertEquals(rt1.getUrl(), rt3.getUrl());
         cmg.reportResult(rt3, CommManager.REQUEST_RESULT_RESPONSE_RECEIVED, 301);
-        assertEquals(0, cmg.errorCount);
+        assertEquals(0, cmg.getErrorCount());
     }
 
 
@@ -263,7 +299,7 @@ public class TestCommManager {
         assertEquals(cmg.multiSiteThreshold, 3);
 
         RequestTarget rt1 = cmg.findUrl();
-        assertEquals(cmg.multiSiteUrls.get(cmg.currentMultiSiteUrlIndex), rt1.getUrl());
+        assertEquals(cmg.multiSiteUrls.get(cmg.getCurrentMultiSiteUrlIndex()), rt1.getUrl());
         cmg.reportResult(rt1, CommManager.REQUEST_RESULT_RESPONSE_RECEIVED, 200);
         RequestTarget rt2 = cmg.findUrl();
         assertEquals(rt1.getUrl(), rt2.getUrl());
@@ -271,9 +307,9 @@ public class TestCommManager {
         
         // set last switch time to 6 hours earlier
         GregorianCalendar gc = new GregorianCalendar();
-        gc.setTimeInMillis(cmg.lastSiteSwitchTime);
+        gc.setTimeInMillis(cmg.getLastSiteSwitchTime());
         gc.add(Calendar.HOUR_OF_DAY, -6);
-        cmg.lastSiteSwitchTime = gc.getTimeInMillis();
+        cmg.setLastSiteSwitchTime(gc.getTimeInMillis());
         
         RequestTarget rt3 = cmg.findUrl();
         assertFalse(rt3.getUrl().equals(rt1.getUrl()));
@@ -293,4 +329,159 @@ public class TestCommManager {
         cmg.reportResult(new RequestTarget("",1),  1,  0);
     }
 
+    @Test
+    public void testOpenSiteIsProbedAfterOpenMillis() throws Exception {
+        Properties config = new Properties();
+        config.put("url", legacyUrl);
+        config.put("multiSite", "true");
+        config.put("multiSiteUrl1", site1Url);
+        config.put("multiSiteUrl2", site2Url);
+        config.put("multiSiteErrorThreshold", "1");
+        config.put("multiSiteOpenMillis", "50");
+        CommManager.reset();
+        CommManager cmg = CommManager.instance(config);
+
+        RequestTarget failed = cmg.findUrl();
+        cmg.reportResult(failed, CommManager.REQUEST_RESULT_RESPONSE_TIMEOUT, 0);
+        assertEquals(SiteCircuitBreaker.State.OPEN, cmg.getCircuitBreaker(failed.getUrlIndex()).getState());
+
+        // traffic moves to the other site straight away and stays there while it is healthy
+        RequestTarget other = cmg.findUrl();
+        assertFalse(other.getUrl().equals(failed.getUrl()));
+        cmg.reportResult(other, CommManager.REQUEST_RESULT_RESPONSE_RECEIVED, 200);
+        assertEquals(other.getUrl(), cmg.findUrl().getUrl());
+
+        Thread.sleep(60);
+        // the open site is only given a probe once the current site needs to switch again
+        cmg.reportResult(other, CommManager.REQUEST_RESULT_CONNECTION_FAILED, 0);
+        RequestTarget probe = cmg.findUrl();
+        assertEquals(failed.getUrl(), probe.getUrl());
+        assertEquals(SiteCircuitBreaker.State.HALF_OPEN, cmg.getCircuitBreaker(probe.getUrlIndex()).getState());
+        cmg.reportResult(probe, CommManager.REQUEST_RESULT_RESPONSE_RECEIVED, 200);
+        assertEquals(SiteCircuitBreaker.State.CLOSED, cmg.getCircuitBreaker(probe.getUrlIndex()).getState());
+    }
+
+    @Test
+    public void testInstanceReadsAllMultiSiteUrls() throws Exception {
+        Properties config = new Properties();
+        config.put("url", legacyUrl);
+        config.put("multiSite", "true");
+        config.put("multiSiteUrl1", site1Url);
+        config.put("multiSiteUrl2", site2Url);
+        config.put("multiSiteUrl3", "https://multisite3.com");
+        config.put("multiSiteUrl4", "https://multisite4.com");
+        CommManager.reset();
+        CommManager cmg = CommManager.instance(config);
+        assertEquals(4, cmg.multiSiteUrls.size());
+    }
+
+    @Test
+    public void testFindUrl_Fastest() throws Exception {
+        CommManager cmg = latencyRoutedManager("fastest");
+        int fastest = cmg.multiSiteUrls.indexOf("https://multisite3.com");
+        for (int x = 0; x < 10; x++) {
+            assertEquals("https://multisite3.com", cmg.findUrl().getUrl());
+        }
+
+        // once the fastest site starts failing its error rate outweighs its latency
+        for (int x = 0; x < 3; x++) {
+            cmg.getSiteStats(fastest).recordResponse(5, true);
+        }
+        assertEquals(site1Url, cmg.findUrl().getUrl());
+    }
+
+    @Test
+    public void testFindUrl_PowerOfTwoChoices() throws Exception {
+        CommManager cmg = latencyRoutedManager("p2c");
+        Map<String, Integer> selected = new HashMap<String, Integer>();
+        for (int x = 0; x < 900; x++) {
+            selected.merge(cmg.findUrl().getUrl(), 1, Integer::sum);
+        }
+        // the slowest site only wins when it is drawn twice, about one request in nine
+        int slowest = selected.getOrDefault(site2Url, 0);
+        assertTrue(slowest > 0);
+        assertTrue(slowest < selected.get(site1Url));
+        assertTrue(selected.get(site1Url) < selected.get("https://multisite3.com"));
+    }
+
+    @Test
+    public void testFindUrl_PowerOfTwoChoicesWithTwoSites() throws Exception {
+        Properties config = new Properties();
+        config.put("url", legacyUrl);
+        config.put("multiSite", "true");
+        config.put("multiSiteRouting", "p2c");
+        config.put("multiSiteUrl1", site1Url);
+        config.put("multiSiteUrl2", site2Url);
+        CommManager.reset();
+        CommManager cmg = CommManager.instance(config);
+        cmg.getSiteStats(cmg.multiSiteUrls.indexOf(site1Url)).recordResponse(50, false);
+        cmg.getSiteStats(cmg.multiSiteUrls.indexOf(site2Url)).recordResponse(400, false);
+
+        int slower = 0;
+        for (int x = 0; x < 400; x++) {
+            if (site2Url.equals(cmg.findUrl().getUrl())) {
+                slower++;
+            }
+        }
+        // a quarter of the requests on average, never none
+        assertTrue(slower > 40);
+        assertTrue(slower < 200);
+    }
+
+    @Test
+    public void testSiteStatsDecayWithoutSamples() throws Exception {
+        SiteStats slow = new SiteStats();
+        SiteStats fast = new SiteStats();
+        long now = 1000000;
+        slow.recordFailure(120000, true, now);
+        fast.recordResponse(50, false, now);
+        assertTrue(slow.cost(now) > fast.cost(now));
+
+        // ten half-lives without a sample take the timeout almost all the way out of the averages
+        long later = now + 10 * SiteStats.DECAY_HALF_LIFE_MILLIS;
+        assertEquals(120000 / 1024.0, slow.getLatency(later), 0.001);
+        assertEquals(SiteStats.ALPHA / 1024, slow.getErrorRate(later), 0.000001);
+        assertTrue(slow.cost(later) < slow.cost(now) / 1000);
+
+        // a new sample starts from the decayed average rather than the stale one
+        slow.recordResponse(40, false, later);
+        assertEquals(120000 / 1024.0 + SiteStats.ALPHA * (40 - 120000 / 1024.0), slow.getLatency(later), 0.001);
+    }
+
+    @Test
+    public void testFindUrl_FastestRetriesSiteThatWasSlow() throws Exception {
+        Properties config = new Properties();
+        config.put("url", legacyUrl);
+        config.put("multiSite", "true");
+        config.put("multiSiteRouting", "fastest");
+        config.put("multiSiteUrl1", site1Url);
+        config.put("multiSiteUrl2", site2Url);
+        CommManager.reset();
+        CommManager cmg = CommManager.instance(config);
+        long then = System.currentTimeMillis() - 20 * SiteStats.DECAY_HALF_LIFE_MILLIS;
+        cmg.getSiteStats(cmg.multiSiteUrls.indexOf(site1Url)).recordFailure(120000, true, then);
+        cmg.getSiteStats(cmg.multiSiteUrls.indexOf(site2Url)).recordResponse(50, false, then);
+        assertEquals(site2Url, cmg.findUrl().getUrl());
+
+        // only the site that kept answering has fresh samples, the one that timed out long ago is tried again
+        cmg.getSiteStats(cmg.multiSiteUrls.indexOf(site2Url)).recordResponse(50, false);
+        assertEquals(site1Url, cmg.findUrl().getUrl());
+    }
+
+    private CommManager latencyRoutedManager(String routing) {
+        Properties config = new Properties();
+        config.put("url", legacyUrl);
+        config.put("multiSite", "true");
+        config.put("multiSiteRouting", routing);
+        config.put("multiSiteUrl1", site1Url);
+        config.put("multiSiteUrl2", site2Url);
+        config.put("multiSiteUrl3", "https://multisite3.com");
+        CommManager.reset();
+        CommManager cmg = CommManager.instance(config);
+        cmg.getSiteStats(cmg.multiSiteUrls.indexOf(site1Url)).recordResponse(50, false);
+        cmg.getSiteStats(cmg.multiSiteUrls.indexOf(site2Url)).recordResponse(400, false);
+        cmg.getSiteStats(cmg.multiSiteUrls.indexOf("https://multisite3.com")).recordResponse(20, false);
+        return cmg;
+    }
+
 }
@@ -2,18 +2,31 @@ package io.github.vantiv.sdk;
 
 import static junit.framework.TestCase.fail;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.core5.pool.PoolStats;
+
+import io.github.vantiv.sdk.generate.CnpOnlineRequest;
+
 public class TestCommunication {
 
 	private Communication communication;
@@ -98,6 +111,182 @@ public class TestCommunication {
 	}
 
 
+    @Test
+    public void testPooledClientSharedForSameEndpoint() {
+        Properties config = new Properties();
+        config.setProperty("url", "https://pooled.example.com/online");
+        config.setProperty("maxConnections", "50");
+        config.setProperty("maxConnectionsPerRoute", "50");
+        Properties sameEndpoint = new Properties();
+        sameEndpoint.putAll(config);
+        Properties otherEndpoint = new Properties();
+        otherEndpoint.putAll(config);
+        otherEndpoint.setProperty("url", "https://other.example.com/online");
+
+        assertSame(httpClientOf(new Communication(config)), httpClientOf(new Communication(sameEndpoint)));
+        assertNotSame(httpClientOf(new Communication(config)), httpClientOf(new Communication(otherEndpoint)));
+    }
+
+    private static Object httpClientOf(Communication communication) {
+        return ((ApacheHttpTransport) communication.transport).httpClient;
+    }
+
+    @Test
+    public void testTransportProperty() {
+        Properties config = new Properties();
+        config.setProperty("url", "https://transport.example.com/online");
+        assertTrue(new Communication(config).transport instanceof ApacheHttpTransport);
+
+        config.setProperty("transport", "jdk");
+        assertTrue(new Communication(config).transport instanceof JdkHttpTransport);
+
+        config.setProperty("transport", "io.github.vantiv.sdk.NoSuchTransport");
+        try {
+            new Communication(config);
+            fail("Expected Exception");
+        } catch (CnpOnlineException e) {
+            assertEquals("Unable to create the io.github.vantiv.sdk.NoSuchTransport transport", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testInMemoryTransport() {
+        Properties config = new Properties();
+        config.setProperty("url", "http://in-memory.example.com/online");
+        Communication inMemory = new Communication(new InMemoryTransport((url, request) -> {
+            assertEquals("http://in-memory.example.com/online", url);
+            return ("echo " + new String(request, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        }));
+
+        assertEquals("echo <request/>", inMemory.requestToServer("<request/>", config));
+    }
+
+    @Test
+    public void testCommManagerLookedUpOncePerConfiguration() {
+        final AtomicInteger routingReads = new AtomicInteger();
+        Properties config = new Properties() {
+            @Override
+            public String getProperty(String key) {
+                if ("multiSiteRouting".equals(key)) {
+                    routingReads.incrementAndGet();
+                }
+                return super.getProperty(key);
+            }
+        };
+        config.setProperty("url", "http://in-memory.example.com/lookup");
+        Communication inMemory = new Communication(new InMemoryTransport((url, request) -> request));
+
+        inMemory.requestToServer("<request/>", config);
+        int reads = routingReads.get();
+        inMemory.requestToServer("<request/>", config);
+        inMemory.requestToServer("<request/>", config);
+        assertEquals(reads, routingReads.get());
+
+        // a reset hands out fresh managers, which are looked up again
+        CommManager.reset();
+        inMemory.requestToServer("<request/>", config);
+        assertTrue(routingReads.get() > reads);
+    }
+
+    @Test
+    public void testJdkTransport() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/online", exchange -> {
+            byte[] response = ("<cnpOnlineResponse version='12.0' response='0' message='Valid Format'"
+                    + " xmlns='http://www.vantivcnp.com/schema'/>").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+        try {
+            Properties config = new Properties();
+            config.setProperty("url", "http://127.0.0.1:" + server.getAddress().getPort() + "/online");
+            config.setProperty("transport", "jdk");
+            Communication jdk = new Communication(config);
+
+            CnpOnlineRequest request = new CnpOnlineRequest();
+            assertEquals("Valid Format", jdk.requestToServer(new CnpRequestEntity(request, false), config).getMessage());
+            assertEquals("Valid Format", jdk.requestToServerAsync(new CnpRequestEntity(request, false), config).join().getMessage());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testApacheTransportSendsContentLength() throws IOException {
+        final String[] headers = new String[2];
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/online", exchange -> {
+            headers[0] = exchange.getRequestHeaders().getFirst("Content-Length");
+            headers[1] = exchange.getRequestHeaders().getFirst("Transfer-Encoding");
+            byte[] body = new byte[Integer.parseInt(headers[0])];
+            int read = 0;
+            while (read < body.length) {
+                read += exchange.getRequestBody().read(body, read, body.length - read);
+            }
+            byte[] response = ("<cnpOnlineResponse version='12.0' response='0' message='Valid Format'"
+                    + " xmlns='http://www.vantivcnp.com/schema'/>").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+        try {
+            Properties config = new Properties();
+            config.setProperty("url", "http://127.0.0.1:" + server.getAddress().getPort() + "/online");
+            Communication apache = new Communication(config);
+
+            CnpOnlineRequest request = new CnpOnlineRequest();
+            request.setMerchantId("101");
+            assertEquals("Valid Format", apache.requestToServer(new CnpRequestEntity(request, false), config).getMessage());
+            assertTrue(Integer.parseInt(headers[0]) > 0);
+            assertNull(headers[1]);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testWarmUpOpensPooledConnections() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+            Properties config = new Properties();
+            config.setProperty("url", "http://127.0.0.1:" + server.getLocalPort() + "/online");
+            Communication warmed = new Communication(config);
+
+            assertEquals(3, warmed.warmUp(config, 3));
+            // the connections are idle in the pool now, so there is nothing left to open
+            assertEquals(0, warmed.warmUp(config, 3));
+            assertEquals(1, warmed.warmUp(config, 4));
+        }
+    }
+
+    @Test
+    public void testKeepWarmOnlyTopsUpMissingConnections() {
+        // PoolStats(leased, pending, available, max)
+        assertEquals(0, ApacheHttpTransport.keepWarmCount(new PoolStats(0, 0, 4, 10), 4));
+        assertEquals(0, ApacheHttpTransport.keepWarmCount(new PoolStats(3, 0, 1, 10), 4));
+        // the idle connection is leased along with the two that are opened
+        assertEquals(3, ApacheHttpTransport.keepWarmCount(new PoolStats(1, 0, 1, 10), 4));
+        // one slot of the route stays free for requests
+        assertEquals(4, ApacheHttpTransport.keepWarmCount(new PoolStats(0, 0, 0, 5), 8));
+        assertEquals(0, ApacheHttpTransport.keepWarmCount(new PoolStats(4, 0, 0, 5), 8));
+    }
+
+    @Test
+    public void testWarmUpWithEmptyProxySettings() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+            // as written by Setup when there is no proxy
+            Properties config = new Properties();
+            config.setProperty("url", "http://127.0.0.1:" + server.getLocalPort() + "/online");
+            config.setProperty("proxyHost", "");
+            config.setProperty("proxyPort", "");
+            assertEquals(2, new Communication(config).warmUp(config, 2));
+        }
+    }
+
     @Test
     public void testSendCnpRequestFileToSFTP() throws IOException {
         Properties props = new Properties();
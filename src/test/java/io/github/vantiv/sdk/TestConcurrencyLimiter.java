@@ -0,0 +1,165 @@
+package io.github.vantiv.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.net.SocketTimeoutException;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.github.vantiv.sdk.generate.Authorization;
+import io.github.vantiv.sdk.generate.OrderSourceType;
+
+public class TestConcurrencyLimiter {
+
+    @After
+    public void after() {
+        ConcurrencyLimiter.reset();
+    }
+
+    @Test
+    public void testInstancePerUrlOnlyWhenEnabled() {
+        Properties config = new Properties();
+        config.setProperty("url", "https://limited.example.com/online");
+        assertNull(ConcurrencyLimiter.instance(config));
+
+        config.setProperty("adaptiveConcurrency", "true");
+        config.setProperty("concurrencyLimitInitial", "7");
+        assertSame(ConcurrencyLimiter.instance(config), ConcurrencyLimiter.instance(config));
+        assertEquals(7, ConcurrencyLimiter.instance(config).getLimit());
+    }
+
+    @Test
+    public void testDropHalvesLimitOncePerRoundTrip() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 1, 100, 0, 2.0);
+        long first = limiter.acquire();
+        long second = limiter.acquire();
+
+        limiter.release(first, ConcurrencyLimiter.DROPPED);
+        assertEquals(10, limiter.getLimit());
+        // sent before the decrease, at the old limit
+        limiter.release(second, ConcurrencyLimiter.DROPPED);
+        assertEquals(10, limiter.getLimit());
+
+        limiter.release(limiter.acquire(), ConcurrencyLimiter.DROPPED);
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testLimitGrowsOnlyWhileInUse() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 5, 0, 1000.0);
+        limiter.release(limiter.acquire(), ConcurrencyLimiter.SUCCESS);
+        assertEquals(4, limiter.getLimit());
+
+        long first = limiter.acquire();
+        long second = limiter.acquire();
+        limiter.release(first, ConcurrencyLimiter.SUCCESS);
+        assertEquals(5, limiter.getLimit());
+        limiter.release(second, ConcurrencyLimiter.IGNORED);
+        assertEquals(5, limiter.getLimit());
+
+        for (int i = 0; i < 3; i++) {
+            long a = limiter.acquire();
+            long b = limiter.acquire();
+            long c = limiter.acquire();
+            limiter.release(a, ConcurrencyLimiter.SUCCESS);
+            limiter.release(b, ConcurrencyLimiter.SUCCESS);
+            limiter.release(c, ConcurrencyLimiter.SUCCESS);
+        }
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    public void testLatencyInflationShrinksLimit() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 1, 100, 0, 2.0);
+        limiter.release(limiter.acquire(), ConcurrencyLimiter.SUCCESS);
+        long slow = limiter.acquire();
+        Thread.sleep(20);
+        limiter.release(slow, ConcurrencyLimiter.SUCCESS);
+        assertEquals(18, limiter.getLimit());
+    }
+
+    @Test
+    public void testFailFastAboveLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 0, 2.0);
+        long start = limiter.acquire();
+        try {
+            limiter.acquire();
+            fail("Expected Exception");
+        } catch (CnpConnectionLimitExceededException e) {
+            assertEquals("Concurrency limit of 1 requests in flight reached", e.getMessage());
+        }
+        try {
+            limiter.tryAcquire();
+            fail("Expected Exception");
+        } catch (CnpConnectionLimitExceededException expected) {
+        }
+        limiter.release(start, ConcurrencyLimiter.IGNORED);
+        limiter.release(limiter.tryAcquire(), ConcurrencyLimiter.IGNORED);
+    }
+
+    @Test
+    public void testWaitingCallerGetsReleasedSlot() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 10000, 2.0);
+        long start = limiter.acquire();
+        Thread waiter = new Thread(() -> limiter.release(limiter.acquire(), ConcurrencyLimiter.IGNORED));
+        waiter.start();
+        Thread.sleep(50);
+        assertEquals(1, limiter.getInFlight());
+        limiter.release(start, ConcurrencyLimiter.IGNORED);
+        waiter.join(5000);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testConnectionLimitResponseLowersLimit() {
+        Properties config = new Properties();
+        config.setProperty("url", "http://in-memory.example.com/online");
+        config.setProperty("adaptiveConcurrency", "true");
+        config.setProperty("concurrencyLimitInitial", "8");
+        CnpOnline cnp = new CnpOnline(config, InMemoryTransport.fixedResponse(
+                "<cnpOnlineResponse version='12.0' response='4' message='Connection limit exceeded' xmlns='http://www.vantivcnp.com/schema'/>"));
+
+        Authorization authorization = new Authorization();
+        authorization.setOrderId("1");
+        authorization.setAmount(100L);
+        authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+        try {
+            cnp.authorize(authorization);
+            fail("Expected Exception");
+        } catch (CnpConnectionLimitExceededException e) {
+            assertEquals("Connection limit exceeded", e.getMessage());
+        }
+        assertEquals(4, ConcurrencyLimiter.instance(config).getLimit());
+        assertEquals(0, ConcurrencyLimiter.instance(config).getInFlight());
+    }
+
+    @Test
+    public void testResponseTimeoutLowersLimit() {
+        Properties config = new Properties();
+        config.setProperty("url", "http://in-memory.example.com/online-timeout");
+        config.setProperty("adaptiveConcurrency", "true");
+        config.setProperty("concurrencyLimitInitial", "8");
+        CnpOnline cnp = new CnpOnline(config, new InMemoryTransport((url, request) -> {
+            throw new SocketTimeoutException("Read timed out");
+        }));
+
+        Authorization authorization = new Authorization();
+        authorization.setOrderId("1");
+        authorization.setAmount(100L);
+        authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+        try {
+            cnp.authorize(authorization);
+            fail("Expected Exception");
+        } catch (CnpOnlineException e) {
+            assertEquals(SocketTimeoutException.class, e.getCause().getClass());
+        }
+        assertEquals(4, ConcurrencyLimiter.instance(config).getLimit());
+        assertEquals(0, ConcurrencyLimiter.instance(config).getInFlight());
+    }
+}
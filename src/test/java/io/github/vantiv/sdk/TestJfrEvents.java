@@ -0,0 +1,69 @@
+package io.github.vantiv.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import io.github.vantiv.sdk.generate.Authorization;
+import io.github.vantiv.sdk.generate.OrderSourceType;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TestJfrEvents {
+
+    @Test
+    public void testOnlineTransactionEvents() throws IOException {
+        Properties config = new Properties();
+        config.setProperty("url", "http://in-memory.example.com/online");
+        CnpOnline cnp = new CnpOnline(config, InMemoryTransport.fixedResponse("<cnpOnlineResponse version='12.0' response='0'"
+                + " message='Valid Format' xmlns='http://www.vantivcnp.com/schema'><authorizationResponse id='1'"
+                + " reportGroup='Default'><cnpTxnId>123</cnpTxnId><orderId>1</orderId><response>000</response>"
+                + "<message>Approved</message></authorizationResponse></cnpOnlineResponse>"));
+        Authorization authorization = new Authorization();
+        authorization.setOrderId("1");
+        authorization.setAmount(100L);
+        authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+
+        assertSame(RequestTimings.DISABLED, RequestTimings.start("authorization", config, false));
+
+        File file = File.createTempFile("cnp", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("io.github.vantiv.sdk.OnlineTransaction");
+                recording.enable("io.github.vantiv.sdk.OnlineRequest");
+                recording.start();
+                cnp.authorize(authorization);
+                recording.stop();
+                recording.dump(file.toPath());
+            }
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+            assertEquals(2, events.size());
+            RecordedEvent request = events.get(0).getEventType().getName().endsWith("OnlineRequest") ? events.get(0) : events.get(1);
+            RecordedEvent transaction = request == events.get(0) ? events.get(1) : events.get(0);
+
+            assertEquals("authorization", request.getString("transactionType"));
+            assertEquals("http://in-memory.example.com/online", request.getString("url"));
+            assertEquals(0, request.getInt("siteIndex"));
+            assertTrue(request.getLong("requestBytes") > 0);
+            assertTrue(request.getLong("responseBytes") > 0);
+            assertEquals("0", request.getString("responseCode"));
+            assertNull(request.getString("failure"));
+
+            assertEquals("io.github.vantiv.sdk.OnlineTransaction", transaction.getEventType().getName());
+            assertEquals("authorization", transaction.getString("transactionType"));
+            assertEquals("0", transaction.getString("responseCode"));
+            assertTrue(transaction.getDuration().compareTo(request.getDuration()) >= 0);
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.vantiv.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestSiteCircuitBreaker {
+
+    @Test
+    public void testOpensOnConsecutiveFailures() {
+        SiteCircuitBreaker breaker = new SiteCircuitBreaker(3, 50, 20, 10, 30000, 0);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(SiteCircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onFailure();
+        assertEquals(SiteCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testOpensOnFailureRate() {
+        SiteCircuitBreaker breaker = new SiteCircuitBreaker(5, 50, 10, 4, 30000, 0);
+        breaker.onSuccess(10);
+        breaker.onFailure();
+        breaker.onSuccess(10);
+        assertEquals(SiteCircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onFailure();  // 2 of 4 failed, never more than one in a row
+        assertEquals(SiteCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getWindowFailures());
+        assertEquals(4, breaker.getWindowCalls());
+    }
+
+    @Test
+    public void testSlowCallsCountAsFailures() {
+        SiteCircuitBreaker breaker = new SiteCircuitBreaker(2, 50, 20, 10, 30000, 1000);
+        breaker.onSuccess(999);
+        breaker.onSuccess(5000);
+        assertEquals(1, breaker.getConsecutiveFailures());
+        breaker.onSuccess(5000);
+        assertEquals(SiteCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenLetsOneProbeThrough() {
+        SiteCircuitBreaker breaker = new SiteCircuitBreaker(1, 50, 20, 10, 1000, 0);
+        breaker.onFailure();
+        long now = System.currentTimeMillis();
+        assertFalse(breaker.allowRequest(now));
+
+        assertTrue(breaker.allowRequest(now + 1000));
+        assertEquals(SiteCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(now + 1000));
+
+        breaker.onFailure();
+        assertEquals(SiteCircuitBreaker.State.OPEN, breaker.getState());
+
+        assertTrue(breaker.allowRequest(System.currentTimeMillis() + 1000));
+        breaker.onSuccess(10);
+        assertEquals(SiteCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getWindowCalls());
+        assertTrue(breaker.allowRequest(System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.vantiv.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Properties;
+
+import javax.net.ssl.SSLSessionContext;
+
+import org.junit.Test;
+
+public class TestTransportFactory {
+
+    @Test
+    public void testConfigureSessionCache() {
+        TransportFactory.Tls shared = TransportFactory.forConfiguration(new Properties());
+        Properties config = new Properties();
+        config.setProperty("sslSessionCacheSize", "250");
+        config.setProperty("sslSessionTimeout", "600");
+        TransportFactory.Tls configured = TransportFactory.forConfiguration(config);
+        assertNotSame(shared, configured);
+
+        SSLSessionContext sessionContext = configured.getSslContext().getClientSessionContext();
+        assertEquals(250, sessionContext.getSessionCacheSize());
+        assertEquals(600, sessionContext.getSessionTimeout());
+
+        // the configurations that do not set them keep the defaults
+        SSLSessionContext sharedContext = shared.getSslContext().getClientSessionContext();
+        assertEquals(TransportFactory.DEFAULT_SESSION_CACHE_SIZE, sharedContext.getSessionCacheSize());
+        assertEquals(TransportFactory.DEFAULT_SESSION_TIMEOUT, sharedContext.getSessionTimeout());
+    }
+
+    @Test
+    public void testSameSessionCacheSettingsShareTls() {
+        Properties config = new Properties();
+        config.setProperty("sslSessionTimeout", "900");
+        Properties sameSettings = new Properties();
+        sameSettings.setProperty("url", "https://other.example.com");
+        sameSettings.setProperty("sslSessionTimeout", "900");
+        sameSettings.setProperty("sslSessionCacheSize", String.valueOf(TransportFactory.DEFAULT_SESSION_CACHE_SIZE));
+        assertSame(TransportFactory.forConfiguration(config), TransportFactory.forConfiguration(sameSettings));
+
+        Properties defaults = new Properties();
+        defaults.setProperty("sslSessionTimeout", String.valueOf(TransportFactory.DEFAULT_SESSION_TIMEOUT));
+        assertSame(TransportFactory.forConfiguration(new Properties()), TransportFactory.forConfiguration(defaults));
+    }
+}
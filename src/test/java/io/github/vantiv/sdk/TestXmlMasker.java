@@ -0,0 +1,66 @@
+package io.github.vantiv.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.junit.Test;
+
+public class TestXmlMasker {
+
+    @Test
+    public void testMasksEachElementOnItsOwn() {
+        assertEquals("<card><number>NEUTERED</number><expDate>1210</expDate></card><token><number>NEUTERED</number></token>",
+                XmlMasker.DEFAULT.mask("<card><number>4100000000000000</number><expDate>1210</expDate></card><token><number>5112</number></token>"));
+    }
+
+    @Test
+    public void testLeavesSimilarAndEmptyElements() {
+        String xml = "<authentication><username>u</username><user/><userId>1</userId></authentication><numbers>12</numbers>";
+        assertEquals(xml, XmlMasker.DEFAULT.mask(xml));
+        assertEquals("", XmlMasker.DEFAULT.mask(""));
+    }
+
+    @Test
+    public void testMasksElementWithAttributesAndUnclosedElement() {
+        assertEquals("<user id=\"1\">NEUTERED</user><password>NEUTERED",
+                XmlMasker.DEFAULT.mask("<user id=\"1\">me</user><password>secret and the rest"));
+    }
+
+    @Test
+    public void testConfiguredTags() {
+        Properties config = new Properties();
+        config.setProperty("neuterXmlTags", "routingNum, accNum");
+        XmlMasker masker = XmlMasker.forConfig(config);
+        assertSame(masker, XmlMasker.forConfig(config));
+        assertSame(XmlMasker.DEFAULT, XmlMasker.forConfig(new Properties()));
+        assertEquals("<routingNum>NEUTERED</routingNum><accNum>NEUTERED</accNum><number>4100</number>",
+                masker.mask("<routingNum>011075150</routingNum><accNum>1234</accNum><number>4100</number>"));
+    }
+
+    @Test
+    public void testLogSinkPrintsMaskedXml() throws InterruptedException {
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] xml = "<card><number>4100000000000000</number></card>".getBytes(StandardCharsets.UTF_8);
+        Properties config = new Properties();
+        config.setProperty("neuterXml", "true");
+        System.setOut(new PrintStream(out, true));
+        try {
+            config.setProperty("printxmlAsync", "false");
+            XmlLogSink.log("Request XML: ", xml, StandardCharsets.UTF_8, config);
+            config.setProperty("printxmlAsync", "true");
+            XmlLogSink.log("Response XML: ", xml, StandardCharsets.UTF_8, config);
+            XmlLogSink.instance(XmlLogSink.DEFAULT_QUEUE_SIZE).flush(5000);
+        } finally {
+            System.setOut(originalOut);
+        }
+        String separator = System.lineSeparator();
+        assertEquals("Request XML: <card><number>NEUTERED</number></card>" + separator
+                + "Response XML: <card><number>NEUTERED</number></card>" + separator, out.toString());
+    }
+}